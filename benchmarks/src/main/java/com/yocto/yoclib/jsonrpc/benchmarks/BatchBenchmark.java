@@ -0,0 +1,62 @@
+package com.yocto.yoclib.jsonrpc.benchmarks;
+
+import com.yocto.yoclib.jsonrpc.JSONRPCException;
+import com.yocto.yoclib.jsonrpc.Message;
+import com.yocto.yoclib.jsonrpc.MessageBatchParser;
+import com.yocto.yoclib.jsonrpc.MessageBatchReader;
+import com.yocto.yoclib.jsonrpc.ParseResult;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean large;
+
+    private String json;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        this.json = Payloads.batch(this.size, this.large);
+        this.bytes = this.json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void decodeAndParseObjects(Blackhole blackhole) throws JSONRPCException {
+        JSONArray batch = (JSONArray) Message.decodeJSON(this.json);
+        for (int i = 0; i < batch.length(); i++) {
+            blackhole.consume(Message.parseObject(batch.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void readStreaming(Blackhole blackhole) {
+        MessageBatchReader reader = new MessageBatchReader(new ByteArrayInputStream(this.bytes));
+        while (reader.hasNext()) {
+            blackhole.consume(reader.next());
+        }
+    }
+
+    @Benchmark
+    public List<ParseResult> parseParallel() throws JSONRPCException {
+        return MessageBatchParser.parse(this.bytes);
+    }
+
+}
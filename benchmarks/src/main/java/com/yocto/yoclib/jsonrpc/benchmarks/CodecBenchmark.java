@@ -0,0 +1,46 @@
+package com.yocto.yoclib.jsonrpc.benchmarks;
+
+import com.yocto.yoclib.jsonrpc.JSONCodec;
+import com.yocto.yoclib.jsonrpc.JSONRPCException;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"orgJson", "fast"})
+    public String codec;
+
+    @Param({"false", "true"})
+    public boolean large;
+
+    private JSONCodec instance;
+    private byte[] bytes;
+    private Object value;
+
+    @Setup
+    public void setup() throws JSONRPCException {
+        this.instance = "fast".equals(this.codec) ? JSONCodec.FAST : JSONCodec.ORG_JSON;
+        this.bytes = Payloads.message("requestV2", this.large).getBytes(StandardCharsets.UTF_8);
+        this.value = JSONCodec.ORG_JSON.decode(this.bytes, 0, this.bytes.length);
+    }
+
+    @Benchmark
+    public Object decode() throws JSONRPCException {
+        return this.instance.decode(this.bytes, 0, this.bytes.length);
+    }
+
+    @Benchmark
+    public String encode() throws JSONRPCException {
+        return this.instance.encode(this.value);
+    }
+
+}
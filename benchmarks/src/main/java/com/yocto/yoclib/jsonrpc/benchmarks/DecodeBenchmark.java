@@ -0,0 +1,42 @@
+package com.yocto.yoclib.jsonrpc.benchmarks;
+
+import com.yocto.yoclib.jsonrpc.JSONRPCException;
+import com.yocto.yoclib.jsonrpc.Message;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"false", "true"})
+    public boolean large;
+
+    private String json;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        this.json = Payloads.message("requestV2", this.large);
+        this.bytes = this.json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object decodeString() throws JSONRPCException {
+        return Message.decodeJSON(this.json);
+    }
+
+    @Benchmark
+    public Object decodeInputStream() throws JSONRPCException {
+        return Message.decodeJSON(new ByteArrayInputStream(this.bytes));
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.yocto.yoclib.jsonrpc.benchmarks;
+
+import com.yocto.yoclib.jsonrpc.JSONRPCException;
+import com.yocto.yoclib.jsonrpc.Message;
+import com.yocto.yoclib.jsonrpc.MessageBuilder;
+import com.yocto.yoclib.jsonrpc.ResponseTemplates;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodeBenchmark {
+
+    @Param({"false", "true"})
+    public boolean large;
+
+    private Object result;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        this.result = this.large ? Payloads.largePayload() : new JSONObject().put("payments", 42);
+        this.buffer = ByteBuffer.allocateDirect(64 * 1024);
+    }
+
+    @Benchmark
+    public byte[] createAndEncodeResponse() throws JSONRPCException {
+        return Message.encodeJSON(Message.createResponseMessageV2(123, this.result).toObject()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer createAndEncodeResponseToBuffer() throws JSONRPCException {
+        this.buffer.clear();
+        Message.encodeJSON(Message.createResponseMessageV2(123, this.result).toObject(), this.buffer);
+        return this.buffer;
+    }
+
+    @Benchmark
+    public byte[] createAndEncodeError() throws JSONRPCException {
+        return Message.encodeJSON(Message.createResponseMessageV2(123, null, new JSONObject().put("code", -32601).put("message", "Method not found")).toObject()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeResultTemplate() throws JSONRPCException {
+        return ResponseTemplates.encodeResult(123, this.result);
+    }
+
+    @Benchmark
+    public ByteBuffer writeResultBuilder() throws JSONRPCException {
+        this.buffer.clear();
+        MessageBuilder.get().id(123).result(this.result).writeTo(this.buffer);
+        return this.buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer writeErrorBuilder() throws JSONRPCException {
+        this.buffer.clear();
+        MessageBuilder.get().id(123).error(JSONRPCException.METHOD_NOT_FOUND, "Method not found").writeTo(this.buffer);
+        return this.buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer writeErrorTemplate() {
+        this.buffer.clear();
+        ResponseTemplates.writeError(JSONRPCException.METHOD_NOT_FOUND, 123, this.buffer);
+        return this.buffer;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.yocto.yoclib.jsonrpc.benchmarks;
+
+import com.yocto.yoclib.jsonrpc.JSONRPCException;
+import com.yocto.yoclib.jsonrpc.Message;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the tokenizer and tree based path with the fused and lazy parsers, per message kind.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"requestV1", "requestV2", "notificationV2", "responseV2", "errorV2"})
+    public String kind;
+
+    @Param({"false", "true"})
+    public boolean large;
+
+    private String json;
+    private byte[] bytes;
+    private Object decoded;
+
+    @Setup
+    public void setup() throws JSONRPCException {
+        this.json = Payloads.message(this.kind, this.large);
+        this.bytes = this.json.getBytes(StandardCharsets.UTF_8);
+        this.decoded = Message.decodeJSON(this.json);
+    }
+
+    @Benchmark
+    public Message decodeAndParseObject() throws JSONRPCException {
+        return Message.parseObject(Message.decodeJSON(this.json));
+    }
+
+    @Benchmark
+    public Message validateObject() throws JSONRPCException {
+        return Message.parseObject(this.decoded);
+    }
+
+    @Benchmark
+    public Message parseJSON() throws JSONRPCException {
+        return Message.parseJSON(this.bytes);
+    }
+
+    @Benchmark
+    public Message parseJSONLazy() throws JSONRPCException {
+        return Message.parseJSONLazy(this.bytes);
+    }
+
+}
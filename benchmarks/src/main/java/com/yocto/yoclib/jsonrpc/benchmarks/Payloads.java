@@ -0,0 +1,65 @@
+package com.yocto.yoclib.jsonrpc.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Representative message texts shared by the benchmarks.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * @param kind One of requestV1, requestV2, notificationV2, responseV2, errorV2
+     * @param large Whether to use a large payload
+     * @return The message text
+     */
+    static String message(String kind, boolean large) {
+        String payload = large ? Payloads.largePayload().toString() : "[\"payments\",42]";
+        switch (kind) {
+            case "requestV1":
+                return "{\"id\":123,\"method\":\"getInfo\",\"params\":" + payload + "}";
+            case "requestV2":
+                return "{\"jsonrpc\":\"2.0\",\"id\":123,\"method\":\"getInfo\",\"params\":" + payload + "}";
+            case "notificationV2":
+                return "{\"jsonrpc\":\"2.0\",\"method\":\"notificationEvent\",\"params\":" + payload + "}";
+            case "responseV2":
+                return "{\"jsonrpc\":\"2.0\",\"id\":123,\"result\":" + payload + "}";
+            case "errorV2":
+                return "{\"jsonrpc\":\"2.0\",\"id\":123,\"error\":{\"code\":-32601,\"message\":\"Method not found\",\"data\":" + payload + "}}";
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+    }
+
+    /**
+     * @param size The number of elements
+     * @param large Whether to use large params
+     * @return The batch text
+     */
+    static String batch(int size, boolean large) {
+        StringBuilder builder = new StringBuilder("[");
+        String params = large ? Payloads.largePayload().toString() : "[\"payments\",42]";
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"getInfo\",\"params\":").append(params).append('}');
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * @return A payload of about 10 KB
+     */
+    static JSONObject largePayload() {
+        JSONArray payments = new JSONArray();
+        for (int i = 0; i < 100; i++) {
+            payments.put(new JSONObject().put("id", i).put("amount", "$" + i + ".99").put("currency", "EUR").put("settled", i % 2 == 0).put("ratio", 0.25 * i));
+        }
+        return new JSONObject().put("account", "NL00BANK0123456789").put("payments", payments);
+    }
+
+}
@@ -0,0 +1,360 @@
+package com.yocto.yoclib.jsonrpc.processor;
+
+import com.yocto.yoclib.jsonrpc.JSONRPCException;
+import com.yocto.yoclib.jsonrpc.JSONRPCMethod;
+import com.yocto.yoclib.jsonrpc.JSONRPCService;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a client and a skeleton for every interface annotated with {@link JSONRPCService}.
+ * <p>
+ * For an interface {@code Calculator}, {@code CalculatorClient} implements it by sending V2 requests over a
+ * {@code ServiceTransport}, and {@code CalculatorSkeleton.register(dispatcher, service)} registers a handler per method
+ * with a {@code Dispatcher}. Params are sent positionally and accepted positionally or by Java parameter name. Every
+ * param and result is converted by a call to the {@code ServiceSupport} method of its declared type, so no reflection
+ * or dynamic proxy is involved at runtime.
+ */
+@SupportedAnnotationTypes("com.yocto.yoclib.jsonrpc.JSONRPCService")
+public class ServiceProcessor extends AbstractProcessor {
+
+    private static final String SUPPORT = "com.yocto.yoclib.jsonrpc.ServiceSupport";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(JSONRPCService.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                this.error(element, "Only interfaces can be annotated with @JSONRPCService.");
+                continue;
+            }
+            TypeElement service = (TypeElement) element;
+            if (!service.getTypeParameters().isEmpty()) {
+                this.error(service, "A @JSONRPCService MUST NOT have type parameters.");
+                continue;
+            }
+            List<ServiceMethod> methods = this.methods(service);
+            if (methods == null) {
+                continue;
+            }
+            try {
+                this.writeClient(service, methods);
+                this.writeSkeleton(service, methods);
+            } catch (IOException e) {
+                this.error(service, "Failed to generate sources: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param service The service interface
+     * @return The methods, or null if any of them is invalid
+     */
+    private List<ServiceMethod> methods(TypeElement service) {
+        String prefix = service.getAnnotation(JSONRPCService.class).prefix();
+        TypeMirror exception = this.processingEnv.getElementUtils().getTypeElement(JSONRPCException.class.getCanonicalName()).asType();
+        TypeMirror unchecked = this.processingEnv.getElementUtils().getTypeElement(RuntimeException.class.getCanonicalName()).asType();
+        TypeMirror error = this.processingEnv.getElementUtils().getTypeElement(Error.class.getCanonicalName()).asType();
+        List<ServiceMethod> methods = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        boolean valid = true;
+        for (ExecutableElement method : ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(service))) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT) || method.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            JSONRPCMethod annotation = method.getAnnotation(JSONRPCMethod.class);
+            String name = prefix + (annotation != null && !annotation.value().isEmpty() ? annotation.value() : method.getSimpleName().toString());
+            boolean notification = annotation != null && annotation.notification();
+            ServiceMethod serviceMethod = new ServiceMethod(method, name, notification);
+            if (!names.add(name)) {
+                this.error(method, "The method name \"" + name + "\" is used more than once.");
+                valid = false;
+            }
+            if (!method.getTypeParameters().isEmpty()) {
+                this.error(method, "A method of a @JSONRPCService MUST NOT have type parameters.");
+                valid = false;
+            }
+            if (!this.declares(method, exception)) {
+                this.error(method, "A method of a @JSONRPCService MUST declare JSONRPCException.");
+                valid = false;
+            }
+            for (TypeMirror thrown : method.getThrownTypes()) {
+                // The skeleton only propagates JSONRPCException, so any other checked exception would not compile
+                if (!this.processingEnv.getTypeUtils().isSubtype(thrown, exception) && !this.processingEnv.getTypeUtils().isSubtype(thrown, unchecked) && !this.processingEnv.getTypeUtils().isSubtype(thrown, error)) {
+                    this.error(method, "A method of a @JSONRPCService MUST NOT declare the checked exception " + thrown + ".");
+                    valid = false;
+                }
+            }
+            if (notification && method.getReturnType().getKind() != TypeKind.VOID) {
+                this.error(method, "A notification method MUST return void.");
+                valid = false;
+            }
+            if (method.getReturnType().getKind() != TypeKind.VOID && (serviceMethod.result = this.conversion(method.getReturnType())) == null) {
+                this.error(method, "Unsupported result type " + method.getReturnType() + ".");
+                valid = false;
+            }
+            for (VariableElement parameter : method.getParameters()) {
+                Conversion conversion = this.conversion(parameter.asType());
+                if (conversion == null) {
+                    this.error(parameter, "Unsupported param type " + parameter.asType() + ".");
+                    valid = false;
+                }
+                serviceMethod.params.add(conversion);
+            }
+            methods.add(serviceMethod);
+        }
+        return valid ? methods : null;
+    }
+
+    private boolean declares(ExecutableElement method, TypeMirror exception) {
+        for (TypeMirror thrown : method.getThrownTypes()) {
+            if (this.processingEnv.getTypeUtils().isSubtype(exception, thrown)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param type The declared type of a param or result
+     * @return The conversion, or null if the type is not supported
+     */
+    private Conversion conversion(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            String suffix = ServiceProcessor.suffix(type.getKind());
+            return new Conversion(type.toString(), SUPPORT + ".to" + suffix + "(%1$s, %2$s)", type.getKind() == TypeKind.CHAR ? "String.valueOf(%1$s)" : "%1$s");
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        String name = this.processingEnv.getTypeUtils().erasure(type).toString();
+        if (((DeclaredType) type).asElement().getKind() == ElementKind.ENUM) {
+            return new Conversion(name, SUPPORT + ".toEnum(" + name + ".class, %1$s, %2$s)", SUPPORT + ".fromEnum(%1$s)");
+        }
+        switch (name) {
+            case "java.lang.String":
+            case "java.math.BigDecimal":
+            case "java.math.BigInteger":
+            case "java.lang.Object":
+            case "org.json.JSONObject":
+            case "org.json.JSONArray":
+                return new Conversion(name, SUPPORT + ".to" + name.substring(name.lastIndexOf('.') + 1) + "(%1$s, %2$s)", SUPPORT + ".fromObject(%1$s)");
+            default:
+                TypeMirror unboxed;
+                try {
+                    unboxed = this.processingEnv.getTypeUtils().unboxedType(type);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+                String decode = SUPPORT + ".isNull(%1$s) ? null : " + SUPPORT + ".to" + ServiceProcessor.suffix(unboxed.getKind()) + "(%1$s, %2$s)";
+                return new Conversion(name, decode, SUPPORT + ".fromObject(" + (unboxed.getKind() == TypeKind.CHAR ? "%1$s != null ? %1$s.toString() : null" : "%1$s") + ")");
+        }
+    }
+
+    private static String suffix(TypeKind kind) {
+        String name = kind.name();
+        return name.charAt(0) + name.substring(1).toLowerCase();
+    }
+
+    private void writeClient(TypeElement service, List<ServiceMethod> methods) throws IOException {
+        String packageName = this.packageName(service);
+        String className = this.generatedName(service, "Client");
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(ServiceProcessor.qualify(packageName, className), service).openWriter()) {
+            StringBuilder out = new StringBuilder();
+            ServiceProcessor.header(out, packageName);
+            out.append("/**\n * Client of {@link ").append(service.getQualifiedName()).append("}, sending V2 requests over a transport.\n */\n");
+            out.append("public final class ").append(className).append(" implements ").append(service.getQualifiedName()).append(" {\n\n");
+            out.append("    private final com.yocto.yoclib.jsonrpc.ServiceTransport transport;\n");
+            out.append("    private final java.util.concurrent.atomic.AtomicLong ids = new java.util.concurrent.atomic.AtomicLong(1);\n\n");
+            out.append("    /**\n     * @param transport The transport\n     */\n");
+            out.append("    public ").append(className).append("(com.yocto.yoclib.jsonrpc.ServiceTransport transport) {\n");
+            out.append("        this.transport = transport;\n");
+            out.append("    }\n");
+            for (ServiceMethod method : methods) {
+                out.append("\n    @Override\n    public ").append(method.element.getReturnType()).append(' ').append(method.element.getSimpleName()).append('(');
+                List<? extends VariableElement> parameters = method.element.getParameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    out.append(i > 0 ? ", " : "").append(parameters.get(i).asType()).append(' ').append(parameters.get(i).getSimpleName());
+                }
+                out.append(") throws com.yocto.yoclib.jsonrpc.JSONRPCException {\n");
+                String params = "";
+                if (!parameters.isEmpty()) {
+                    out.append("        org.json.JSONArray $params = new org.json.JSONArray(").append(parameters.size()).append(')');
+                    for (int i = 0; i < parameters.size(); i++) {
+                        out.append("\n                .put(").append(String.format(method.params.get(i).encode, parameters.get(i).getSimpleName())).append(')');
+                    }
+                    out.append(";\n");
+                    params = ", $params";
+                }
+                if (method.notification) {
+                    out.append("        this.transport.send(com.yocto.yoclib.jsonrpc.Message.createNotificationMessageV2(").append(ServiceProcessor.literal(method.name)).append(params).append("));\n");
+                } else {
+                    out.append("        com.yocto.yoclib.jsonrpc.ResponseMessage $response = this.transport.send(com.yocto.yoclib.jsonrpc.Message.createRequestMessageV2WithLongId(this.ids.getAndIncrement(), ").append(ServiceProcessor.literal(method.name)).append(params).append("));\n");
+                    if (method.result == null) {
+                        out.append("        ").append(SUPPORT).append(".result($response);\n");
+                    } else {
+                        out.append("        Object $result = ").append(SUPPORT).append(".result($response);\n");
+                        out.append("        return ").append(String.format(method.result.decode, "$result", "null")).append(";\n");
+                    }
+                }
+                out.append("    }\n");
+            }
+            out.append("\n}\n");
+            writer.write(out.toString());
+        }
+    }
+
+    private void writeSkeleton(TypeElement service, List<ServiceMethod> methods) throws IOException {
+        String packageName = this.packageName(service);
+        String className = this.generatedName(service, "Skeleton");
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(ServiceProcessor.qualify(packageName, className), service).openWriter()) {
+            StringBuilder out = new StringBuilder();
+            ServiceProcessor.header(out, packageName);
+            out.append("/**\n * Registers an implementation of {@link ").append(service.getQualifiedName()).append("} with a dispatcher.\n */\n");
+            out.append("public final class ").append(className).append(" {\n\n");
+            for (int m = 0; m < methods.size(); m++) {
+                out.append("    private static final String[] PARAMS_").append(m).append(" = {");
+                List<? extends VariableElement> parameters = methods.get(m).element.getParameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    out.append(i > 0 ? ", " : "").append('"').append(parameters.get(i).getSimpleName()).append('"');
+                }
+                out.append("};\n");
+            }
+            out.append("\n    private ").append(className).append("() {\n    }\n\n");
+            out.append("    /**\n     * @param dispatcher The dispatcher\n     * @param service The implementation\n     * @return The dispatcher\n     */\n");
+            out.append("    public static com.yocto.yoclib.jsonrpc.Dispatcher register(com.yocto.yoclib.jsonrpc.Dispatcher dispatcher, ").append(service.getQualifiedName()).append(" service) {\n");
+            for (int m = 0; m < methods.size(); m++) {
+                ServiceMethod method = methods.get(m);
+                List<? extends VariableElement> parameters = method.element.getParameters();
+                out.append("        dispatcher.register(").append(ServiceProcessor.literal(method.name)).append(", message -> {\n");
+                out.append("            Object[] params = ").append(SUPPORT).append(".params(message.getParams(), PARAMS_").append(m).append(");\n");
+                StringBuilder call = new StringBuilder("service.").append(method.element.getSimpleName()).append('(');
+                for (int i = 0; i < parameters.size(); i++) {
+                    call.append(i > 0 ? ", " : "").append(String.format(method.params.get(i).decode, "params[" + i + "]", '"' + parameters.get(i).getSimpleName().toString() + '"'));
+                }
+                call.append(')');
+                if (method.result == null) {
+                    out.append("            ").append(call).append(";\n");
+                    out.append("            return null;\n");
+                } else {
+                    out.append("            ").append(method.result.type).append(" result = ").append(call).append(";\n");
+                    out.append("            return ").append(String.format(method.result.encode, "result")).append(";\n");
+                }
+                out.append("        });\n");
+            }
+            out.append("        return dispatcher;\n");
+            out.append("    }\n\n}\n");
+            writer.write(out.toString());
+        }
+    }
+
+    private String packageName(TypeElement service) {
+        return this.processingEnv.getElementUtils().getPackageOf(service).getQualifiedName().toString();
+    }
+
+    /**
+     * @param service The service interface
+     * @param suffix The suffix
+     * @return The simple name, nested interfaces joined by underscores
+     */
+    private String generatedName(TypeElement service, String suffix) {
+        String binaryName = this.processingEnv.getElementUtils().getBinaryName(service).toString();
+        String packageName = this.packageName(service);
+        return (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_') + suffix;
+    }
+
+    private static String qualify(String packageName, String className) {
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    private static void header(StringBuilder out, String packageName) {
+        out.append("// Generated by ").append(ServiceProcessor.class.getName()).append(", do not edit.\n");
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n");
+        }
+        out.append('\n');
+    }
+
+    private static String literal(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * The code converting a value of one declared type. The decode format takes the JSON value and the param name
+     * literal ({@code null} for a result), the encode format takes the Java value.
+     */
+    private static final class Conversion {
+
+        private final String type;
+        private final String decode;
+        private final String encode;
+
+        private Conversion(String type, String decode, String encode) {
+            this.type = type;
+            this.decode = decode;
+            this.encode = encode;
+        }
+
+    }
+
+    private static final class ServiceMethod {
+
+        private final ExecutableElement element;
+        private final String name;
+        private final boolean notification;
+        private final List<Conversion> params = new ArrayList<>();
+
+        /**
+         * Null for a void method.
+         */
+        private Conversion result;
+
+        private ServiceMethod(ExecutableElement element, String name, boolean notification) {
+            this.element = element;
+            this.name = name;
+            this.notification = notification;
+        }
+
+    }
+
+}
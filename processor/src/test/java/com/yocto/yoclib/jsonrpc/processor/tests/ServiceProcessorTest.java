@@ -0,0 +1,200 @@
+package com.yocto.yoclib.jsonrpc.processor.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+import com.yocto.yoclib.jsonrpc.processor.ServiceProcessor;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceProcessorTest{
+
+    public enum Unit{
+        METER,FOOT
+    }
+
+    @JSONRPCService(prefix="calc.")
+    public interface Calculator{
+
+        int sum(int a,int b) throws JSONRPCException;
+
+        Integer maybe(boolean present) throws JSONRPCException;
+
+        BigDecimal divide(BigDecimal a,BigDecimal b) throws JSONRPCException;
+
+        Unit convert(Unit unit,char code,Character optional) throws JSONRPCException;
+
+        @JSONRPCMethod("echoAll")
+        JSONArray echo(JSONObject object,Object any,long big) throws JSONRPCException;
+
+        @JSONRPCMethod(notification=true)
+        void log(String line) throws JSONRPCException;
+
+    }
+
+    public static class CalculatorImpl implements Calculator{
+
+        private final List<String> lines = new ArrayList<>();
+
+        @Override
+        public int sum(int a,int b){
+            return a+b;
+        }
+
+        @Override
+        public Integer maybe(boolean present){
+            return present?42:null;
+        }
+
+        @Override
+        public BigDecimal divide(BigDecimal a,BigDecimal b) throws JSONRPCException{
+            if(b.signum()==0){
+                throw new JSONRPCException("Division by zero.",1);
+            }
+            return a.divide(b);
+        }
+
+        @Override
+        public Unit convert(Unit unit,char code,Character optional){
+            return code=='f' && optional==null?Unit.FOOT:unit;
+        }
+
+        @Override
+        public JSONArray echo(JSONObject object,Object any,long big){
+            return new JSONArray().put(object).put(any).put(big);
+        }
+
+        @Override
+        public void log(String line){
+            this.lines.add(line);
+        }
+
+    }
+
+    @Test
+    public void testRoundTrip() throws JSONRPCException{
+        CalculatorImpl impl = new CalculatorImpl();
+        Dispatcher dispatcher = ServiceProcessorTest_CalculatorSkeleton.register(new Dispatcher(),impl);
+        Calculator client = new ServiceProcessorTest_CalculatorClient(dispatcher::dispatch);
+
+        assertEquals(5,client.sum(2,3));
+        assertEquals(42,client.maybe(true));
+        assertNull(client.maybe(false));
+        assertEquals(new BigDecimal("2.5"),client.divide(new BigDecimal("5"),new BigDecimal("2")));
+        assertEquals(Unit.FOOT,client.convert(Unit.METER,'f',null));
+        assertEquals(Unit.METER,client.convert(Unit.METER,'f','x'));
+        assertEquals(10000000000L,client.echo(new JSONObject().put("a",1),"x",10000000000L).getLong(2));
+
+        client.log("line");
+
+        assertEquals(Collections.singletonList("line"),impl.lines);
+
+        JSONRPCException e = assertThrows(JSONRPCException.class,() -> client.divide(BigDecimal.ONE,BigDecimal.ZERO));
+
+        assertEquals(1,e.getCode());
+        assertEquals("Division by zero.",e.getMessage());
+    }
+
+    @Test
+    public void testSkeletonParams() throws JSONRPCException{
+        Dispatcher dispatcher = ServiceProcessorTest_CalculatorSkeleton.register(new Dispatcher(),new CalculatorImpl());
+
+        assertEquals(7,this.call(dispatcher,"calc.sum",new JSONObject().put("b",3).put("a",4)).getResult());
+        assertEquals("FOOT",this.call(dispatcher,"calc.convert",new JSONArray().put("METER").put("f")).getResult());
+        assertEquals(JSONObject.NULL,this.call(dispatcher,"calc.maybe",new JSONArray().put(false)).getResult());
+        assertEquals(JSONRPCException.INVALID_PARAMS,this.call(dispatcher,"calc.sum",new JSONArray().put(1)).getErrorCode());
+        assertEquals(JSONRPCException.INVALID_PARAMS,this.call(dispatcher,"calc.sum",new JSONArray().put(1).put("2")).getErrorCode());
+        assertEquals(JSONRPCException.INVALID_PARAMS,this.call(dispatcher,"calc.sum",new JSONArray().put(1).put(2).put(3)).getErrorCode());
+        assertEquals(JSONRPCException.INVALID_PARAMS,this.call(dispatcher,"calc.sum",new JSONObject().put("c",1)).getErrorCode());
+        assertEquals(JSONRPCException.INVALID_PARAMS,this.call(dispatcher,"calc.convert",new JSONArray().put("INCH").put("f")).getErrorCode());
+        assertEquals(JSONRPCException.METHOD_NOT_FOUND,this.call(dispatcher,"calc.echo",null).getErrorCode());
+        assertNotNull(dispatcher.getHandler("calc.echoAll"));
+    }
+
+    private ResponseMessage call(Dispatcher dispatcher,String method,Object params) throws JSONRPCException{
+        return dispatcher.dispatch(Message.createRequestMessageV2(1,method,params));
+    }
+
+    @Test
+    public void testErrors() throws Exception{
+        List<String> errors = this.compile("package test;\n"
+                +"import com.yocto.yoclib.jsonrpc.*;\n"
+                +"@JSONRPCService\n"
+                +"public interface Broken{\n"
+                +"    int missingThrows();\n"
+                +"    void list(java.util.List<String> list) throws JSONRPCException;\n"
+                +"    @JSONRPCMethod(notification=true) int notify() throws JSONRPCException;\n"
+                +"    @JSONRPCMethod(\"list\") void other() throws JSONRPCException;\n"
+                +"}\n");
+
+        assertEquals(Arrays.asList(
+                "A method of a @JSONRPCService MUST declare JSONRPCException.",
+                "Unsupported param type java.util.List<java.lang.String>.",
+                "A notification method MUST return void.",
+                "The method name \"list\" is used more than once."
+        ),errors);
+    }
+
+    @Test
+    public void testOtherCheckedExceptions() throws Exception{
+        List<String> errors = this.compile("package test;\n"
+                +"import com.yocto.yoclib.jsonrpc.*;\n"
+                +"@JSONRPCService\n"
+                +"public interface Broken{\n"
+                +"    int read(String path) throws JSONRPCException,java.io.IOException;\n"
+                +"    int any() throws Exception;\n"
+                +"    int unchecked() throws JSONRPCException,IllegalStateException,AssertionError;\n"
+                +"}\n");
+
+        assertEquals(Arrays.asList(
+                "A method of a @JSONRPCService MUST NOT declare the checked exception java.io.IOException.",
+                "A method of a @JSONRPCService MUST NOT declare the checked exception java.lang.Exception."
+        ),errors);
+    }
+
+    private List<String> compile(String source) throws Exception{
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Path output = Files.createTempDirectory("processor");
+        String classPath = new File(Message.class.getProtectionDomain().getCodeSource().getLocation().toURI())+File.pathSeparator+new File(JSONObject.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///test/Broken.java"),JavaFileObject.Kind.SOURCE){
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors){
+                return source;
+            }
+        };
+        JavaCompiler.CompilationTask task = compiler.getTask(null,null,diagnostics,Arrays.asList("-classpath",classPath,"-d",output.toString(),"-encoding",StandardCharsets.UTF_8.name()),null,Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new ServiceProcessor()));
+
+        assertFalse(task.call());
+
+        List<String> errors = new ArrayList<>();
+        for(Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()){
+            if(diagnostic.getKind()==Diagnostic.Kind.ERROR){
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        return errors;
+    }
+
+}
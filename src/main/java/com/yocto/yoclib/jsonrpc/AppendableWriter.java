@@ -0,0 +1,51 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Adapts an {@link Appendable} to a {@link Writer}, without intermediate buffering.
+ */
+final class AppendableWriter extends Writer {
+
+    private final Appendable appendable;
+
+    /**
+     * @param appendable The appendable
+     */
+    AppendableWriter(Appendable appendable) {
+        this.appendable = appendable;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        this.appendable.append((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            this.appendable.append(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        this.appendable.append(string, offset, offset + length);
+    }
+
+    @Override
+    public Writer append(CharSequence sequence) throws IOException {
+        this.appendable.append(sequence);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes characters as UTF-8 directly into a (possibly direct) byte buffer.
+ */
+final class ByteBufferWriter extends Writer {
+
+    private final ByteBuffer buffer;
+
+    private char highSurrogate;
+    private boolean overflow;
+
+    /**
+     * @param buffer The buffer
+     */
+    ByteBufferWriter(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return True if the buffer ran out of space, false if not.
+     */
+    boolean isOverflow() {
+        return this.overflow;
+    }
+
+    @Override
+    public void write(int c) {
+        this.write((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            this.write(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            this.write(string.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (this.highSurrogate != 0) {
+            this.highSurrogate = 0;
+            this.unpaired();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void write(char c) {
+        if (this.highSurrogate != 0) {
+            char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                this.require(4);
+                this.buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                this.buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                this.buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                this.buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                return;
+            }
+            this.unpaired();
+        }
+        if (c < 0x80) {
+            this.require(1);
+            this.buffer.put((byte) c);
+        } else if (c < 0x800) {
+            this.require(2);
+            this.buffer.put((byte) (0xC0 | (c >> 6)));
+            this.buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            this.highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            this.unpaired();
+        } else {
+            this.require(3);
+            this.buffer.put((byte) (0xE0 | (c >> 12)));
+            this.buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            this.buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    /**
+     * Writes the replacement for an unpaired surrogate, like {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    private void unpaired() {
+        this.require(1);
+        this.buffer.put((byte) '?');
+    }
+
+    private void require(int bytes) {
+        if (this.buffer.remaining() < bytes) {
+            this.overflow = true;
+            throw new BufferOverflowException();
+        }
+    }
+
+}
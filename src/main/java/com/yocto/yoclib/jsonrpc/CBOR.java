@@ -0,0 +1,514 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the values messages are made of as CBOR (RFC 8949), so messages can be exchanged without
+ * converting numbers to and from text.
+ * <p>
+ * Objects become maps with text keys, arrays become arrays and {@code byte[]} values become byte strings, which
+ * decode back to {@code byte[]}. Integers are decoded to the narrowest of {@link Integer}, {@link Long} and
+ * {@link BigInteger}, like the JSON decoder does. Integers beyond 64 bits are written as bignums (tags 2 and 3) and
+ * {@link BigDecimal} values as decimal fractions (tag 4), so they keep their exact value and scale. Other tags are
+ * skipped and undefined decodes to {@link JSONObject#NULL}. NaN and infinite floats are rejected, as JSON has no
+ * representation for them.
+ */
+final class CBOR {
+
+    private static final int MAX_DEPTH = 512;
+
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1 << 5;
+    private static final int BYTES = 2 << 5;
+    private static final int TEXT = 3 << 5;
+    private static final int ARRAY = 4 << 5;
+    private static final int MAP = 5 << 5;
+    private static final int TAG = 6 << 5;
+    private static final int SIMPLE = 7 << 5;
+
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int UNDEFINED = 0xF7;
+    private static final int HALF = 0xF9;
+    private static final int FLOAT = 0xFA;
+    private static final int DOUBLE = 0xFB;
+    private static final int BREAK = 0xFF;
+
+    private static final int TAG_POSITIVE_BIGNUM = 2;
+    private static final int TAG_NEGATIVE_BIGNUM = 3;
+    private static final int TAG_DECIMAL_FRACTION = 4;
+
+    private static final BigInteger UNSIGNED_LONG_LIMIT = BigInteger.ONE.shiftLeft(64);
+
+    private byte[] bytes;
+    private int position;
+    private final int end;
+
+    private CBOR(byte[] bytes, int position, int end) {
+        this.bytes = bytes;
+        this.position = position;
+        this.end = end;
+    }
+
+    /**
+     * @param value The value
+     * @return The CBOR encoding
+     * @throws JSONRPCException If the value can not be encoded
+     */
+    static byte[] encode(Object value) throws JSONRPCException {
+        CBOR writer = new CBOR(new byte[64], 0, 0);
+        writer.write(value, 0);
+        return Arrays.copyOf(writer.bytes, writer.position);
+    }
+
+    /**
+     * @param bytes CBOR
+     * @param offset The offset
+     * @param length The length
+     * @return The value
+     * @throws JSONRPCException A {@link JSONRPCException#PARSE_ERROR} if the input is not a single well-formed item
+     */
+    static Object decode(byte[] bytes, int offset, int length) throws JSONRPCException {
+        CBOR reader = new CBOR(bytes, offset, offset + length);
+        Object value = reader.read(0);
+        if (value == null || reader.position != reader.end) {
+            throw CBOR.decodeError();
+        }
+        return value;
+    }
+
+    private void write(Object value, int depth) throws JSONRPCException {
+        if (depth > MAX_DEPTH) {
+            throw CBOR.encodeError();
+        }
+        if (value == null || JSONObject.NULL.equals(value)) {
+            this.writeByte(NULL);
+        } else if (value instanceof String) {
+            this.writeText((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            this.writeLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            this.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            this.writeHead(MAP, object.length());
+            for (String key : object.keySet()) {
+                this.writeText(key);
+                this.write(object.opt(key), depth + 1);
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            this.writeHead(ARRAY, array.length());
+            for (Object element : array) {
+                this.write(element, depth + 1);
+            }
+        } else if (value instanceof Double) {
+            this.writeByte(DOUBLE);
+            this.writeBits(Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof Float) {
+            this.writeByte(FLOAT);
+            this.writeBits(Float.floatToIntBits((Float) value), 4);
+        } else if (value instanceof BigInteger) {
+            this.writeBigInteger((BigInteger) value);
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            this.writeHead(TAG, TAG_DECIMAL_FRACTION);
+            this.writeHead(ARRAY, 2);
+            this.writeLong(-(long) decimal.scale());
+            this.writeBigInteger(decimal.unscaledValue());
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            this.writeHead(BYTES, bytes.length);
+            this.writeBytes(bytes, 0, bytes.length);
+        } else if (value instanceof RawJSON) {
+            this.write(((RawJSON) value).getValue(), depth);
+        } else if (value instanceof JSONString) {
+            this.write(JSONCodec.FAST.decode(JSONObject.valueToString(value)), depth);
+        } else if (value instanceof Enum) {
+            this.writeText(((Enum<?>) value).name());
+        } else if (value instanceof Map) {
+            this.write(new JSONObject((Map<?, ?>) value), depth);
+        } else if (value instanceof Collection) {
+            this.write(new JSONArray((Collection<?>) value), depth);
+        } else {
+            throw CBOR.encodeError();
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value >= 0) {
+            this.writeHead(UNSIGNED, value);
+        } else {
+            this.writeHead(NEGATIVE, ~value);
+        }
+    }
+
+    private void writeBigInteger(BigInteger value) {
+        if (value.bitLength() <= 63) {
+            this.writeLong(value.longValue());
+            return;
+        }
+        boolean negative = value.signum() < 0;
+        BigInteger magnitude = negative ? value.not() : value;
+        if (magnitude.compareTo(UNSIGNED_LONG_LIMIT) < 0) {
+            this.writeHead(negative ? NEGATIVE : UNSIGNED, magnitude.longValue());
+            return;
+        }
+        byte[] bytes = magnitude.toByteArray();
+        // Drops the sign byte of the two's complement representation
+        int offset = bytes[0] == 0 ? 1 : 0;
+        this.writeHead(TAG, negative ? TAG_NEGATIVE_BIGNUM : TAG_POSITIVE_BIGNUM);
+        this.writeHead(BYTES, bytes.length - offset);
+        this.writeBytes(bytes, offset, bytes.length - offset);
+    }
+
+    private void writeText(String text) {
+        int length = text.length();
+        int ascii = 0;
+        while (ascii < length && text.charAt(ascii) < 0x80) {
+            ascii++;
+        }
+        if (ascii == length) {
+            this.writeHead(TEXT, length);
+            this.ensure(length);
+            for (int i = 0; i < length; i++) {
+                this.bytes[this.position++] = (byte) text.charAt(i);
+            }
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        this.writeHead(TEXT, bytes.length);
+        this.writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param major The major type, shifted
+     * @param argument The argument, as an unsigned value
+     */
+    private void writeHead(int major, long argument) {
+        if (argument >= 0 && argument < 24) {
+            this.writeByte(major | (int) argument);
+        } else if (argument >= 0 && argument <= 0xFF) {
+            this.writeByte(major | 24);
+            this.writeBits(argument, 1);
+        } else if (argument >= 0 && argument <= 0xFFFF) {
+            this.writeByte(major | 25);
+            this.writeBits(argument, 2);
+        } else if (argument >= 0 && argument <= 0xFFFFFFFFL) {
+            this.writeByte(major | 26);
+            this.writeBits(argument, 4);
+        } else {
+            this.writeByte(major | 27);
+            this.writeBits(argument, 8);
+        }
+    }
+
+    private void writeBits(long bits, int count) {
+        this.ensure(count);
+        for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+            this.bytes[this.position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    private void writeByte(int b) {
+        this.ensure(1);
+        this.bytes[this.position++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) {
+        this.ensure(length);
+        System.arraycopy(bytes, offset, this.bytes, this.position, length);
+        this.position += length;
+    }
+
+    private void ensure(int count) {
+        if (this.position + count > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.position + count));
+        }
+    }
+
+    /**
+     * @param depth The nesting depth
+     * @return The value, or null for a break
+     */
+    private Object read(int depth) throws JSONRPCException {
+        if (depth > MAX_DEPTH) {
+            throw CBOR.decodeError();
+        }
+        int initial = this.readByte();
+        int major = initial & 0xE0;
+        int info = initial & 0x1F;
+        switch (major) {
+            case UNSIGNED:
+                return CBOR.narrow(this.readArgument(info), false);
+            case NEGATIVE:
+                return CBOR.narrow(this.readArgument(info), true);
+            case BYTES:
+                return this.readString(info, BYTES);
+            case TEXT:
+                return CBOR.utf8((byte[]) this.readString(info, TEXT));
+            case ARRAY: {
+                JSONArray array = new JSONArray();
+                long length = info == 31 ? -1 : this.readLength(info);
+                for (long i = 0; length < 0 || i < length; i++) {
+                    Object element = this.read(depth + 1);
+                    if (element == null) {
+                        if (length < 0) {
+                            break;
+                        }
+                        throw CBOR.decodeError();
+                    }
+                    array.put(element);
+                }
+                return array;
+            }
+            case MAP: {
+                JSONObject object = new JSONObject();
+                long length = info == 31 ? -1 : this.readLength(info);
+                for (long i = 0; length < 0 || i < length; i++) {
+                    Object key = this.read(depth + 1);
+                    if (key == null && length < 0) {
+                        break;
+                    }
+                    Object value = key instanceof String ? this.read(depth + 1) : null;
+                    if (value == null || object.has((String) key)) {
+                        throw CBOR.decodeError();
+                    }
+                    object.put((String) key, value);
+                }
+                return object;
+            }
+            case TAG: {
+                long tag = this.readArgument(info);
+                Object content = this.read(depth + 1);
+                if (content == null) {
+                    throw CBOR.decodeError();
+                }
+                return CBOR.tagged(tag, content);
+            }
+            default:
+                return this.readSimple(info);
+        }
+    }
+
+    private Object readSimple(int info) throws JSONRPCException {
+        switch (SIMPLE | info) {
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case NULL:
+            case UNDEFINED:
+                return JSONObject.NULL;
+            case HALF:
+                return CBOR.finite(CBOR.half((int) this.readBits(2)));
+            case FLOAT:
+                return CBOR.finite(Float.intBitsToFloat((int) this.readBits(4)));
+            case DOUBLE:
+                return CBOR.finite(Double.longBitsToDouble(this.readBits(8)));
+            case BREAK:
+                return null;
+            default:
+                throw CBOR.decodeError();
+        }
+    }
+
+    /**
+     * @param info The additional information of a byte or text string
+     * @param major The major type, chunks of an indefinite-length string must have the same one
+     * @return The bytes
+     */
+    private Object readString(int info, int major) throws JSONRPCException {
+        if (info != 31) {
+            int length = this.readLength(info);
+            byte[] bytes = Arrays.copyOfRange(this.bytes, this.position, this.position + length);
+            this.position += length;
+            return bytes;
+        }
+        // Grown geometrically, so many small chunks cost linear time; the chunks are part of the input, so the total
+        // can not exceed its length
+        byte[] bytes = new byte[16];
+        int total = 0;
+        for (;;) {
+            int initial = this.readByte();
+            if (initial == BREAK) {
+                return total == bytes.length ? bytes : Arrays.copyOf(bytes, total);
+            }
+            if ((initial & 0xE0) != major || (initial & 0x1F) == 31) {
+                throw CBOR.decodeError();
+            }
+            int length = this.readLength(initial & 0x1F);
+            if (total + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.max(total + length, Math.min(bytes.length * 2L, Integer.MAX_VALUE - 8)));
+            }
+            System.arraycopy(this.bytes, this.position, bytes, total, length);
+            total += length;
+            this.position += length;
+        }
+    }
+
+    /**
+     * @param info The additional information
+     * @return The length, checked against the remaining input
+     */
+    private int readLength(int info) throws JSONRPCException {
+        long length = this.readArgument(info);
+        if (length < 0 || length > this.end - this.position) {
+            throw CBOR.decodeError();
+        }
+        return (int) length;
+    }
+
+    /**
+     * @param info The additional information
+     * @return The argument, as an unsigned value
+     */
+    private long readArgument(int info) throws JSONRPCException {
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return this.readBits(1);
+            case 25:
+                return this.readBits(2);
+            case 26:
+                return this.readBits(4);
+            case 27:
+                return this.readBits(8);
+            default:
+                throw CBOR.decodeError();
+        }
+    }
+
+    private long readBits(int count) throws JSONRPCException {
+        if (this.end - this.position < count) {
+            throw CBOR.decodeError();
+        }
+        long bits = 0;
+        for (int i = 0; i < count; i++) {
+            bits = (bits << 8) | (this.bytes[this.position++] & 0xFF);
+        }
+        return bits;
+    }
+
+    private int readByte() throws JSONRPCException {
+        if (this.position >= this.end) {
+            throw CBOR.decodeError();
+        }
+        return this.bytes[this.position++] & 0xFF;
+    }
+
+    /**
+     * @param argument The unsigned argument of an integer
+     * @param negative Whether the integer is {@code -1 - argument}
+     * @return The narrowest integer
+     */
+    private static Number narrow(long argument, boolean negative) {
+        if (argument < 0) {
+            BigInteger unsigned = BigInteger.valueOf(argument).add(UNSIGNED_LONG_LIMIT);
+            return negative ? unsigned.not() : unsigned;
+        }
+        long value = negative ? ~argument : argument;
+        if (value == (int) value) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    private static Object tagged(long tag, Object content) throws JSONRPCException {
+        if (tag == TAG_POSITIVE_BIGNUM || tag == TAG_NEGATIVE_BIGNUM) {
+            if (!(content instanceof byte[])) {
+                throw CBOR.decodeError();
+            }
+            BigInteger magnitude = new BigInteger(1, (byte[]) content);
+            return CBOR.narrow(tag == TAG_NEGATIVE_BIGNUM ? magnitude.not() : magnitude);
+        }
+        if (tag == TAG_DECIMAL_FRACTION) {
+            if (!(content instanceof JSONArray) || ((JSONArray) content).length() != 2) {
+                throw CBOR.decodeError();
+            }
+            Object exponent = ((JSONArray) content).get(0);
+            Object mantissa = ((JSONArray) content).get(1);
+            // The scale is the negated exponent, which does not fit for Integer.MIN_VALUE
+            if (!(exponent instanceof Integer) || (Integer) exponent == Integer.MIN_VALUE || !(mantissa instanceof Integer || mantissa instanceof Long || mantissa instanceof BigInteger)) {
+                throw CBOR.decodeError();
+            }
+            BigInteger unscaled = mantissa instanceof BigInteger ? (BigInteger) mantissa : BigInteger.valueOf(((Number) mantissa).longValue());
+            return new BigDecimal(unscaled, -(Integer) exponent);
+        }
+        return content;
+    }
+
+    private static Number narrow(BigInteger value) {
+        if (value.bitLength() <= 31) {
+            return value.intValue();
+        }
+        if (value.bitLength() <= 63) {
+            return value.longValue();
+        }
+        return value;
+    }
+
+    private static Number finite(float value) throws JSONRPCException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw CBOR.decodeError();
+        }
+        return value;
+    }
+
+    private static Number finite(double value) throws JSONRPCException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw CBOR.decodeError();
+        }
+        return value;
+    }
+
+    private static float half(int bits) {
+        int exponent = (bits >> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        double value;
+        if (exponent == 0) {
+            value = Math.scalb((double) mantissa, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = Math.scalb((double) (mantissa + 1024), exponent - 25);
+        }
+        return (float) ((bits & 0x8000) != 0 ? -value : value);
+    }
+
+    private static String utf8(byte[] bytes) throws JSONRPCException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            CharBuffer chars = decoder.decode(ByteBuffer.wrap(bytes));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            throw CBOR.decodeError();
+        }
+    }
+
+    private static JSONRPCException decodeError() {
+        return new JSONRPCException("Failed to decode CBOR.", JSONRPCException.PARSE_ERROR, !JSONRPCException.STACKLESS);
+    }
+
+    private static JSONRPCException encodeError() {
+        return new JSONRPCException("Failed to encode CBOR.", JSONRPCException.INTERNAL_ERROR);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Lets identical concurrent calls share a single execution of a handler. A call with the same method and structurally
+ * equal params as one that is still being handled waits for that one and gets its result or error, while the
+ * dispatcher still answers every call with its own id. Register it in place of the handler it wraps:
+ * <pre>
+ * dispatcher.register("getInfo", new CoalescingHandler(handler));
+ * </pre>
+ * Only calls that overlap in time are coalesced; combine it with a {@link ResponseCache} to also reuse results.
+ */
+public class CoalescingHandler implements Dispatcher.Handler {
+
+    private final Dispatcher.Handler handler;
+    private final ConcurrentHashMap<RequestKey, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * @param handler The handler of the method
+     */
+    public CoalescingHandler(Dispatcher.Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public Object handle(Message message) throws JSONRPCException {
+        RequestKey key = RequestKey.of(message);
+        CompletableFuture<Object> flight = this.flights.get(key);
+        if (flight == null) {
+            CompletableFuture<Object> own = new CompletableFuture<>();
+            RequestKey detached = key.detach();
+            flight = this.flights.putIfAbsent(detached, own);
+            if (flight == null) {
+                return this.lead(message, detached, own);
+            }
+        }
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JSONRPCException("Interrupted while waiting for an identical call.", JSONRPCException.INTERNAL_ERROR);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JSONRPCException) {
+                throw (JSONRPCException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * @return The number of distinct calls being handled
+     */
+    public int getInFlightCount() {
+        return this.flights.size();
+    }
+
+    private Object lead(Message message, RequestKey key, CompletableFuture<Object> flight) throws JSONRPCException {
+        try {
+            Object result = this.handler.handle(message);
+            flight.complete(result);
+            return result;
+        } catch (JSONRPCException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.flights.remove(key, flight);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.util.ServiceLoader;
+
+/**
+ * Holds the default {@link JSONCodec}, loaded when first used.
+ */
+final class DefaultJSONCodec {
+
+    static final JSONCodec INSTANCE = DefaultJSONCodec.load();
+
+    private DefaultJSONCodec() {
+    }
+
+    private static JSONCodec load() {
+        for (JSONCodec codec : ServiceLoader.load(JSONCodec.class)) {
+            return codec;
+        }
+        return JSONCodec.ORG_JSON;
+    }
+
+}
@@ -0,0 +1,401 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Invokes the handler registered for the method of a request or notification and turns its outcome into a response.
+ * <p>
+ * A request for an unknown method is answered with a {@link JSONRPCException#METHOD_NOT_FOUND} error. A handler
+ * signals an error by throwing a {@link JSONRPCException}, its code and message are used for the error response;
+ * any other exception becomes an {@link JSONRPCException#INTERNAL_ERROR} error. Notifications are never answered.
+ * Responses use the version of the message they answer.
+ * <p>
+ * With an executor, the requests and notifications of a batch are handled concurrently, at most a given number at a
+ * time, while the responses keep the batch order. This turns the latency of a batch of blocking handlers into
+ * roughly the one of the slowest handler. On Java 21 and later, a virtual thread per task executor avoids any pool
+ * tuning.
+ * <p>
+ * Handlers can be registered while dispatching.
+ */
+public class Dispatcher {
+
+    /**
+     * Handles the requests and notifications of a method.
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * @param message The request or notification
+         * @return The result, ignored for notifications
+         * @throws JSONRPCException To respond with an error
+         */
+        Object handle(Message message) throws JSONRPCException;
+
+    }
+
+    /**
+     * Handles the requests and notifications of a method with params bound to a type.
+     *
+     * @param <P> The params type
+     */
+    @FunctionalInterface
+    public interface TypedHandler<P> {
+
+        /**
+         * @param params The bound params
+         * @return The result, converted with {@link ParamsBinder#toJSON(Object)} and ignored for notifications
+         * @throws JSONRPCException To respond with an error
+         */
+        Object handle(P params) throws JSONRPCException;
+
+    }
+
+    private final ConcurrentHashMap<String, Handler> handlers = new ConcurrentHashMap<>();
+
+    private final Executor executor;
+    private final Semaphore permits;
+
+    /**
+     * Creates a dispatcher handling everything on the calling thread.
+     */
+    public Dispatcher() {
+        this.executor = null;
+        this.permits = null;
+    }
+
+    /**
+     * @param executor The executor to run handlers on, like {@code Executors.newVirtualThreadPerTaskExecutor()}
+     * @param maxConcurrency The maximum number of handlers running at the same time
+     */
+    public Dispatcher(Executor executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The maximum concurrency MUST be at least 1.");
+        }
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * @param method The method
+     * @param handler The handler, replacing an earlier one
+     * @return This dispatcher
+     */
+    public Dispatcher register(String method, Handler handler) {
+        this.handlers.put(method, handler);
+        return this;
+    }
+
+    /**
+     * Registers a handler receiving the params bound by {@link ParamsBinder}. Params that do not match the type are
+     * answered with a {@link JSONRPCException#INVALID_PARAMS} error.
+     *
+     * @param method The method
+     * @param paramsType The params type
+     * @param handler The handler, replacing an earlier one
+     * @param <P> The params type
+     * @return This dispatcher
+     */
+    public <P> Dispatcher register(String method, Class<P> paramsType, TypedHandler<P> handler) {
+        ParamsBinder<P> binder = ParamsBinder.of(paramsType);
+        return this.register(method, message -> ParamsBinder.toJSON(handler.handle(binder.bind(message.getParams()))));
+    }
+
+    /**
+     * @param method The method
+     * @return True if a handler was removed, false if not.
+     */
+    public boolean unregister(String method) {
+        return this.handlers.remove(method) != null;
+    }
+
+    /**
+     * @return A view of the registered method names
+     */
+    public Set<String> getMethods() {
+        return Collections.unmodifiableSet(this.handlers.keySet());
+    }
+
+    /**
+     * @param method The method
+     * @return The handler, or null if none is registered.
+     */
+    public Handler getHandler(String method) {
+        return this.handlers.get(method);
+    }
+
+    /**
+     * @param message The request or notification
+     * @return The response, or null for a notification
+     * @throws IllegalArgumentException If the message is a response
+     */
+    public ResponseMessage dispatch(Message message) {
+        if (message.isResponse()) {
+            throw new IllegalArgumentException("A response can not be dispatched.");
+        }
+        String method = message.getMethod();
+        Handler handler = method != null ? this.handlers.get(method) : null;
+        if (Dispatcher.isNotification(message)) {
+            if (handler != null) {
+                try {
+                    handler.handle(message);
+                } catch (Exception $e) {
+                    // Notifications are never answered, so errors can not be reported
+                }
+            }
+            return null;
+        }
+        if (method == null) {
+            return Dispatcher.createError(message.getId(), JSONRPCException.INVALID_REQUEST, ResponseTemplates.getErrorMessage(JSONRPCException.INVALID_REQUEST), null, message.isVersion2());
+        }
+        if (handler == null) {
+            return Dispatcher.createError(message.getId(), JSONRPCException.METHOD_NOT_FOUND, ResponseTemplates.getErrorMessage(JSONRPCException.METHOD_NOT_FOUND), null, message.isVersion2());
+        }
+        Object result;
+        try {
+            result = handler.handle(message);
+        } catch (JSONRPCException e) {
+            return Dispatcher.createError(message.getId(), e.getCode(), e.getMessage() != null ? e.getMessage() : "", null, message.isVersion2());
+        } catch (RuntimeException e) {
+            return Dispatcher.createError(message.getId(), JSONRPCException.INTERNAL_ERROR, ResponseTemplates.getErrorMessage(JSONRPCException.INTERNAL_ERROR), null, message.isVersion2());
+        }
+        return Dispatcher.createResult(message.getId(), result, message.isVersion2());
+    }
+
+    /**
+     * @param result The parse result of a message
+     * @return The response, or null for a notification
+     */
+    public ResponseMessage dispatch(ParseResult result) {
+        if (!result.isSuccess()) {
+            return Dispatcher.createError(result.getId(), result.getCode(), ResponseTemplates.getErrorMessage(result.getCode()), result.getErrorMessage(), result.isVersion2());
+        }
+        if (result.getMessage().isResponse()) {
+            return Dispatcher.createError(result.getId(), JSONRPCException.INVALID_REQUEST, ResponseTemplates.getErrorMessage(JSONRPCException.INVALID_REQUEST), null, result.getMessage().isVersion2());
+        }
+        return this.dispatch(result.getMessage());
+    }
+
+    /**
+     * Handles the message on the executor, if any. When the maximum concurrency is reached, the calling thread waits
+     * until a handler finishes.
+     *
+     * @param message The request or notification
+     * @return The response, completed with null for a notification
+     * @throws IllegalArgumentException If the message is a response
+     */
+    public CompletableFuture<ResponseMessage> dispatchAsync(Message message) {
+        if (this.executor == null || message.isResponse()) {
+            return CompletableFuture.completedFuture(this.dispatch(message));
+        }
+        this.permits.acquireUninterruptibly();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return this.dispatch(message);
+                } finally {
+                    this.permits.release();
+                }
+            }, this.executor);
+        } catch (RejectedExecutionException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @param batch The parse results of the batch elements
+     * @return The responses in batch order, without entries for notifications
+     */
+    public List<ResponseMessage> dispatch(List<ParseResult> batch) {
+        List<ResponseMessage> responses = new ArrayList<>(batch.size());
+        if (this.executor == null || batch.size() < 2) {
+            for (ParseResult result : batch) {
+                ResponseMessage response = this.dispatch(result);
+                if (response != null) {
+                    responses.add(response);
+                }
+            }
+            return responses;
+        }
+        List<CompletableFuture<ResponseMessage>> futures = new ArrayList<>(batch.size());
+        for (ParseResult result : batch) {
+            if (result.isSuccess() && !result.getMessage().isResponse()) {
+                futures.add(this.dispatchAsync(result.getMessage()));
+            } else {
+                futures.add(CompletableFuture.completedFuture(this.dispatch(result)));
+            }
+        }
+        for (CompletableFuture<ResponseMessage> future : futures) {
+            ResponseMessage response = future.join();
+            if (response != null) {
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Parses, dispatches and encodes a complete body, being a single message or a batch.
+     *
+     * @param bytes UTF-8 encoded JSON
+     * @return The UTF-8 encoded response body, or null if nothing is to be answered
+     * @throws JSONRPCException If a response can not be encoded
+     */
+    public byte[] handle(byte[] bytes) throws JSONRPCException {
+        List<ParseResult> results;
+        try {
+            results = MessageBatchParser.parse(bytes);
+        } catch (JSONRPCException e) {
+            return ResponseTemplates.encodeError(JSONRPCException.PARSE_ERROR, null);
+        }
+        if (!Dispatcher.isBatch(bytes)) {
+            ResponseMessage response = this.dispatch(results.get(0));
+            if (response == null) {
+                return null;
+            }
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            Dispatcher.write(response, stream);
+            return stream.toByteArray();
+        }
+        if (results.isEmpty()) {
+            return ResponseTemplates.encodeError(JSONRPCException.INVALID_REQUEST, null);
+        }
+        return Dispatcher.encode(this.dispatch(results));
+    }
+
+    /**
+     * Like {@link #handle(byte[])}, for a CBOR encoded body.
+     *
+     * @param bytes CBOR
+     * @return The CBOR encoded response body, or null if nothing is to be answered
+     * @throws JSONRPCException If a response can not be encoded
+     */
+    public byte[] handleCBOR(byte[] bytes) throws JSONRPCException {
+        Object decoded;
+        try {
+            decoded = Message.decodeCBOR(bytes);
+        } catch (JSONRPCException e) {
+            return Message.encodeCBOR(Dispatcher.createError(null, JSONRPCException.PARSE_ERROR, ResponseTemplates.getErrorMessage(JSONRPCException.PARSE_ERROR), null, true).toObject());
+        }
+        if (!(decoded instanceof JSONArray)) {
+            ResponseMessage response = this.dispatch(Message.tryParse(decoded));
+            return response != null ? Message.encodeCBOR(response.toObject()) : null;
+        }
+        if (((JSONArray) decoded).isEmpty()) {
+            return Message.encodeCBOR(Dispatcher.createError(null, JSONRPCException.INVALID_REQUEST, ResponseTemplates.getErrorMessage(JSONRPCException.INVALID_REQUEST), null, true).toObject());
+        }
+        List<ResponseMessage> responses = this.dispatch(MessageBatchParser.parse((JSONArray) decoded, true, ForkJoinPool.commonPool()));
+        if (responses.isEmpty()) {
+            return null;
+        }
+        JSONArray array = new JSONArray();
+        for (ResponseMessage response : responses) {
+            array.put(response.toObject());
+        }
+        return Message.encodeCBOR(array);
+    }
+
+    /**
+     * @param responses The responses
+     * @return The UTF-8 encoded batch response, or null if there are no responses
+     * @throws JSONRPCException If a response can not be encoded
+     */
+    static byte[] encode(List<ResponseMessage> responses) throws JSONRPCException {
+        if (responses.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write('[');
+        for (int i = 0; i < responses.size(); i++) {
+            if (i > 0) {
+                stream.write(',');
+            }
+            Dispatcher.write(responses.get(i), stream);
+        }
+        stream.write(']');
+        return stream.toByteArray();
+    }
+
+    /**
+     * Writes V2 result responses through {@link ResponseTemplates}, so an encoded ({@link RawJSON}) result is copied
+     * as is, and other responses through their object.
+     */
+    private static void write(ResponseMessage response, ByteArrayOutputStream stream) throws JSONRPCException {
+        try {
+            if (response.isVersion2() && !response.hasError()) {
+                RawJSON raw = response.getRawResult();
+                ResponseTemplates.writeResult(response.getId(), raw != null ? raw : response.getResult(), stream);
+            } else {
+                stream.write(Dispatcher.bytes(Message.encodeJSON(response.toObject())));
+            }
+        } catch (IOException e) {
+            throw OrgJSONCodec.encodeError();
+        }
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @return True if the first non-whitespace character opens an array, false if not.
+     */
+    static boolean isBatch(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return b == '[';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param message The request or notification
+     * @return True if the message was parsed or created as notification, with the id strictness used then, false if
+     * not.
+     */
+    private static boolean isNotification(Message message) {
+        if (message instanceof NotificationMessage) {
+            return true;
+        }
+        if (message instanceof RequestMessage) {
+            return false;
+        }
+        return message.isNotification();
+    }
+
+    static ResponseMessage createResult(Object id, Object result, boolean version2) {
+        try {
+            return Message.createResponse(id, result != null ? result : JSONObject.NULL, null, version2);
+        } catch (JSONRPCException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static ResponseMessage createError(Object id, int code, String message, Object data, boolean version2) {
+        JSONObject error = new JSONObject().put("code", code).put("message", message).putOpt("data", data);
+        try {
+            return Message.createResponse(id, null, error, version2);
+        } catch (JSONRPCException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The codec decoding strict JSON with the single-pass {@link MessageParser} and encoding through a hand-written
+ * writer. Input the parser does not accept is left to {@link JSONCodec#ORG_JSON}, and the writer escapes like
+ * org.json and delegates the values it has no fast path for, so values, output and exceptions are the same as the
+ * ones of {@link JSONCodec#ORG_JSON}.
+ */
+final class FastJSONCodec implements JSONCodec {
+
+    @Override
+    public Object decode(String json) throws JSONRPCException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        Object value = MessageParser.decode(bytes, 0, bytes.length);
+        return value != null ? value : JSONCodec.ORG_JSON.decode(json);
+    }
+
+    @Override
+    public Object decode(byte[] bytes, int offset, int length) throws JSONRPCException {
+        Object value = MessageParser.decode(bytes, offset, length);
+        return value != null ? value : JSONCodec.ORG_JSON.decode(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Object decode(Reader reader) throws JSONRPCException {
+        // The single-pass parser needs the complete input, so a reader is tokenized while reading instead
+        return JSONCodec.ORG_JSON.decode(reader);
+    }
+
+    @Override
+    public String encode(Object value) throws JSONRPCException {
+        StringBuilder builder = new StringBuilder(128);
+        try {
+            FastJSONCodec.write(value, builder);
+        } catch (JSONException e) {
+            throw OrgJSONCodec.encodeError();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void encode(Object value, Appendable appendable) throws JSONRPCException, IOException {
+        try {
+            FastJSONCodec.write(value, appendable);
+        } catch (JSONException e) {
+            throw OrgJSONCodec.encodeError();
+        }
+    }
+
+    private static void write(Object value, Appendable out) throws IOException {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            out.append('{');
+            boolean first = true;
+            for (String key : object.keySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                FastJSONCodec.quote(key, out);
+                out.append(':');
+                FastJSONCodec.write(object.opt(key), out);
+            }
+            out.append('}');
+        } else if (value instanceof JSONArray) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (JSONArray) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                FastJSONCodec.write(element, out);
+            }
+            out.append(']');
+        } else if (value instanceof String) {
+            FastJSONCodec.quote((String) value, out);
+        } else if (value instanceof Integer || value instanceof Long) {
+            out.append(value.toString());
+        } else if (value instanceof Boolean) {
+            out.append((Boolean) value ? "true" : "false");
+        } else if (value == null || JSONObject.NULL.equals(value)) {
+            out.append("null");
+        } else {
+            out.append(JSONObject.valueToString(value));
+        }
+    }
+
+    /**
+     * Writes a string literal with the escapes of {@link JSONObject#quote(String)}, copying unescaped runs at once.
+     */
+    private static void quote(String string, Appendable out) throws IOException {
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            String escape;
+            switch (c) {
+                case '"':
+                    escape = "\\\"";
+                    break;
+                case '\\':
+                    escape = "\\\\";
+                    break;
+                case '/':
+                    escape = i > 0 && string.charAt(i - 1) == '<' ? "\\/" : null;
+                    break;
+                case '\b':
+                    escape = "\\b";
+                    break;
+                case '\t':
+                    escape = "\\t";
+                    break;
+                case '\n':
+                    escape = "\\n";
+                    break;
+                case '\f':
+                    escape = "\\f";
+                    break;
+                case '\r':
+                    escape = "\\r";
+                    break;
+                default:
+                    escape = c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100') ? FastJSONCodec.unicode(c) : null;
+            }
+            if (escape != null) {
+                out.append(string, start, i).append(escape);
+                start = i + 1;
+            }
+        }
+        out.append(string, start, string.length()).append('"');
+    }
+
+    private static String unicode(char c) {
+        String hex = Integer.toHexString(c);
+        return "\\u0000".substring(0, 6 - hex.length()) + hex;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ServiceLoader;
+
+/**
+ * Converts between JSON text and the {@link org.json.JSONObject}/{@link org.json.JSONArray} values messages are made
+ * of. Validation and message creation do not depend on the codec.
+ * <p>
+ * {@link #ORG_JSON} uses the org.json tokenizer and writer. {@link #FAST} decodes strict JSON in a single pass over
+ * UTF-8 bytes and encodes straight into a buffer, with the same values, output and exceptions. A codec can be passed
+ * directly or per call, like {@link Message#encodeJSON(Object, Appendable, JSONCodec)}; the one used by the other
+ * methods is the first provider registered for this interface with {@link ServiceLoader}, or {@link #ORG_JSON} if
+ * there is none.
+ */
+public interface JSONCodec {
+
+    JSONCodec ORG_JSON = new OrgJSONCodec();
+    JSONCodec FAST = new FastJSONCodec();
+
+    /**
+     * @return The codec loaded with {@link ServiceLoader}, or {@link #ORG_JSON}
+     */
+    static JSONCodec getDefault() {
+        return DefaultJSONCodec.INSTANCE;
+    }
+
+    /**
+     * @param json JSON string
+     * @return The value
+     * @throws JSONRPCException A {@link JSONRPCException#PARSE_ERROR} if the input is not valid JSON
+     */
+    Object decode(String json) throws JSONRPCException;
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @return The value
+     * @throws JSONRPCException A {@link JSONRPCException#PARSE_ERROR} if the input is not valid JSON
+     */
+    default Object decode(byte[] bytes, int offset, int length) throws JSONRPCException {
+        return this.decode(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes while reading, without holding the whole input as string. By default this uses the org.json tokenizer,
+     * like {@link #ORG_JSON}.
+     *
+     * @param reader JSON reader, not closed
+     * @return The value
+     * @throws JSONRPCException A {@link JSONRPCException#PARSE_ERROR} if the input is not valid JSON
+     */
+    default Object decode(Reader reader) throws JSONRPCException {
+        return JSONCodec.ORG_JSON.decode(reader);
+    }
+
+    /**
+     * @param value The value
+     * @return JSON string
+     * @throws JSONRPCException If the value can not be encoded
+     */
+    default String encode(Object value) throws JSONRPCException {
+        StringBuilder builder = new StringBuilder();
+        try {
+            this.encode(value, builder);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param value The value
+     * @param appendable The appendable
+     * @throws JSONRPCException If the value can not be encoded
+     * @throws IOException If the appendable fails
+     */
+    void encode(Object value, Appendable appendable) throws JSONRPCException, IOException;
+
+}
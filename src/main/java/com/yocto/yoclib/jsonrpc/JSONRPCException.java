@@ -1,9 +1,79 @@
 package com.yocto.yoclib.jsonrpc;
 
+/**
+ * An exception carrying a JSON-RPC 2.0 error code, so it can be mapped to an error response without matching messages.
+ * <p>
+ * Decoding and validation failures are raised without a stack trace when the system property
+ * {@value #STACKLESS_PROPERTY} is set to {@code true}, which makes rejecting malformed traffic cheap.
+ */
 public class JSONRPCException extends Exception{
 
+    public static final int PARSE_ERROR = -32700;
+    public static final int INVALID_REQUEST = -32600;
+    public static final int METHOD_NOT_FOUND = -32601;
+    public static final int INVALID_PARAMS = -32602;
+    public static final int INTERNAL_ERROR = -32603;
+
+    public static final String STACKLESS_PROPERTY = "com.yocto.yoclib.jsonrpc.stackless";
+
+    static final boolean STACKLESS = Boolean.getBoolean(STACKLESS_PROPERTY);
+
+    private final int code;
+
+    /**
+     * @param message The message
+     */
     public JSONRPCException(String message){
+        this(message, INTERNAL_ERROR);
+    }
+
+    /**
+     * @param message The message
+     * @param code The error code
+     */
+    public JSONRPCException(String message, int code){
         super(message);
+        this.code = code;
+    }
+
+    /**
+     * @param message The message
+     * @param code The error code
+     * @param writableStackTrace Whether the stack trace should be filled in
+     */
+    protected JSONRPCException(String message, int code, boolean writableStackTrace){
+        super(message, null, writableStackTrace, writableStackTrace);
+        this.code = code;
+    }
+
+    /**
+     * @return The error code
+     */
+    public int getCode(){
+        return this.code;
+    }
+
+    /**
+     * @return A decoding failure
+     */
+    static JSONRPCException parseError(){
+        return new JSONRPCException("Failed to decode JSON.", PARSE_ERROR, !STACKLESS);
+    }
+
+    /**
+     * @param message The message
+     * @return A validation failure
+     */
+    static JSONRPCException invalidRequest(String message){
+        return new JSONRPCException(message, INVALID_REQUEST, !STACKLESS);
+    }
+
+    /**
+     * @param message The message
+     * @return A message created from invalid members, a mistake of the caller rather than of the peer
+     */
+    static JSONRPCException invalidArgument(String message){
+        return new JSONRPCException(message, INTERNAL_ERROR);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customizes a method of a {@link JSONRPCService}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface JSONRPCMethod {
+
+    /**
+     * @return The method name, the Java method name if empty
+     */
+    String value() default "";
+
+    /**
+     * @return True to send calls as notifications, which requires a void method, false if not.
+     */
+    boolean notification() default false;
+
+}
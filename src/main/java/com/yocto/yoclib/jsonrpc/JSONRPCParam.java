@@ -0,0 +1,24 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Gives a field bound by {@link ParamsBinder} a position in positional params. The order of fields returned by
+ * reflection is unspecified, so classes other than records only accept positional params when their fields declare
+ * one.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface JSONRPCParam {
+
+    /**
+     * @return The position, starting at 0 and unique within the class and its superclasses
+     */
+    int position();
+
+}
@@ -0,0 +1,29 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface as a JSON-RPC service. With the {@code yoclib-jsonrpc-processor} on the annotation processor
+ * path, a client ({@code <Name>Client}) implementing the interface over a {@link ServiceTransport} and a skeleton
+ * ({@code <Name>Skeleton}) registering an implementation with a {@link Dispatcher} are generated next to it.
+ * <p>
+ * Every abstract method is a JSON-RPC method and MUST declare {@link JSONRPCException}, and no other checked
+ * exception. Params and results are limited to primitives and their boxes, {@code String}, {@code BigDecimal},
+ * {@code BigInteger}, enums (by name), {@code JSONObject}, {@code JSONArray} and {@code Object}, so the generated code
+ * converts them without reflection.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JSONRPCService {
+
+    /**
+     * @return The prefix of all method names, like {@code "bank."}
+     */
+    String prefix() default "";
+
+}
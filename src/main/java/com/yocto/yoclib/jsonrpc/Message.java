@@ -2,22 +2,71 @@ package com.yocto.yoclib.jsonrpc;
 
 import org.json.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
 public abstract class Message {
 
-    private final JSONObject value;
+    /*
+     * Each reserved member has its own slot: null if absent, JSONObject.NULL if present with a null value.
+     */
+    private final Object jsonrpc;
+    private final Object id;
+    private final Object method;
+    private final Object params;
+    private final Object result;
+    private final Object error;
+    private final JSONObject extra;
+
+    private final boolean request;
+    private final boolean response;
+
+    /*
+     * Integer ids are also kept unboxed, so they can be used as primitive key.
+     */
+    private final boolean numericId;
+    private final long longId;
 
     /**
      * @param value The object value
      */
     protected Message(JSONObject value) {
-        this.value = value;
+        this(MessageData.of(value));
+    }
+
+    /**
+     * @param data The member slots
+     */
+    Message(MessageData data) {
+        this.jsonrpc = data.jsonrpc;
+        this.id = data.id;
+        this.method = data.method;
+        this.params = data.params;
+        this.result = data.result;
+        this.error = data.error;
+        this.extra = data.extra;
+        this.request = this.method != null || this.params != null;
+        this.response = this.result != null || this.error != null;
+        this.numericId = this.id instanceof Integer || this.id instanceof Long;
+        this.longId = this.numericId ? ((Number) this.id).longValue() : 0;
     }
 
     /**
      * @return The JSON-RPC version value
      */
     public String getJSONRPC() {
-        return this.hasJSONRPC() ? this.value.getString("jsonrpc") : null;
+        return this.jsonrpc instanceof String ? (String) this.jsonrpc : null;
     }
 
     /**
@@ -32,44 +81,75 @@ public abstract class Message {
      * @return
      */
     public Object getId(boolean strictId) {
-        return this.hasId(strictId) ? this.value.get("id") : null;
+        return this.hasId(strictId) ? this.id : null;
+    }
+
+    /**
+     * @return True if the id is an integer that fits in a long, false if not.
+     */
+    public boolean hasNumericId() {
+        return this.numericId;
+    }
+
+    /**
+     * @return The id, without boxing
+     * @throws IllegalStateException If the id is not an integer that fits in a long
+     */
+    public long getIdAsLong() {
+        if (!this.numericId) {
+            throw new IllegalStateException("The id is not an integer.");
+        }
+        return this.longId;
     }
 
     /**
      * @return
      */
     public String getMethod() {
-        return this.hasMethod() ? this.value.getString("method") : null;
+        return this.method instanceof String ? (String) this.method : null;
     }
 
     /**
      * @return
      */
     public Object getParams() {
-        return this.hasParams() ? this.value.get("params") : null;
+        return this.hasParams() ? Message.decodeRaw(this.params) : null;
+    }
+
+    /**
+     * @return The undecoded params if the message was parsed lazily, null if not.
+     */
+    public RawJSON getRawParams() {
+        return Message.raw(this.params);
     }
 
     /**
      * @return
      */
     public Object getResult() {
-        return this.hasResult() ? this.value.get("result") : null;
+        return this.hasResult() ? Message.decodeRaw(this.result) : null;
+    }
+
+    /**
+     * @return The undecoded result if the message was parsed lazily, null if not.
+     */
+    public RawJSON getRawResult() {
+        return Message.raw(this.result);
     }
 
     /**
      * @return
      */
     public Object getError() {
-        return this.hasError() ? this.value.get("error") : null;
+        return this.hasError() ? this.error : null;
     }
 
     /**
      * @return
      */
     public Integer getErrorCode() {
-        Object error = this.getError();
-        if (error instanceof JSONObject) {
-            JSONObject errorObj = (JSONObject) error;
+        if (this.error instanceof JSONObject) {
+            JSONObject errorObj = (JSONObject) this.error;
             if (errorObj.has("code")) {
                 return errorObj.getInt("code");
             }
@@ -81,9 +161,8 @@ public abstract class Message {
      * @return
      */
     public String getErrorMessage() {
-        Object error = this.getError();
-        if (error instanceof JSONObject) {
-            JSONObject errorObj = (JSONObject) error;
+        if (this.error instanceof JSONObject) {
+            JSONObject errorObj = (JSONObject) this.error;
             if (errorObj.has("message")) {
                 return errorObj.getString("message");
             }
@@ -95,21 +174,30 @@ public abstract class Message {
      * @return
      */
     public Object getErrorData() {
-        Object error = this.getError();
-        if (error instanceof JSONObject) {
-            JSONObject errorObj = (JSONObject) error;
+        if (this.error instanceof JSONObject) {
+            JSONObject errorObj = (JSONObject) this.error;
             if (errorObj.has("data")) {
-                return errorObj.get("data");
+                return Message.decodeRaw(errorObj.get("data"));
             }
         }
         return null;
     }
 
+    /**
+     * @return The undecoded error data if the message was parsed lazily, null if not.
+     */
+    public RawJSON getRawErrorData() {
+        if (this.error instanceof JSONObject) {
+            return Message.raw(((JSONObject) this.error).opt("data"));
+        }
+        return null;
+    }
+
     /**
      * @return
      */
     public boolean hasJSONRPC() {
-        return this.value.has("jsonrpc") && this.value.get("jsonrpc") != null;
+        return this.jsonrpc != null;
     }
 
     /**
@@ -124,42 +212,42 @@ public abstract class Message {
      * @return
      */
     public boolean hasId(boolean strictId) {
-        return this.value.has("id") && (strictId?(!this.value.isNull("id")):(!Message.isFalsy(this.value.get("id"))));
+        return Message.isIdPresent(this.id, strictId);
     }
 
     /**
      * @return
      */
     public boolean hasMethod() {
-        return this.value.has("method") && !this.value.isNull("method");
+        return Message.isPresent(this.method);
     }
 
     /**
      * @return
      */
     public boolean hasParams() {
-        return this.value.has("params") && !this.value.isNull("params");
+        return Message.isPresent(this.params);
     }
 
     /**
      * @return
      */
     public boolean hasResult() {
-        return this.value.has("result") && !this.value.isNull("result");
+        return Message.isPresent(this.result);
     }
 
     /**
      * @return
      */
     public boolean hasError() {
-        return this.value.has("error") && !this.value.isNull("error");
+        return Message.isPresent(this.error);
     }
 
     /**
      * @return
      */
     public boolean isRequest() {
-        return this.value.has("method") || this.value.has("params");
+        return this.request;
     }
 
     /**
@@ -174,28 +262,42 @@ public abstract class Message {
      * @return
      */
     public boolean isNotification(boolean strictId) {
-        return this.isRequest() && (!this.value.has("id") || !(strictId?(!this.value.isNull("id")):(!Message.isFalsy(this.value.get("id")))));
+        return this.request && !Message.isIdPresent(this.id, strictId);
     }
 
     /**
      * @return True if message is a response, false if not.
      */
     public boolean isResponse() {
-        return this.value.has("result") || this.value.has("error");
+        return this.response;
     }
 
     /**
      * @return True if message is version 2.0, false if not.
      */
     public boolean isVersion2() {
-        return "2.0".equals(this.getJSONRPC());
+        return "2.0".equals(this.jsonrpc);
     }
 
     /**
+     * Converts the message to an object. Every call returns a new object, changing it does not affect the message.
+     *
      * @return The object value
      */
     public JSONObject toObject() {
-        return this.value;
+        JSONObject object = new JSONObject();
+        if (this.extra != null) {
+            for (String key : this.extra.keySet()) {
+                object.put(key, this.extra.get(key));
+            }
+        }
+        object.putOpt("jsonrpc", this.jsonrpc);
+        object.putOpt("id", this.id);
+        object.putOpt("method", this.method);
+        object.putOpt("params", this.params);
+        object.putOpt("result", this.result);
+        object.putOpt("error", this.error);
+        return object;
     }
 
     public static RequestMessage createRequest(Object id,String method) throws JSONRPCException{
@@ -247,7 +349,7 @@ public abstract class Message {
      * @return
      */
     public static RequestMessage createRequestMessageV1(Object id, String method, JSONArray params){
-        return new RequestMessage(new JSONObject().put("id",id!=null?id:JSONObject.NULL).put("method",method!=null?method:JSONObject.NULL).put("params", params!=null?params:JSONObject.NULL));
+        return new RequestMessage(new MessageData(null,id!=null?id:JSONObject.NULL,method!=null?method:JSONObject.NULL,params!=null?params:JSONObject.NULL,null,null));
     }
 
     public static RequestMessage createRequestMessageV2(Object id, String method) throws JSONRPCException {
@@ -257,19 +359,33 @@ public abstract class Message {
     /**
      * @param id
      * @param method
-     * @param params
      * @return
      */
-    public static RequestMessage createRequestMessageV2(Object id, String method, Object params) throws JSONRPCException {
-        JSONObject obj = new JSONObject().put("jsonrpc", "2.0").put("id",id!=null?id:JSONObject.NULL).put("method",method!=null?method:JSONObject.NULL);
+    public static RequestMessage createRequestMessageV2WithLongId(long id, String method) throws JSONRPCException {
+        return Message.createRequestMessageV2(Message.boxId(id), method, null);
+    }
 
-        if (params instanceof JSONObject || params instanceof JSONArray) {
-            obj.put("params", params);
-        } else if (params != null) {
-            throw new JSONRPCException("[V2] The \"params\" property in request MUST be an object, array or null.");
+    /**
+     * @param id
+     * @param method
+     * @param params
+     * @return
+     */
+    public static RequestMessage createRequestMessageV2WithLongId(long id, String method, Object params) throws JSONRPCException {
+        return Message.createRequestMessageV2(Message.boxId(id), method, params);
+    }
 
+    /**
+     * @param id
+     * @param method
+     * @param params
+     * @return
+     */
+    public static RequestMessage createRequestMessageV2(Object id, String method, Object params) throws JSONRPCException {
+        if (params != null && !Message.isObject(params) && !Message.isArray(params)) {
+            throw JSONRPCException.invalidArgument("[V2] The \"params\" property in request MUST be an object, array or null.");
         }
-        return new RequestMessage(obj);
+        return new RequestMessage(new MessageData("2.0",id!=null?id:JSONObject.NULL,method!=null?method:JSONObject.NULL,params,null,null));
     }
 
     /**
@@ -322,7 +438,7 @@ public abstract class Message {
      * @return
      */
     public static NotificationMessage createNotificationMessageV1(String method, JSONArray params) {
-        return new NotificationMessage(new JSONObject().put("id",JSONObject.NULL).put("method",method!=null?method:JSONObject.NULL).put("params", params!=null?params:JSONObject.NULL));
+        return new NotificationMessage(new MessageData(null,JSONObject.NULL,method!=null?method:JSONObject.NULL,params!=null?params:JSONObject.NULL,null,null));
     }
 
     /**
@@ -339,15 +455,10 @@ public abstract class Message {
      * @return
      */
     public static NotificationMessage createNotificationMessageV2(String method, Object params) throws JSONRPCException {
-        JSONObject obj = new JSONObject().put("jsonrpc", "2.0").put("method", method!=null?method:JSONObject.NULL);
-
-        if (params instanceof JSONObject || params instanceof JSONArray) {
-            obj.put("params", params);
-        } else if (params != null) {
-            throw new JSONRPCException("[V2] The \"params\" property in request MUST be an object, array or null.");
+        if (params != null && !Message.isObject(params) && !Message.isArray(params)) {
+            throw JSONRPCException.invalidArgument("[V2] The \"params\" property in request MUST be an object, array or null.");
         }
-
-        return new NotificationMessage(obj);
+        return new NotificationMessage(new MessageData("2.0",null,method!=null?method:JSONObject.NULL,params,null,null));
     }
 
     public static ResponseMessage createResponse(Object id,Object result) throws JSONRPCException{
@@ -407,12 +518,12 @@ public abstract class Message {
      */
     public static ResponseMessage createResponseMessageV1(Object id, Object result, Object error) throws JSONRPCException {
         if (result != null && error != null) {
-            throw new JSONRPCException("[V1] Only one property \"result\" or \"error\" can be non null.");
+            throw JSONRPCException.invalidArgument("[V1] Only one property \"result\" or \"error\" can be non null.");
         }
         if (!(error instanceof JSONObject) && !(error instanceof String) && error != null) {
-            throw new JSONRPCException("[V1] The \"error\" property in request MUST be an string, object or null.");
+            throw JSONRPCException.invalidArgument("[V1] The \"error\" property in request MUST be an string, object or null.");
         }
-        return new ResponseMessage(new JSONObject().put("id", id!=null?id:JSONObject.NULL).put("result", result!=null?result:JSONObject.NULL).put("error", error!=null?error:JSONObject.NULL));
+        return new ResponseMessage(new MessageData(null,id!=null?id:JSONObject.NULL,null,null,result!=null?result:JSONObject.NULL,error!=null?error:JSONObject.NULL));
     }
 
     /**
@@ -432,6 +543,25 @@ public abstract class Message {
         return Message.createResponseMessageV2(id, result, null);
     }
 
+    /**
+     * @param id
+     * @param result
+     * @return
+     */
+    public static ResponseMessage createResponseMessageV2WithLongId(long id, Object result) throws JSONRPCException {
+        return Message.createResponseMessageV2(Message.boxId(id), result, null);
+    }
+
+    /**
+     * @param id
+     * @param result
+     * @param error
+     * @return
+     */
+    public static ResponseMessage createResponseMessageV2WithLongId(long id, Object result, JSONObject error) throws JSONRPCException {
+        return Message.createResponseMessageV2(Message.boxId(id), result, error);
+    }
+
     /**
      * @param id
      * @param result
@@ -440,27 +570,23 @@ public abstract class Message {
      */
     public static ResponseMessage createResponseMessageV2(Object id, Object result, JSONObject error) throws JSONRPCException {
         if (result != null && error != null) {
-            throw new JSONRPCException("[V2] Only one property \"result\" or \"error\" can be non null.");
+            throw JSONRPCException.invalidArgument("[V2] Only one property \"result\" or \"error\" can be non null.");
         }
-        JSONObject obj = new JSONObject().put("jsonrpc", "2.0").put("id", id!=null?id:JSONObject.NULL);
         if (error != null) {
             if (!error.has("code")) {
-                throw new JSONRPCException("[V2] The error object MUST have a \"code\" property.");
+                throw JSONRPCException.invalidArgument("[V2] The error object MUST have a \"code\" property.");
             }
             if (!error.has("message")) {
-                throw new JSONRPCException("[V2] The error object MUST have a \"message\" property.");
+                throw JSONRPCException.invalidArgument("[V2] The error object MUST have a \"message\" property.");
             }
             if (!(error.get("code") instanceof Integer)) {
-                throw new JSONRPCException("[V2] The \"code\" property of the error object MUST be an integer.");
+                throw JSONRPCException.invalidArgument("[V2] The \"code\" property of the error object MUST be an integer.");
             }
             if (!(error.get("message") instanceof String)) {
-                throw new JSONRPCException("[V2] The \"message\" property of the error object MUST be a string.");
+                throw JSONRPCException.invalidArgument("[V2] The \"message\" property of the error object MUST be a string.");
             }
-            obj.put("error", error);
-        } else {
-            obj.put("result", result);
         }
-        return new ResponseMessage(obj);
+        return new ResponseMessage(new MessageData("2.0",id!=null?id:JSONObject.NULL,null,null,result,error));
     }
 
     /**
@@ -477,16 +603,93 @@ public abstract class Message {
      * @throws JSONRPCException An exception
      */
     public static String encodeJSON(Object object) throws JSONRPCException {
+        return JSONCodec.getDefault().encode(object);
+    }
+
+    /**
+     * Encodes JSON directly into an appendable, like a {@link Writer} or {@link StringBuilder}.
+     * The output is the same as the one of {@link #encodeJSON(Object)}.
+     *
+     * @param object The object
+     * @param appendable The appendable
+     * @throws JSONRPCException An exception
+     */
+    public static void encodeJSON(Object object, Appendable appendable) throws JSONRPCException {
+        Message.encodeJSON(object, appendable, JSONCodec.getDefault());
+    }
+
+    /**
+     * @param object The object
+     * @param appendable The appendable
+     * @param codec The codec
+     * @throws JSONRPCException An exception
+     */
+    public static void encodeJSON(Object object, Appendable appendable, JSONCodec codec) throws JSONRPCException {
         try {
-            if (object instanceof JSONObject) {
-                return ((JSONObject) object).toString(0);
-            }
-            if (object instanceof JSONArray) {
-                return ((JSONArray) object).toString(0);
+            codec.encode(object, appendable);
+        } catch (IOException e) {
+            throw OrgJSONCodec.encodeError();
+        }
+    }
+
+    /**
+     * Encodes UTF-8 encoded JSON directly into an output stream. The stream is flushed, but not closed.
+     *
+     * @param object The object
+     * @param stream The stream
+     * @throws JSONRPCException An exception
+     */
+    public static void encodeJSON(Object object, OutputStream stream) throws JSONRPCException {
+        Message.encodeJSON(object, stream, JSONCodec.getDefault());
+    }
+
+    /**
+     * @param object The object
+     * @param stream The stream
+     * @param codec The codec
+     * @throws JSONRPCException An exception
+     */
+    public static void encodeJSON(Object object, OutputStream stream, JSONCodec codec) throws JSONRPCException {
+        Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+        try {
+            codec.encode(object, writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw OrgJSONCodec.encodeError();
+        }
+    }
+
+    /**
+     * Encodes UTF-8 encoded JSON directly into a (possibly direct) buffer, starting at its position.
+     *
+     * @param object The object
+     * @param buffer The buffer
+     * @throws JSONRPCException An exception
+     * @throws BufferOverflowException If the buffer is too small, its position is left unchanged.
+     */
+    public static void encodeJSON(Object object, ByteBuffer buffer) throws JSONRPCException {
+        Message.encodeJSON(object, buffer, JSONCodec.getDefault());
+    }
+
+    /**
+     * @param object The object
+     * @param buffer The buffer
+     * @param codec The codec
+     * @throws JSONRPCException An exception
+     * @throws BufferOverflowException If the buffer is too small, its position is left unchanged.
+     */
+    public static void encodeJSON(Object object, ByteBuffer buffer, JSONCodec codec) throws JSONRPCException {
+        int position = buffer.position();
+        ByteBufferWriter writer = new ByteBufferWriter(buffer);
+        try {
+            codec.encode(object, writer);
+            writer.flush();
+        } catch (JSONRPCException | IOException | BufferOverflowException e) {
+            if (writer.isOverflow()) {
+                ((Buffer) buffer).position(position);
+                throw new BufferOverflowException();
             }
-            return JSONObject.valueToString(object);
-        } catch (JSONException e) {
-            throw new JSONRPCException("Failed to encode JSON.");
+            throw OrgJSONCodec.encodeError();
         }
     }
 
@@ -496,11 +699,122 @@ public abstract class Message {
      * @throws JSONRPCException An exception
      */
     public static Object decodeJSON(String json) throws JSONRPCException {
-        try {
-            return new JSONTokener(json).nextValue();
-        } catch (JSONException $e) {
-            throw new JSONRPCException("Failed to decode JSON.");
-        }
+        return JSONCodec.getDefault().decode(json);
+    }
+
+    /**
+     * @param json JSON string
+     * @param codec The codec
+     * @return The object
+     * @throws JSONRPCException An exception
+     */
+    public static Object decodeJSON(String json, JSONCodec codec) throws JSONRPCException {
+        return codec.decode(json);
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @param codec The codec
+     * @return The object
+     * @throws JSONRPCException An exception
+     */
+    public static Object decodeJSON(byte[] bytes, int offset, int length, JSONCodec codec) throws JSONRPCException {
+        return codec.decode(bytes, offset, length);
+    }
+
+    /**
+     * Decodes JSON directly from a reader, without reading the whole input into a string first.
+     * The reader is not closed.
+     *
+     * @param reader JSON reader
+     * @return The object
+     * @throws JSONRPCException An exception
+     */
+    public static Object decodeJSON(Reader reader) throws JSONRPCException {
+        return JSONCodec.getDefault().decode(reader);
+    }
+
+    /**
+     * Decodes UTF-8 encoded JSON directly from an input stream. The stream is not closed.
+     *
+     * @param stream JSON input stream
+     * @return The object
+     * @throws JSONRPCException An exception
+     */
+    public static Object decodeJSON(InputStream stream) throws JSONRPCException {
+        return Message.decodeJSON(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes UTF-8 encoded JSON directly from a channel. The channel is not closed.
+     *
+     * @param channel JSON channel
+     * @return The object
+     * @throws JSONRPCException An exception
+     */
+    public static Object decodeJSON(ReadableByteChannel channel) throws JSONRPCException {
+        return Message.decodeJSON(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+    }
+
+    /**
+     * Encodes a value, like the object of a message or a batch, as CBOR. See {@link #decodeCBOR(byte[])} for the
+     * mapping.
+     *
+     * @param object The object
+     * @return CBOR
+     * @throws JSONRPCException An exception
+     */
+    public static byte[] encodeCBOR(Object object) throws JSONRPCException {
+        return CBOR.encode(object);
+    }
+
+    /**
+     * Decodes CBOR into the values messages are made of. Maps become {@link JSONObject}s (with text keys only), arrays
+     * {@link JSONArray}s and byte strings {@code byte[]}. Integers, bignums (tags 2 and 3) and decimal fractions
+     * (tag 4) are decoded like JSON numbers, without going through text.
+     *
+     * @param bytes CBOR
+     * @return The object
+     * @throws JSONRPCException An exception
+     */
+    public static Object decodeCBOR(byte[] bytes) throws JSONRPCException {
+        return CBOR.decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes CBOR
+     * @param offset The offset
+     * @param length The length
+     * @return The object
+     * @throws JSONRPCException An exception
+     */
+    public static Object decodeCBOR(byte[] bytes, int offset, int length) throws JSONRPCException {
+        return CBOR.decode(bytes, offset, length);
+    }
+
+    /**
+     * Decodes and parses a CBOR message, with the same validation as {@link #parseObject(Object, boolean)}.
+     *
+     * @param bytes CBOR
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseCBOR(byte[] bytes) throws JSONRPCException {
+        return Message.parseCBOR(bytes, 0, bytes.length, true);
+    }
+
+    /**
+     * @param bytes CBOR
+     * @param offset The offset
+     * @param length The length
+     * @param strictId
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseCBOR(byte[] bytes, int offset, int length, boolean strictId) throws JSONRPCException {
+        return Message.parseObject(CBOR.decode(bytes, offset, length), strictId);
     }
 
     /**
@@ -518,9 +832,135 @@ public abstract class Message {
      */
     public static Message parseObject(Object object, boolean strictId) throws JSONRPCException {
         if (object instanceof JSONObject){
-            return Message.handleMessage((JSONObject) object,strictId);
+            return Message.handleMessage(MessageData.of((JSONObject) object),strictId);
+        }
+        throw JSONRPCException.invalidRequest("A message MUST be a JSON object.");
+    }
+
+    /**
+     * Decodes and parses a message in a single pass. The reserved members are read straight into their slots and only
+     * the payload values are built as a tree. The result and exceptions are the same as for
+     * {@code parseObject(decodeJSON(json))}.
+     *
+     * @param json JSON string
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseJSON(String json) throws JSONRPCException {
+        return Message.parseJSON(json, true);
+    }
+
+    /**
+     * @param json JSON string
+     * @param strictId
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseJSON(String json, boolean strictId) throws JSONRPCException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return Message.parseJSON(bytes, 0, bytes.length, strictId);
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseJSON(byte[] bytes) throws JSONRPCException {
+        return Message.parseJSON(bytes, 0, bytes.length, true);
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @param strictId
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseJSON(byte[] bytes, int offset, int length, boolean strictId) throws JSONRPCException {
+        MessageData data = MessageParser.parse(bytes, offset, length);
+        if (data == null) {
+            // Anything beyond plain JSON objects is left to the tokenizer, so leniency and errors stay identical.
+            return Message.parseObject(Message.decodeJSON(new String(bytes, offset, length, StandardCharsets.UTF_8)), strictId);
+        }
+        return Message.handleMessage(data, strictId);
+    }
+
+    /**
+     * Like {@link #parseJSON(byte[])}, but array and object values of {@code params}, {@code result} and
+     * {@code error.data} are kept undecoded as {@link RawJSON} slices of the input and only decoded when accessed.
+     * The bytes are not copied, so they must not be modified while the message is in use.
+     *
+     * @param bytes UTF-8 encoded JSON
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseJSONLazy(byte[] bytes) throws JSONRPCException {
+        return Message.parseJSONLazy(bytes, 0, bytes.length, true);
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @param strictId
+     * @return The message
+     * @throws JSONRPCException An exception
+     */
+    public static Message parseJSONLazy(byte[] bytes, int offset, int length, boolean strictId) throws JSONRPCException {
+        MessageData data = MessageParser.parse(bytes, offset, length, true);
+        if (data == null) {
+            return Message.parseObject(Message.decodeJSON(new String(bytes, offset, length, StandardCharsets.UTF_8)), strictId);
+        }
+        return Message.handleMessage(data, strictId);
+    }
+
+    /**
+     * @param object
+     * @return The result
+     */
+    public static ParseResult tryParse(Object object) {
+        return Message.tryParse(object, true);
+    }
+
+    /**
+     * Parses a decoded message like {@link #parseObject(Object, boolean)}, but reports a validation failure as result
+     * instead of throwing, so invalid elements of large batches can be handled in a tight loop.
+     *
+     * @param object
+     * @param strictId
+     * @return The result
+     */
+    public static ParseResult tryParse(Object object, boolean strictId) {
+        if (object instanceof JSONObject){
+            return Message.tryHandleMessage(MessageData.of((JSONObject) object), strictId);
         }
-        throw new JSONRPCException("A message MUST be a JSON object.");
+        return ParseResult.invalid(JSONRPCException.INVALID_REQUEST, "A message MUST be a JSON object.", null);
+    }
+
+    /**
+     * Decodes and parses a message like {@link #parseJSON(byte[], int, int, boolean)}, but reports a decoding or
+     * validation failure as result instead of throwing.
+     *
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @param strictId
+     * @return The result
+     */
+    public static ParseResult tryParse(byte[] bytes, int offset, int length, boolean strictId) {
+        MessageData data = MessageParser.parse(bytes, offset, length);
+        if (data == null) {
+            Object object;
+            try {
+                object = Message.decodeJSON(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            } catch (JSONRPCException e) {
+                return ParseResult.invalid(e.getCode(), e.getMessage(), null);
+            }
+            return Message.tryParse(object, strictId);
+        }
+        return Message.tryHandleMessage(data, strictId);
     }
 
     /**
@@ -529,63 +969,103 @@ public abstract class Message {
      * @return
      * @throws JSONRPCException
      */
-    private static Message handleMessage(JSONObject message, boolean strictId) throws JSONRPCException {
-        if (message.has("jsonrpc")) {
-            if ("2.0".equals(message.get("jsonrpc"))) {
-                return Message.handleMessageV2(message, strictId);
-            }
-            throw new JSONRPCException("Unknown version \"" + (message.get("jsonrpc")) + "\".");
-        } else {
-            return Message.handleMessageV1(message, strictId);
+    private static Message handleMessage(MessageData message, boolean strictId) throws JSONRPCException {
+        String error = Message.validate(message);
+        if (error != null) {
+            throw JSONRPCException.invalidRequest(error);
         }
+        return Message.create(message, strictId);
     }
 
     /**
-     *
      * @param message
      * @param strictId
      * @return
      */
-    private static Message handleMessageV2(JSONObject message,boolean strictId) throws JSONRPCException{
+    private static ParseResult tryHandleMessage(MessageData message, boolean strictId) {
+        String error = Message.validate(message);
+        if (error != null) {
+            return ParseResult.invalid(JSONRPCException.INVALID_REQUEST, error, message.id instanceof String || message.id instanceof Number ? message.id : null, message.jsonrpc != null);
+        }
+        return ParseResult.success(Message.create(message, strictId));
+    }
+
+    /**
+     * @param message A valid message
+     * @param strictId
+     * @return The message
+     */
+    private static Message create(MessageData message, boolean strictId) {
         if (Message.isRequestMessage(message)) {
-            Message.validateMethodProperty(message);
-            if (message.has("params") && !(message.get("params") instanceof JSONArray) && !(message.get("params") instanceof JSONObject)) {
-                throw new JSONRPCException("[V2] The \"params\" property MUST be an array or object if present.");
-            }
-            if (message.has("id") && !(message.get("id") instanceof String) && !(message.get("id") instanceof Number) && !message.isNull("id")) {
-                throw new JSONRPCException("[V2] The \"id\" property MUST be an string, number or null if present.");
-            }
-            if (message.has("id") && (strictId?(!message.isNull("id")):(!Message.isFalsy(message.get("id"))))){
+            if (Message.isIdPresent(message.id, strictId)){
                 return new RequestMessage(message);
             } else {
                 return new NotificationMessage(message);
             }
+        }
+        return new ResponseMessage(message);
+    }
+
+    /**
+     * @param message
+     * @return The reason the message is invalid, or null if it is valid.
+     */
+    private static String validate(MessageData message) {
+        if (message.jsonrpc != null) {
+            if ("2.0".equals(message.jsonrpc)) {
+                return Message.validateMessageV2(message);
+            }
+            return "Unknown version \"" + message.jsonrpc + "\".";
+        } else {
+            return Message.validateMessageV1(message);
+        }
+    }
+
+    /**
+     * @param message
+     * @return The reason the message is invalid, or null if it is valid.
+     */
+    private static String validateMessageV2(MessageData message) {
+        if (Message.isRequestMessage(message)) {
+            String error = Message.validateMethodProperty(message);
+            if (error != null) {
+                return error;
+            }
+            if (message.params != null && !Message.isArray(message.params) && !Message.isObject(message.params)) {
+                return "[V2] The \"params\" property MUST be an array or object if present.";
+            }
+            if (message.id != null && !(message.id instanceof String) && !(message.id instanceof Number) && !JSONObject.NULL.equals(message.id)) {
+                return "[V2] The \"id\" property MUST be an string, number or null if present.";
+            }
+            return null;
         }else if(Message.isResponseMessage(message)){
-            if (message.has("result") && message.has("error")){
-                throw new JSONRPCException("[V2] Only one property \"result\" or \"error\" can be present.");
+            if (message.result != null && message.error != null){
+                return "[V2] Only one property \"result\" or \"error\" can be present.";
             }
-            if(message.has("error")){
-                JSONObject error = message.getJSONObject("error");
+            if(message.error != null){
+                if (!(message.error instanceof JSONObject)) {
+                    return "[V2] The \"error\" property MUST be an object.";
+                }
+                JSONObject error = (JSONObject) message.error;
                 if (!error.has("code")) {
-                    throw new JSONRPCException("[V2] The error object MUST have a \"code\" property.");
+                    return "[V2] The error object MUST have a \"code\" property.";
                 }
                 if (!error.has("message")) {
-                    throw new JSONRPCException("[V2] The error object MUST have a \"message\" property.");
+                    return "[V2] The error object MUST have a \"message\" property.";
                 }
                 if (!(error.get("code") instanceof Integer)) {
-                    throw new JSONRPCException("[V2] The \"code\" property of the error object MUST be an integer.");
+                    return "[V2] The \"code\" property of the error object MUST be an integer.";
                 }
                 if (!(error.get("message") instanceof String)) {
-                    throw new JSONRPCException("[V2] The \"message\" property of the error object MUST be a string.");
+                    return "[V2] The \"message\" property of the error object MUST be a string.";
                 }
             }
-            if(message.has("id")){
-                return new ResponseMessage(message);
-            } else {
-                throw new JSONRPCException("[V2] Missing \"id\" property in response.");
+            if(message.id == null){
+                return "[V2] Missing \"id\" property in response.";
             }
+            return null;
         }else{
-            throw new JSONRPCException("[V2] Unknown message type.");
+            return "[V2] Unknown message type.";
         }
     }
 
@@ -594,101 +1074,153 @@ public abstract class Message {
      * @param message
      * @return
      */
-    private static boolean isRequestMessage(JSONObject message) {
-        return message.has("method") || message.has("params");
+    private static boolean isRequestMessage(MessageData message) {
+        return message.method != null || message.params != null;
     }
 
     /**
      * @param message
      * @return
      */
-    private static boolean isResponseMessage(JSONObject message) {
-        return message.has("result") || message.has("error");
+    private static boolean isResponseMessage(MessageData message) {
+        return message.result != null || message.error != null;
+    }
+
+    /**
+     * @param id The id slot
+     * @param strictId
+     * @return True if the id makes a request expect a response, false if not.
+     */
+    private static boolean isIdPresent(Object id, boolean strictId) {
+        return id != null && (strictId?(!JSONObject.NULL.equals(id)):(!Message.isFalsy(id)));
     }
 
     /**
      * @param message
-     * @throws JSONRPCException
+     * @return The reason the property is invalid, or null if it is valid.
      */
-    private static void validateMethodProperty(JSONObject message) throws JSONRPCException {
-        if (!message.has("method")) {
-            throw new JSONRPCException("Missing \"method\" property in request.");
+    private static String validateMethodProperty(MessageData message) {
+        if (message.method == null) {
+            return "Missing \"method\" property in request.";
         }
-        if (!(message.get("method") instanceof String)) {
-            throw new JSONRPCException("The \"method\" property in request MUST be a string.");
+        if (!(message.method instanceof String)) {
+            return "The \"method\" property in request MUST be a string.";
         }
+        return null;
     }
 
     /**
      * @param message
-     * @throws JSONRPCException
+     * @return The reason the property is invalid, or null if it is valid.
      */
-    private static void validateParamsPropertyV1(JSONObject message) throws JSONRPCException {
-        if (!message.has("params")) {
-            throw new JSONRPCException("[V1] Missing \"params\" property in request.");
+    private static String validateParamsPropertyV1(MessageData message) {
+        if (message.params == null) {
+            return "[V1] Missing \"params\" property in request.";
         }
-        if (!(message.get("params") instanceof JSONArray)) {
-            throw new JSONRPCException("[V1] The \"params\" property in request MUST be an array.");
+        if (!Message.isArray(message.params)) {
+            return "[V1] The \"params\" property in request MUST be an array.";
         }
+        return null;
     }
 
     /**
      * @param message
-     * @throws JSONRPCException
+     * @return The reason the property is invalid, or null if it is valid.
      */
-    private static void validateResultPropertyV1(JSONObject message) throws JSONRPCException {
-        if (!message.has("result")) {
-            throw new JSONRPCException("[V1] Missing \"result\" property in request.");
+    private static String validateResultPropertyV1(MessageData message) {
+        if (message.result == null) {
+            return "[V1] Missing \"result\" property in request.";
         }
+        return null;
     }
 
     /**
      *
      * @param message
-     * @throws JSONRPCException
+     * @return The reason the property is invalid, or null if it is valid.
      */
-    private static void validateErrorPropertyV1(JSONObject message) throws JSONRPCException {
-        if (!message.has("error")) {
-            throw new JSONRPCException("[V1] Missing \"error\" property in request.");
+    private static String validateErrorPropertyV1(MessageData message) {
+        if (message.error == null) {
+            return "[V1] Missing \"error\" property in request.";
         }
-        if (!(message.get("error") instanceof JSONObject) && !(message.get("error") instanceof String) && !message.isNull("error")) {
-            throw new JSONRPCException("[V1] The \"error\" property in request MUST be an string, object or null.");
+        if (!(message.error instanceof JSONObject) && !(message.error instanceof String) && !JSONObject.NULL.equals(message.error)) {
+            return "[V1] The \"error\" property in request MUST be an string, object or null.";
         }
+        return null;
     }
 
     /**
      *
      * @param message
-     * @param strictId
-     * @return
+     * @return The reason the message is invalid, or null if it is valid.
      */
-    private static Message handleMessageV1(JSONObject message,boolean strictId) throws JSONRPCException{
+    private static String validateMessageV1(MessageData message) {
         if(Message.isRequestMessage(message)){
-            Message.validateMethodProperty(message);
-            Message.validateParamsPropertyV1(message);
-
-            if(message.has("id") && (strictId?(!message.isNull("id")):(!Message.isFalsy(message.get("id"))))){
-                return new RequestMessage(message);
-            } else {
-                return new NotificationMessage(message);
+            String error = Message.validateMethodProperty(message);
+            if (error == null) {
+                error = Message.validateParamsPropertyV1(message);
             }
+            return error;
         }else if(Message.isResponseMessage(message)){
-            Message.validateResultPropertyV1(message);
-            Message.validateErrorPropertyV1(message);
-            if(!message.isNull("result") && !message.isNull("error")){
-                throw new JSONRPCException("[V1] Only one property \"result\" or \"error\" can be non null.");
+            String error = Message.validateResultPropertyV1(message);
+            if (error == null) {
+                error = Message.validateErrorPropertyV1(message);
             }
-
-            if(message.has("id")){
-                return new ResponseMessage(message);
-            }else{
-                throw new JSONRPCException("[V1] Missing \"id\" property in response.");
+            if (error != null) {
+                return error;
             }
+            if(!JSONObject.NULL.equals(message.result) && !JSONObject.NULL.equals(message.error)){
+                return "[V1] Only one property \"result\" or \"error\" can be non null.";
+            }
+            if(message.id == null){
+                return "[V1] Missing \"id\" property in response.";
+            }
+            return null;
         }else{
-            throw new JSONRPCException("[V1] Unknown message type.");
+            return "[V1] Unknown message type.";
         }
     }
 
+    /**
+     * @param id
+     * @return The id boxed like a parsed one: as Integer if it fits, as Long if not.
+     */
+    private static Object boxId(long id) {
+        return id == (int) id ? (Object) (int) id : (Object) id;
+    }
+
+    /**
+     * @param value
+     * @return True if the value is an array, also when undecoded, false if not.
+     */
+    private static boolean isArray(Object value) {
+        return value instanceof JSONArray || (value instanceof RawJSON && ((RawJSON) value).isArray());
+    }
+
+    /**
+     * @param value
+     * @return True if the value is an object, also when undecoded, false if not.
+     */
+    private static boolean isObject(Object value) {
+        return value instanceof JSONObject || (value instanceof RawJSON && ((RawJSON) value).isObject());
+    }
+
+    private static Object decodeRaw(Object value) {
+        return value instanceof RawJSON ? ((RawJSON) value).getValue() : value;
+    }
+
+    private static RawJSON raw(Object value) {
+        return value instanceof RawJSON ? (RawJSON) value : null;
+    }
+
+    /**
+     * @param value A member slot
+     * @return True if the member is present and not null, false if not.
+     */
+    private static boolean isPresent(Object value) {
+        return value != null && !JSONObject.NULL.equals(value);
+    }
+
     private static boolean isFalsy(Object value){
         if(value==null){
             return true;
@@ -700,6 +1232,10 @@ public abstract class Message {
             boolean b = (boolean) value;
             return !b;
         }
+        if(value instanceof Integer || value instanceof Long){
+            // Same outcome as the conversions below, which all hold if the lowest byte is zero
+            return (((Number) value).longValue() & 0xFF) == 0;
+        }
         if(value instanceof Number){
             Number n = (Number) value;
             if(n.byteValue()==0){
@@ -0,0 +1,238 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses and validates the elements of a batch in parallel. Results are returned in the original order, with a
+ * {@link ParseResult} per element, so invalid elements do not affect the others.
+ * <p>
+ * Byte input is split into element ranges by a single scan; each range is then parsed independently. Input that is
+ * not a batch yields a single result. Input that is not valid JSON, including an element with a duplicate key at any
+ * depth, fails as a whole.
+ */
+public final class MessageBatchParser {
+
+    /**
+     * Batches smaller than this are parsed on the calling thread.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 32;
+
+    private MessageBatchParser() {
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @return The results in batch order
+     * @throws JSONRPCException If the input is not valid JSON
+     */
+    public static List<ParseResult> parse(byte[] bytes) throws JSONRPCException {
+        return MessageBatchParser.parse(bytes, 0, bytes.length, true, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @param strictId
+     * @param pool The pool to parse on
+     * @return The results in batch order
+     * @throws JSONRPCException If the input is not valid JSON
+     */
+    public static List<ParseResult> parse(byte[] bytes, int offset, int length, boolean strictId, ForkJoinPool pool) throws JSONRPCException {
+        return MessageBatchParser.parse(MessageBatchParser.elements(bytes, offset, length, strictId), pool);
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @param strictId
+     * @param executor The executor to parse on
+     * @return The results in batch order
+     * @throws JSONRPCException If the input is not valid JSON
+     */
+    public static List<ParseResult> parse(byte[] bytes, int offset, int length, boolean strictId, Executor executor) throws JSONRPCException {
+        return MessageBatchParser.parse(MessageBatchParser.elements(bytes, offset, length, strictId), executor);
+    }
+
+    /**
+     * @param batch The decoded batch
+     * @param strictId
+     * @param pool The pool to validate on
+     * @return The results in batch order
+     */
+    public static List<ParseResult> parse(JSONArray batch, boolean strictId, ForkJoinPool pool) {
+        return MessageBatchParser.parse(new TreeElements(batch, strictId), pool);
+    }
+
+    /**
+     * @param bytes CBOR
+     * @return The results in batch order
+     * @throws JSONRPCException If the input is not valid CBOR
+     */
+    public static List<ParseResult> parseCBOR(byte[] bytes) throws JSONRPCException {
+        return MessageBatchParser.parseCBOR(bytes, 0, bytes.length, true, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param bytes CBOR
+     * @param offset The offset
+     * @param length The length
+     * @param strictId
+     * @param pool The pool to validate on
+     * @return The results in batch order
+     * @throws JSONRPCException If the input is not valid CBOR
+     */
+    public static List<ParseResult> parseCBOR(byte[] bytes, int offset, int length, boolean strictId, ForkJoinPool pool) throws JSONRPCException {
+        Object decoded = Message.decodeCBOR(bytes, offset, length);
+        if (decoded instanceof JSONArray) {
+            return MessageBatchParser.parse((JSONArray) decoded, strictId, pool);
+        }
+        return Collections.singletonList(Message.tryParse(decoded, strictId));
+    }
+
+    private static List<ParseResult> parse(Elements elements, ForkJoinPool pool) {
+        ParseResult[] results = new ParseResult[elements.size()];
+        if (results.length < SEQUENTIAL_THRESHOLD) {
+            MessageBatchParser.parseRange(elements, results, 0, results.length);
+        } else {
+            pool.invoke(new ParseAction(elements, results, 0, results.length, MessageBatchParser.chunkSize(results.length, pool.getParallelism())));
+        }
+        return Arrays.asList(results);
+    }
+
+    private static List<ParseResult> parse(Elements elements, Executor executor) {
+        ParseResult[] results = new ParseResult[elements.size()];
+        if (results.length < SEQUENTIAL_THRESHOLD) {
+            MessageBatchParser.parseRange(elements, results, 0, results.length);
+            return Arrays.asList(results);
+        }
+        int chunk = MessageBatchParser.chunkSize(results.length, Runtime.getRuntime().availableProcessors());
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[(results.length + chunk - 1) / chunk];
+        for (int i = 0; i < futures.length; i++) {
+            int from = i * chunk;
+            int to = Math.min(from + chunk, results.length);
+            futures[i] = CompletableFuture.runAsync(() -> MessageBatchParser.parseRange(elements, results, from, to), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+        return Arrays.asList(results);
+    }
+
+    private static Elements elements(byte[] bytes, int offset, int length, boolean strictId) throws JSONRPCException {
+        int[] frames = MessageParser.frameArray(bytes, offset, length);
+        if (frames != null) {
+            return new ByteElements(bytes, frames, strictId);
+        }
+        Object object = Message.decodeJSON(new String(bytes, offset, length, StandardCharsets.UTF_8));
+        if (Message.isBatch(object)) {
+            return new TreeElements((JSONArray) object, strictId);
+        }
+        return new TreeElements(new JSONArray().put(object), strictId);
+    }
+
+    private static int chunkSize(int size, int parallelism) {
+        return Math.max(SEQUENTIAL_THRESHOLD / 2, size / (Math.max(1, parallelism) * 4));
+    }
+
+    private static void parseRange(Elements elements, ParseResult[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = elements.parse(i);
+        }
+    }
+
+    private interface Elements {
+
+        int size();
+
+        ParseResult parse(int index);
+
+    }
+
+    private static final class ByteElements implements Elements {
+
+        private final byte[] bytes;
+        private final int[] frames;
+        private final boolean strictId;
+
+        private ByteElements(byte[] bytes, int[] frames, boolean strictId) {
+            this.bytes = bytes;
+            this.frames = frames;
+            this.strictId = strictId;
+        }
+
+        @Override
+        public int size() {
+            return this.frames.length >> 1;
+        }
+
+        @Override
+        public ParseResult parse(int index) {
+            return Message.tryParse(this.bytes, this.frames[index << 1], this.frames[(index << 1) + 1], this.strictId);
+        }
+
+    }
+
+    private static final class TreeElements implements Elements {
+
+        private final JSONArray batch;
+        private final boolean strictId;
+
+        private TreeElements(JSONArray batch, boolean strictId) {
+            this.batch = batch;
+            this.strictId = strictId;
+        }
+
+        @Override
+        public int size() {
+            return this.batch.length();
+        }
+
+        @Override
+        public ParseResult parse(int index) {
+            return Message.tryParse(this.batch.get(index), this.strictId);
+        }
+
+    }
+
+    private static final class ParseAction extends RecursiveAction {
+
+        private final Elements elements;
+        private final ParseResult[] results;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        private ParseAction(Elements elements, ParseResult[] results, int from, int to, int chunk) {
+            this.elements = elements;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.chunk) {
+                MessageBatchParser.parseRange(this.elements, this.results, this.from, this.to);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            ForkJoinTask.invokeAll(
+                    new ParseAction(this.elements, this.results, this.from, middle, this.chunk),
+                    new ParseAction(this.elements, this.results, middle, this.to, this.chunk)
+            );
+        }
+
+    }
+
+}
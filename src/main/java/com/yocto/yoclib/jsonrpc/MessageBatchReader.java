@@ -0,0 +1,132 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the messages of a (batch) body one at a time, with memory bounded by the largest single element.
+ * Each element is returned as soon as it has been read, and an invalid element does not affect the others.
+ * <p>
+ * The input is read in chunks when iterating, read errors are thrown as {@link UncheckedIOException}.
+ * The source is not closed.
+ */
+public class MessageBatchReader implements Iterator<ParseResult> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ArrayDeque<ParseResult> results = new ArrayDeque<>();
+    private final MessageStreamParser parser;
+
+    private boolean batch;
+    private boolean eof;
+
+    /**
+     * @param stream UTF-8 encoded JSON input stream
+     */
+    public MessageBatchReader(InputStream stream) {
+        this(stream, true);
+    }
+
+    /**
+     * @param stream UTF-8 encoded JSON input stream
+     * @param strictId
+     */
+    public MessageBatchReader(InputStream stream, boolean strictId) {
+        this(Channels.newChannel(stream), strictId);
+    }
+
+    /**
+     * @param channel UTF-8 encoded JSON channel
+     * @param strictId
+     */
+    public MessageBatchReader(ReadableByteChannel channel, boolean strictId) {
+        this(channel, strictId, MessageStreamParser.DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * @param channel UTF-8 encoded JSON channel
+     * @param strictId
+     * @param maxMessageSize The maximum size of a batch element, a larger one is read as failure
+     */
+    public MessageBatchReader(ReadableByteChannel channel, boolean strictId, int maxMessageSize) {
+        this.channel = channel;
+        this.parser = new MessageStreamParser(new MessageStreamParser.Listener() {
+            @Override
+            public void onMessage(Message message) {
+                MessageBatchReader.this.results.add(ParseResult.success(message));
+            }
+
+            @Override
+            public void onError(JSONRPCException exception) {
+                MessageBatchReader.this.results.add(ParseResult.failure(exception));
+            }
+
+            @Override
+            public void onBatchStart() {
+                MessageBatchReader.this.batch = true;
+            }
+        }, strictId, maxMessageSize);
+    }
+
+    /**
+     * @return True if the input is a batch array, false if not. Only reliable after the first element was read.
+     */
+    public boolean isBatch() {
+        return this.batch;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (this.results.isEmpty() && !this.eof) {
+            this.read();
+        }
+        return !this.results.isEmpty();
+    }
+
+    @Override
+    public ParseResult next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.results.poll();
+    }
+
+    /**
+     * @return A sequential stream of the remaining results
+     */
+    public Stream<ParseResult> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private void read() {
+        int read;
+        try {
+            read = this.channel.read(this.buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (read < 0) {
+            this.eof = true;
+            this.parser.finish();
+            return;
+        }
+        ((Buffer) this.buffer).flip();
+        this.parser.feed(this.buffer);
+        ((Buffer) this.buffer).clear();
+    }
+
+}
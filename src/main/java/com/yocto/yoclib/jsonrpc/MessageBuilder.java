@@ -0,0 +1,419 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A mutable V2 request, notification or response that is encoded directly, without creating a message or an object
+ * tree. A builder is meant to be reset and reused, per thread through {@link #get()} or per connection; it keeps its
+ * encoding buffer between messages, unless a message grew it beyond 64 KB. It is not thread-safe.
+ * <p>
+ * Setting a method makes a request, or a notification if no id is set. Setting a result or an error makes a
+ * response, with a null id if none is set. The members are validated like by the factories of {@link Message} when
+ * encoding or building, and the output is byte-identical to {@code encodeJSON(build().toObject())}, as the member
+ * order is derived from those factories at class initialization.
+ */
+public final class MessageBuilder {
+
+    private static final ThreadLocal<MessageBuilder> BUILDERS = ThreadLocal.withInitial(MessageBuilder::new);
+
+    private static final int BUFFER_SIZE = 256;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final int ID = 0;
+    private static final int METHOD = 1;
+    private static final int PARAMS = 2;
+    private static final int RESULT = 3;
+    private static final int CODE = 4;
+    private static final int MESSAGE = 5;
+    private static final int DATA = 6;
+
+    /**
+     * The encoded marker of each slot, in slot order.
+     */
+    private static final String[] MARKERS = {
+            "\"ID_MARKER\"",
+            "\"METHOD_MARKER\"",
+            "[\"PARAMS_MARKER\"]",
+            "\"RESULT_MARKER\"",
+            "1234567890",
+            "\"MESSAGE_MARKER\"",
+            "\"DATA_MARKER\"",
+    };
+
+    private static final Template REQUEST;
+    private static final Template REQUEST_WITH_PARAMS;
+    private static final Template NOTIFICATION;
+    private static final Template NOTIFICATION_WITH_PARAMS;
+    private static final Template RESULT_RESPONSE;
+    private static final Template ERROR_RESPONSE;
+    private static final Template ERROR_RESPONSE_WITH_DATA;
+
+    static {
+        try {
+            Object id = "ID_MARKER";
+            String method = "METHOD_MARKER";
+            JSONArray params = new JSONArray().put("PARAMS_MARKER");
+            JSONObject error = new JSONObject().put("code", 1234567890).put("message", "MESSAGE_MARKER");
+            REQUEST = Template.of(Message.createRequestMessageV2(id, method));
+            REQUEST_WITH_PARAMS = Template.of(Message.createRequestMessageV2(id, method, params));
+            NOTIFICATION = Template.of(Message.createNotificationMessageV2(method));
+            NOTIFICATION_WITH_PARAMS = Template.of(Message.createNotificationMessageV2(method, params));
+            RESULT_RESPONSE = Template.of(Message.createResponseMessageV2(id, "RESULT_MARKER"));
+            ERROR_RESPONSE = Template.of(Message.createResponseMessageV2(id, null, error));
+            ERROR_RESPONSE_WITH_DATA = Template.of(Message.createResponseMessageV2(id, null, new JSONObject().put("code", 1234567890).put("message", "MESSAGE_MARKER").put("data", "DATA_MARKER")));
+        } catch (JSONRPCException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Pre-encoded parts of a message shape, to be written alternately with the slots.
+     */
+    private static final class Template {
+
+        private final byte[][] parts;
+        private final int[] slots;
+
+        private Template(byte[][] parts, int[] slots) {
+            this.parts = parts;
+            this.slots = slots;
+        }
+
+        private static Template of(Message message) throws JSONRPCException {
+            String json = Message.encodeJSON(message.toObject());
+            int[] positions = new int[MARKERS.length];
+            int count = 0;
+            for (int slot = 0; slot < MARKERS.length; slot++) {
+                positions[slot] = json.indexOf(MARKERS[slot]);
+                if (positions[slot] >= 0) {
+                    count++;
+                }
+            }
+            int[] slots = new int[count];
+            byte[][] parts = new byte[count + 1][];
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                int next = -1;
+                for (int slot = 0; slot < MARKERS.length; slot++) {
+                    if (positions[slot] >= start && (next < 0 || positions[slot] < positions[next])) {
+                        next = slot;
+                    }
+                }
+                slots[i] = next;
+                parts[i] = json.substring(start, positions[next]).getBytes(StandardCharsets.UTF_8);
+                start = positions[next] + MARKERS[next].length();
+            }
+            parts[count] = json.substring(start).getBytes(StandardCharsets.UTF_8);
+            return new Template(parts, slots);
+        }
+
+    }
+
+    private boolean hasId;
+    private boolean longId;
+    private Object id;
+    private long idValue;
+    private String method;
+    private Object params;
+    private boolean hasResult;
+    private Object result;
+    private boolean hasError;
+    private int errorCode;
+    private String errorMessage;
+    private Object errorData;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Creates an empty builder, to be reused per connection for example.
+     */
+    public MessageBuilder() {
+    }
+
+    /**
+     * Returns the builder of the calling thread, reset. It MUST NOT be kept after the message is encoded, as a nested
+     * use on the same thread resets it.
+     *
+     * @return The builder
+     */
+    public static MessageBuilder get() {
+        return BUILDERS.get().reset();
+    }
+
+    /**
+     * Clears every member. The encoding buffer is kept.
+     *
+     * @return This builder
+     */
+    public MessageBuilder reset() {
+        this.hasId = false;
+        this.longId = false;
+        this.id = null;
+        this.idValue = 0;
+        this.method = null;
+        this.params = null;
+        this.hasResult = false;
+        this.result = null;
+        this.hasError = false;
+        this.errorCode = 0;
+        this.errorMessage = null;
+        this.errorData = null;
+        return this;
+    }
+
+    /**
+     * @param id The id, null is written as JSON null
+     * @return This builder
+     */
+    public MessageBuilder id(Object id) {
+        this.hasId = true;
+        this.longId = false;
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * Sets an integer id without boxing it.
+     *
+     * @param id The id
+     * @return This builder
+     */
+    public MessageBuilder id(long id) {
+        this.hasId = true;
+        this.longId = true;
+        this.id = null;
+        this.idValue = id;
+        return this;
+    }
+
+    /**
+     * @param method The method
+     * @return This builder
+     */
+    public MessageBuilder method(String method) {
+        this.method = method;
+        return this;
+    }
+
+    /**
+     * @param params The params, null if absent
+     * @return This builder
+     */
+    public MessageBuilder params(Object params) {
+        this.params = params;
+        return this;
+    }
+
+    /**
+     * @param result The result, null is written as JSON null
+     * @return This builder
+     */
+    public MessageBuilder result(Object result) {
+        this.hasResult = true;
+        this.result = result;
+        return this;
+    }
+
+    /**
+     * @param code The error code
+     * @param message The error message
+     * @return This builder
+     */
+    public MessageBuilder error(int code, String message) {
+        return this.error(code, message, null);
+    }
+
+    /**
+     * @param code The error code
+     * @param message The error message
+     * @param data The error data, null if absent
+     * @return This builder
+     */
+    public MessageBuilder error(int code, String message, Object data) {
+        this.hasError = true;
+        this.errorCode = code;
+        this.errorMessage = message;
+        this.errorData = data;
+        return this;
+    }
+
+    /**
+     * Creates the message the builder describes, with the factories of {@link Message}.
+     *
+     * @return The request, notification or response
+     * @throws JSONRPCException If the members are invalid
+     */
+    public Message build() throws JSONRPCException {
+        Template template = this.template();
+        if (template == NOTIFICATION || template == NOTIFICATION_WITH_PARAMS) {
+            return Message.createNotificationMessageV2(this.method, this.params);
+        }
+        if (template == REQUEST || template == REQUEST_WITH_PARAMS) {
+            return Message.createRequestMessageV2(this.boxedId(), this.method, this.params);
+        }
+        if (template == RESULT_RESPONSE) {
+            return Message.createResponseMessageV2(this.boxedId(), this.result != null ? this.result : JSONObject.NULL);
+        }
+        JSONObject error = new JSONObject().put("code", this.errorCode).put("message", this.errorMessage).putOpt("data", this.errorData);
+        return Message.createResponseMessageV2(this.boxedId(), null, error);
+    }
+
+    /**
+     * @return The UTF-8 encoded message
+     * @throws JSONRPCException If the members are invalid or a value can not be encoded
+     */
+    public byte[] encode() throws JSONRPCException {
+        this.encodeToBuffer();
+        byte[] bytes = Arrays.copyOf(this.buffer.array(), this.buffer.position());
+        this.releaseBuffer();
+        return bytes;
+    }
+
+    /**
+     * @param stream The stream, which is not flushed or closed
+     * @throws IOException If writing fails
+     * @throws JSONRPCException If the members are invalid or a value can not be encoded
+     */
+    public void writeTo(OutputStream stream) throws IOException, JSONRPCException {
+        this.encodeToBuffer();
+        try {
+            stream.write(this.buffer.array(), 0, this.buffer.position());
+        } finally {
+            this.releaseBuffer();
+        }
+    }
+
+    /**
+     * @param buffer The buffer, written starting at its position
+     * @throws JSONRPCException If the members are invalid or a value can not be encoded
+     * @throws BufferOverflowException If the buffer is too small, its position is left unchanged.
+     */
+    public void writeTo(ByteBuffer buffer) throws JSONRPCException {
+        this.encodeToBuffer();
+        try {
+            if (buffer.remaining() < this.buffer.position()) {
+                throw new BufferOverflowException();
+            }
+            buffer.put(this.buffer.array(), 0, this.buffer.position());
+        } finally {
+            this.releaseBuffer();
+        }
+    }
+
+    /**
+     * Encodes the message into the own buffer, growing it until the message fits.
+     *
+     * @throws JSONRPCException If the members are invalid or a value can not be encoded
+     */
+    private void encodeToBuffer() throws JSONRPCException {
+        Template template = this.template();
+        while (true) {
+            ((Buffer) this.buffer).clear();
+            try {
+                for (int i = 0; i < template.slots.length; i++) {
+                    this.buffer.put(template.parts[i]);
+                    this.putSlot(template.slots[i]);
+                }
+                this.buffer.put(template.parts[template.slots.length]);
+                return;
+            } catch (BufferOverflowException e) {
+                this.buffer = ByteBuffer.allocate(this.buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Drops a buffer grown by a large message once it has been copied out, so a long-lived builder does not keep it.
+     */
+    private void releaseBuffer() {
+        if (this.buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+
+    private void putSlot(int slot) throws JSONRPCException {
+        switch (slot) {
+            case ID:
+                if (this.longId) {
+                    ResponseTemplates.putLong(this.idValue, this.buffer);
+                } else {
+                    ResponseTemplates.putId(this.id, this.buffer);
+                }
+                break;
+            case METHOD:
+                ResponseTemplates.putId(this.method, this.buffer);
+                break;
+            case PARAMS:
+                ResponseTemplates.putResult(this.params, this.buffer);
+                break;
+            case RESULT:
+                ResponseTemplates.putResult(this.result, this.buffer);
+                break;
+            case CODE:
+                ResponseTemplates.putLong(this.errorCode, this.buffer);
+                break;
+            case MESSAGE:
+                ResponseTemplates.putId(this.errorMessage, this.buffer);
+                break;
+            case DATA:
+                ResponseTemplates.putResult(this.errorData, this.buffer);
+                break;
+        }
+    }
+
+    /**
+     * Validates the members like the factories of {@link Message} do.
+     *
+     * @return The template of the message shape
+     * @throws JSONRPCException If the members are invalid
+     */
+    private Template template() throws JSONRPCException {
+        boolean request = this.method != null || this.params != null;
+        boolean response = this.hasResult || this.hasError;
+        if (request && response) {
+            throw JSONRPCException.invalidArgument("[V2] Unknown message type.");
+        }
+        if (request) {
+            if (this.method == null) {
+                throw JSONRPCException.invalidArgument("Missing \"method\" property in request.");
+            }
+            if (this.params != null && !(this.params instanceof JSONObject) && !(this.params instanceof JSONArray) && !(this.params instanceof RawJSON && (((RawJSON) this.params).isObject() || ((RawJSON) this.params).isArray()))) {
+                throw JSONRPCException.invalidArgument("[V2] The \"params\" property in request MUST be an object, array or null.");
+            }
+            if (this.hasId) {
+                return this.params != null ? REQUEST_WITH_PARAMS : REQUEST;
+            }
+            return this.params != null ? NOTIFICATION_WITH_PARAMS : NOTIFICATION;
+        }
+        if (!response) {
+            throw JSONRPCException.invalidArgument("[V2] Unknown message type.");
+        }
+        if (this.hasResult && this.hasError) {
+            throw JSONRPCException.invalidArgument("[V2] Only one property \"result\" or \"error\" can be non null.");
+        }
+        if (this.hasResult) {
+            return RESULT_RESPONSE;
+        }
+        if (this.errorMessage == null) {
+            throw JSONRPCException.invalidArgument("[V2] The \"message\" property of the error object MUST be a string.");
+        }
+        return this.errorData != null ? ERROR_RESPONSE_WITH_DATA : ERROR_RESPONSE;
+    }
+
+    private Object boxedId() {
+        if (this.longId) {
+            return this.idValue == (int) this.idValue ? (Object) (int) this.idValue : (Object) this.idValue;
+        }
+        return this.id;
+    }
+
+}
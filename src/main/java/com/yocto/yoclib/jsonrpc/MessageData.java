@@ -0,0 +1,69 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONObject;
+
+/**
+ * The reserved members of a message, each held in its own slot, as collected while parsing or creating a message.
+ * A slot is {@code null} if the member is absent and {@link JSONObject#NULL} if it is present with a null value.
+ */
+final class MessageData {
+
+    Object jsonrpc;
+    Object id;
+    Object method;
+    Object params;
+    Object result;
+    Object error;
+
+    /**
+     * Non-reserved members, or {@code null} if there are none.
+     */
+    JSONObject extra;
+
+    MessageData() {
+    }
+
+    MessageData(Object jsonrpc, Object id, Object method, Object params, Object result, Object error) {
+        this.jsonrpc = jsonrpc;
+        this.id = id;
+        this.method = method;
+        this.params = params;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * @param object The object
+     * @return The slots of the object
+     */
+    static MessageData of(JSONObject object) {
+        MessageData data = new MessageData(object.opt("jsonrpc"), object.opt("id"), object.opt("method"), object.opt("params"), object.opt("result"), object.opt("error"));
+        if (object.length() > data.count()) {
+            for (String key : object.keySet()) {
+                switch (key) {
+                    case "jsonrpc":
+                    case "id":
+                    case "method":
+                    case "params":
+                    case "result":
+                    case "error":
+                        break;
+                    default:
+                        if (data.extra == null) {
+                            data.extra = new JSONObject();
+                        }
+                        data.extra.put(key, object.get(key));
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return The number of present reserved members
+     */
+    private int count() {
+        return (this.jsonrpc != null ? 1 : 0) + (this.id != null ? 1 : 0) + (this.method != null ? 1 : 0) + (this.params != null ? 1 : 0) + (this.result != null ? 1 : 0) + (this.error != null ? 1 : 0);
+    }
+
+}
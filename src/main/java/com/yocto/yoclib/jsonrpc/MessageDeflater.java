@@ -0,0 +1,169 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the encoded messages sent over one connection, to be decompressed in the same order by a
+ * {@link MessageInflater} with the same dictionary.
+ * <p>
+ * The compression context is kept across messages: every message is deflated with a sync flush instead of as a
+ * separate stream, so the member names, method names and values of earlier messages are referenced instead of
+ * repeated. The first messages are helped by a preset dictionary, see {@link #dictionary(Collection, Collection)}.
+ * Like in the permessage-deflate WebSocket extension, the trailing {@code 00 00 FF FF} of every flush is left out.
+ * <p>
+ * A block can be sent over a message-oriented transport as is, or written length-prefixed to a stream with
+ * {@link #write(byte[], OutputStream)}.
+ * <p>
+ * As each block depends on the ones before, blocks MUST be delivered in the order they were compressed in. The methods
+ * are thread-safe, and {@link #write(byte[], OutputStream)} holds the lock until the frame is written, so concurrent
+ * writers keep the order. Callers of {@link #compress(byte[])} sending the blocks themselves MUST ensure it.
+ */
+public class MessageDeflater implements AutoCloseable {
+
+    /**
+     * The end of a sync flush, left out of the blocks.
+     */
+    static final byte[] FLUSH_TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private final Deflater deflater;
+
+    private byte[] buffer = new byte[256];
+
+    /**
+     * @param dictionary The preset dictionary, or null for none
+     */
+    public MessageDeflater(byte[] dictionary) {
+        this(dictionary, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param dictionary The preset dictionary, or null for none
+     * @param level The compression level, 0 to 9
+     */
+    public MessageDeflater(byte[] dictionary, int level) {
+        this.deflater = new Deflater(level, true);
+        if (dictionary != null) {
+            this.deflater.setDictionary(dictionary);
+        }
+    }
+
+    /**
+     * Builds a preset dictionary from encoded sample messages, so the reserved members appear in the order and
+     * combinations the encoder writes them in. Method names and param names are added before the reserved members, as
+     * strings near the end of the dictionary are the cheapest to reference.
+     *
+     * @param methods The method names, like the ones registered with a {@link Dispatcher}
+     * @param paramNames The names of frequently used params, may be empty
+     * @return The dictionary
+     */
+    public static byte[] dictionary(Collection<String> methods, Collection<String> paramNames) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            for (String name : paramNames) {
+                builder.append(Message.encodeJSON(name)).append(':');
+            }
+            for (String method : methods) {
+                builder.append(Message.encodeJSON(Message.createRequestMessageV2(1, method, new JSONArray()).toObject()));
+                builder.append(Message.encodeJSON(Message.createNotificationMessageV2(method, new JSONArray()).toObject()));
+            }
+            for (int code : new int[]{JSONRPCException.INTERNAL_ERROR, JSONRPCException.INVALID_PARAMS, JSONRPCException.METHOD_NOT_FOUND, JSONRPCException.INVALID_REQUEST, JSONRPCException.PARSE_ERROR}) {
+                builder.append(new String(ResponseTemplates.encodeError(code, 1), StandardCharsets.UTF_8));
+            }
+            builder.append(new String(ResponseTemplates.encodeResult(1, "result"), StandardCharsets.UTF_8));
+            builder.append(new String(ResponseTemplates.encodeResult(1, Collections.emptyMap()), StandardCharsets.UTF_8));
+        } catch (JSONRPCException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param message The encoded message
+     * @return The compressed block
+     */
+    public byte[] compress(byte[] message) {
+        return this.compress(message, 0, message.length);
+    }
+
+    /**
+     * @param message The encoded message
+     * @param offset The offset
+     * @param length The length
+     * @return The compressed block
+     */
+    public synchronized byte[] compress(byte[] message, int offset, int length) {
+        this.deflater.setInput(message, offset, length);
+        int position = 0;
+        for (;;) {
+            position += this.deflater.deflate(this.buffer, position, this.buffer.length - position, Deflater.SYNC_FLUSH);
+            if (position < this.buffer.length) {
+                break;
+            }
+            // A full buffer means there may be more output
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+        if (position >= FLUSH_TAIL.length && MessageDeflater.endsWithTail(this.buffer, position)) {
+            position -= FLUSH_TAIL.length;
+        }
+        return Arrays.copyOf(this.buffer, position);
+    }
+
+    /**
+     * Compresses a message and writes it as a frame: the block length as unsigned LEB128 varint, then the block.
+     *
+     * @param message The encoded message
+     * @param stream The stream, not flushed
+     * @throws IOException If writing fails
+     */
+    public synchronized void write(byte[] message, OutputStream stream) throws IOException {
+        byte[] block = this.compress(message);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(block.length + 5);
+        for (int length = block.length; ; length >>>= 7) {
+            if ((length & ~0x7F) == 0) {
+                frame.write(length);
+                break;
+            }
+            frame.write((length & 0x7F) | 0x80);
+        }
+        frame.write(block, 0, block.length);
+        frame.writeTo(stream);
+    }
+
+    /**
+     * @return The number of uncompressed bytes so far
+     */
+    public synchronized long getBytesRead() {
+        return this.deflater.getBytesRead();
+    }
+
+    /**
+     * @return The number of compressed bytes so far, including the left out flush tails
+     */
+    public synchronized long getBytesWritten() {
+        return this.deflater.getBytesWritten();
+    }
+
+    @Override
+    public synchronized void close() {
+        this.deflater.end();
+    }
+
+    private static boolean endsWithTail(byte[] bytes, int end) {
+        for (int i = 0; i < FLUSH_TAIL.length; i++) {
+            if (bytes[end - FLUSH_TAIL.length + i] != FLUSH_TAIL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
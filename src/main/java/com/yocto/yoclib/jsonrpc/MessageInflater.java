@@ -0,0 +1,135 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses the blocks of a {@link MessageDeflater}, in the order they were compressed and with the same
+ * dictionary. After an exception the context is lost and the connection should be closed.
+ */
+public class MessageInflater implements AutoCloseable {
+
+    private final Inflater inflater = new Inflater(true);
+    private final int maxMessageSize;
+
+    private byte[] input = new byte[256];
+    private byte[] buffer = new byte[1024];
+
+    /**
+     * @param dictionary The preset dictionary, or null for none
+     * @param maxMessageSize The maximum size of a decompressed message
+     */
+    public MessageInflater(byte[] dictionary, int maxMessageSize) {
+        if (maxMessageSize < 0) {
+            throw new IllegalArgumentException("The maximum message size MUST NOT be negative.");
+        }
+        if (dictionary != null) {
+            this.inflater.setDictionary(dictionary);
+        }
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @param block The compressed block
+     * @return The encoded message
+     * @throws ZipException If the block is invalid or the message is too large
+     */
+    public byte[] decompress(byte[] block) throws ZipException {
+        return this.decompress(block, 0, block.length);
+    }
+
+    /**
+     * @param block The compressed block
+     * @param offset The offset
+     * @param length The length
+     * @return The encoded message
+     * @throws ZipException If the block is invalid or the message is too large
+     */
+    public synchronized byte[] decompress(byte[] block, int offset, int length) throws ZipException {
+        int tail = MessageDeflater.FLUSH_TAIL.length;
+        if (this.input.length < length + tail) {
+            this.input = new byte[Math.max(this.input.length * 2, length + tail)];
+        }
+        System.arraycopy(block, offset, this.input, 0, length);
+        System.arraycopy(MessageDeflater.FLUSH_TAIL, 0, this.input, length, tail);
+        this.inflater.setInput(this.input, 0, length + tail);
+        int position = 0;
+        for (;;) {
+            if (position == this.buffer.length) {
+                if (position > this.maxMessageSize) {
+                    throw new ZipException("The message exceeds the maximum size of " + this.maxMessageSize + " bytes.");
+                }
+                // One byte beyond the maximum tells a message of exactly the maximum size from a larger one
+                this.buffer = Arrays.copyOf(this.buffer, (int) Math.min(this.buffer.length * 2L, this.maxMessageSize + 1L));
+            }
+            int inflated;
+            try {
+                inflated = this.inflater.inflate(this.buffer, position, this.buffer.length - position);
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid compressed message: " + e.getMessage());
+            }
+            position += inflated;
+            if (inflated == 0 && position < this.buffer.length) {
+                if (this.inflater.needsInput() && !this.inflater.finished()) {
+                    break;
+                }
+                throw new ZipException("Invalid compressed message.");
+            }
+        }
+        if (position > this.maxMessageSize) {
+            throw new ZipException("The message exceeds the maximum size of " + this.maxMessageSize + " bytes.");
+        }
+        return Arrays.copyOf(this.buffer, position);
+    }
+
+    /**
+     * Reads a frame written by {@link MessageDeflater#write(byte[], OutputStream)} and decompresses it.
+     *
+     * @param stream The stream
+     * @return The encoded message, or null at the end of the stream
+     * @throws IOException If reading fails, the stream ends within a frame or the frame is invalid
+     */
+    public byte[] read(InputStream stream) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = stream.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return null;
+                }
+                throw new EOFException();
+            }
+            if (shift > 28) {
+                throw new ZipException("Invalid frame length.");
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        // Deflate adds at most 5 bytes per stored block of 65535 bytes, and a flush
+        if (length < 0 || length > this.maxMessageSize + 5L * (this.maxMessageSize / 65535 + 1) + 16) {
+            throw new ZipException("Invalid frame length.");
+        }
+        byte[] block = new byte[length];
+        for (int read = 0; read < length; ) {
+            int count = stream.read(block, read, length - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+        return this.decompress(block);
+    }
+
+    @Override
+    public synchronized void close() {
+        this.inflater.end();
+    }
+
+}
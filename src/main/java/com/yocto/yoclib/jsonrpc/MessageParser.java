@@ -0,0 +1,771 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A single-pass parser for UTF-8 encoded JSON-RPC messages. The reserved members of the top-level object are read
+ * directly into {@link MessageData} slots, only payload values are built as {@link JSONObject}/{@link JSONArray} trees.
+ * <p>
+ * The parser only accepts strict JSON. For anything else (lenient syntax, malformed input, duplicate keys, excessive
+ * nesting) it gives up, so the caller can fall back to the tokenizer and get exactly the same result or exception.
+ * <p>
+ * In lazy mode, array and object values of {@code params}, {@code result} and {@code error.data} are only checked for
+ * well-formedness and duplicate keys and kept as {@link RawJSON} slices of the input, so lazy parsing accepts exactly
+ * what eager parsing does.
+ */
+final class MessageParser {
+
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+
+    /**
+     * The number of keys of a skipped object compared pairwise before they are decoded into a set.
+     */
+    private static final int COMPARED_KEYS = 8;
+
+    private static final int OTHER = -1;
+    private static final int JSONRPC = 0;
+    private static final int ID = 1;
+    private static final int METHOD = 2;
+    private static final int PARAMS = 3;
+    private static final int RESULT = 4;
+    private static final int ERROR = 5;
+
+    private static final byte[][] RESERVED = {
+            "jsonrpc".getBytes(StandardCharsets.US_ASCII),
+            "id".getBytes(StandardCharsets.US_ASCII),
+            "method".getBytes(StandardCharsets.US_ASCII),
+            "params".getBytes(StandardCharsets.US_ASCII),
+            "result".getBytes(StandardCharsets.US_ASCII),
+            "error".getBytes(StandardCharsets.US_ASCII),
+    };
+
+    private final byte[] bytes;
+    private final int end;
+    private final boolean lazy;
+    private int position;
+
+    private String key;
+
+    private MessageParser(byte[] bytes, int offset, int length, boolean lazy) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.end = offset + length;
+        this.lazy = lazy;
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @return The slots of the message, or {@code null} if the input must be handled by the tokenizer.
+     */
+    static MessageData parse(byte[] bytes, int offset, int length) {
+        return MessageParser.parse(bytes, offset, length, false);
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @param lazy Whether to keep payload values as {@link RawJSON}
+     * @return The slots of the message, or {@code null} if the input must be handled by the tokenizer.
+     */
+    static MessageData parse(byte[] bytes, int offset, int length, boolean lazy) {
+        try {
+            return new MessageParser(bytes, offset, length, lazy).readMessage();
+        } catch (Unsupported | StackOverflowError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON value
+     * @param offset The offset
+     * @param length The length
+     * @return The decoded value
+     */
+    static Object parseValue(byte[] bytes, int offset, int length) {
+        try {
+            return new MessageParser(bytes, offset, length, false).readValue();
+        } catch (Unsupported | StackOverflowError e) {
+            return new JSONTokener(new String(bytes, offset, length, StandardCharsets.UTF_8)).nextValue();
+        }
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @return The decoded value, or {@code null} if the input must be handled by the tokenizer.
+     */
+    static Object decode(byte[] bytes, int offset, int length) {
+        try {
+            MessageParser parser = new MessageParser(bytes, offset, length, false);
+            Object value = parser.readValue();
+            // The tokenizer ignores trailing content, which is not worth a fast path
+            return parser.skipWhitespace() < 0 ? value : null;
+        } catch (Unsupported | StackOverflowError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the element boundaries of an array without building the elements. The elements are checked like
+     * {@link #skipValue()} does, so an element with a duplicate key rejects the whole array.
+     *
+     * @param bytes UTF-8 encoded JSON
+     * @param offset The offset
+     * @param length The length
+     * @return Pairs of element offset and length, or {@code null} if the input is not a strict JSON array.
+     */
+    static int[] frameArray(byte[] bytes, int offset, int length) {
+        try {
+            return new MessageParser(bytes, offset, length, false).readFrames();
+        } catch (Unsupported | StackOverflowError e) {
+            return null;
+        }
+    }
+
+    private int[] readFrames() {
+        if (this.skipWhitespace() != '[') {
+            throw UNSUPPORTED;
+        }
+        this.position++;
+        int[] frames = new int[32];
+        int count = 0;
+        if (this.skipWhitespace() == ']') {
+            return new int[0];
+        }
+        for (;;) {
+            this.skipWhitespace();
+            int start = this.position;
+            this.skipValue();
+            if (count + 2 > frames.length) {
+                frames = Arrays.copyOf(frames, frames.length << 1);
+            }
+            frames[count++] = start;
+            frames[count++] = this.position - start;
+            int c = this.skipWhitespace();
+            this.position++;
+            if (c == ']') {
+                return Arrays.copyOf(frames, count);
+            }
+            if (c != ',') {
+                throw UNSUPPORTED;
+            }
+        }
+    }
+
+    private MessageData readMessage() {
+        if (this.skipWhitespace() != '{') {
+            throw UNSUPPORTED;
+        }
+        this.position++;
+        MessageData data = new MessageData();
+        if (this.skipWhitespace() == '}') {
+            return data;
+        }
+        for (;;) {
+            if (this.skipWhitespace() != '"') {
+                throw UNSUPPORTED;
+            }
+            int slot = this.readKey();
+            String key = this.key;
+            this.expect(':');
+            Object value;
+            if (slot == PARAMS || slot == RESULT) {
+                value = this.readPayload();
+            } else if (slot == ERROR && this.lazy && this.skipWhitespace() == '{') {
+                value = this.readObject(true);
+            } else {
+                value = this.readValue();
+            }
+            switch (slot) {
+                case JSONRPC:
+                    data.jsonrpc = MessageParser.unique(data.jsonrpc, value);
+                    break;
+                case ID:
+                    data.id = MessageParser.unique(data.id, value);
+                    break;
+                case METHOD:
+                    data.method = MessageParser.unique(data.method, value);
+                    break;
+                case PARAMS:
+                    data.params = MessageParser.unique(data.params, value);
+                    break;
+                case RESULT:
+                    data.result = MessageParser.unique(data.result, value);
+                    break;
+                case ERROR:
+                    data.error = MessageParser.unique(data.error, value);
+                    break;
+                default:
+                    if (data.extra == null) {
+                        data.extra = new JSONObject();
+                    } else if (data.extra.has(key)) {
+                        throw UNSUPPORTED;
+                    }
+                    data.extra.put(key, value);
+            }
+            if (this.next() == '}') {
+                return data;
+            }
+        }
+    }
+
+    /**
+     * Reads a key, matching the reserved member names without decoding them.
+     *
+     * @return The slot of the key, {@link #OTHER} if the key is stored in {@link #key}.
+     */
+    private int readKey() {
+        int start = this.position + 1;
+        for (int i = start; i < this.end; i++) {
+            byte b = this.bytes[i];
+            if (b == '"') {
+                int length = i - start;
+                for (int slot = 0; slot < RESERVED.length; slot++) {
+                    if (MessageParser.equals(this.bytes, start, length, RESERVED[slot])) {
+                        this.position = i + 1;
+                        return slot;
+                    }
+                }
+                break;
+            }
+            if (b == '\\' || b < ' ') {
+                break;
+            }
+        }
+        this.key = this.readString();
+        switch (this.key) {
+            case "jsonrpc":
+                return JSONRPC;
+            case "id":
+                return ID;
+            case "method":
+                return METHOD;
+            case "params":
+                return PARAMS;
+            case "result":
+                return RESULT;
+            case "error":
+                return ERROR;
+            default:
+                return OTHER;
+        }
+    }
+
+    private Object readValue() {
+        switch (this.skipWhitespace()) {
+            case '"':
+                return this.readString();
+            case '{':
+                return this.readObject(false);
+            case '[':
+                return this.readArray();
+            case 't':
+                this.readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                this.readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                this.readLiteral("null");
+                return JSONObject.NULL;
+            case '-':
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                return this.readNumber();
+            default:
+                throw UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Reads a payload value, kept raw in lazy mode if it is an array or object.
+     *
+     * @return The value
+     */
+    private Object readPayload() {
+        int c = this.skipWhitespace();
+        if (this.lazy && (c == '[' || c == '{')) {
+            int start = this.position;
+            this.skipValue();
+            return new RawJSON(this.bytes, start, this.position - start);
+        }
+        return this.readValue();
+    }
+
+    /**
+     * @param error Whether this is an error object, with a possibly raw {@code data} member
+     * @return The object
+     */
+    private JSONObject readObject(boolean error) {
+        this.position++;
+        JSONObject object = new JSONObject();
+        if (this.skipWhitespace() == '}') {
+            this.position++;
+            return object;
+        }
+        for (;;) {
+            if (this.skipWhitespace() != '"') {
+                throw UNSUPPORTED;
+            }
+            String key = this.readString();
+            this.expect(':');
+            Object value = error && "data".equals(key) ? this.readPayload() : this.readValue();
+            if (object.has(key)) {
+                throw UNSUPPORTED;
+            }
+            object.put(key, value);
+            if (this.next() == '}') {
+                return object;
+            }
+        }
+    }
+
+    private JSONArray readArray() {
+        this.position++;
+        JSONArray array = new JSONArray();
+        if (this.skipWhitespace() == ']') {
+            this.position++;
+            return array;
+        }
+        for (;;) {
+            array.put(this.readValue());
+            int c = this.skipWhitespace();
+            this.position++;
+            if (c == ']') {
+                return array;
+            }
+            if (c != ',') {
+                throw UNSUPPORTED;
+            }
+        }
+    }
+
+    private String readString() {
+        int start = ++this.position;
+        boolean ascii = true;
+        StringBuilder builder = null;
+        while (this.position < this.end) {
+            byte b = this.bytes[this.position];
+            if (b == '"') {
+                String segment = MessageParser.decode(this.bytes, start, this.position - start, ascii);
+                this.position++;
+                return builder == null ? segment : builder.append(segment).toString();
+            }
+            if (b == '\\') {
+                if (builder == null) {
+                    builder = new StringBuilder();
+                }
+                builder.append(MessageParser.decode(this.bytes, start, this.position - start, ascii));
+                builder.append(this.readEscape());
+                start = this.position;
+                ascii = true;
+                continue;
+            }
+            if (b >= 0 && b < ' ') {
+                throw UNSUPPORTED;
+            }
+            if (b < 0) {
+                ascii = false;
+            }
+            this.position++;
+        }
+        throw UNSUPPORTED;
+    }
+
+    private char readEscape() {
+        if (this.position + 1 >= this.end) {
+            throw UNSUPPORTED;
+        }
+        byte b = this.bytes[this.position + 1];
+        this.position += 2;
+        switch (b) {
+            case 'b':
+                return '\b';
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'f':
+                return '\f';
+            case 'r':
+                return '\r';
+            case '"':
+            case '\'':
+            case '\\':
+            case '/':
+                return (char) b;
+            case 'u':
+                if (this.position + 4 > this.end) {
+                    throw UNSUPPORTED;
+                }
+                int c = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(this.bytes[this.position++], 16);
+                    if (digit < 0) {
+                        throw UNSUPPORTED;
+                    }
+                    c = (c << 4) | digit;
+                }
+                return (char) c;
+            default:
+                throw UNSUPPORTED;
+        }
+    }
+
+    private Object readNumber() {
+        int start = this.position;
+        boolean negative = this.bytes[this.position] == '-';
+        boolean decimal = this.skipNumber();
+        int digits = this.integerDigits(start);
+        // Narrow plain integers like the tokenizer does, everything else goes through its own conversion.
+        if (!decimal && digits <= 18 && !(negative && this.bytes[start + 1] == '0')) {
+            long value = 0;
+            for (int i = start + (negative ? 1 : 0); i < this.position; i++) {
+                value = value * 10 + (this.bytes[i] - '0');
+            }
+            if (negative) {
+                value = -value;
+            }
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            return value;
+        }
+        return JSONObject.stringToValue(new String(this.bytes, start, this.position - start, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return True if the number has a fraction or exponent, false if not.
+     */
+    private boolean skipNumber() {
+        if (this.bytes[this.position] == '-') {
+            this.position++;
+        }
+        int c = this.peek();
+        if (c == '0') {
+            this.position++;
+        } else if (c >= '1' && c <= '9') {
+            this.skipDigits();
+        } else {
+            throw UNSUPPORTED;
+        }
+        boolean decimal = false;
+        if (this.peek() == '.') {
+            this.position++;
+            this.requireDigits();
+            decimal = true;
+        }
+        c = this.peek();
+        if (c == 'e' || c == 'E') {
+            this.position++;
+            c = this.peek();
+            if (c == '+' || c == '-') {
+                this.position++;
+            }
+            this.requireDigits();
+            decimal = true;
+        }
+        this.checkTerminator();
+        return decimal;
+    }
+
+    /**
+     * @param start The start of a plain integer that ends at the current position
+     * @return The number of digits
+     */
+    private int integerDigits(int start) {
+        return this.position - start - (this.bytes[start] == '-' ? 1 : 0);
+    }
+
+    /**
+     * Checks a value for well-formedness and duplicate keys without building it.
+     */
+    private void skipValue() {
+        switch (this.skipWhitespace()) {
+            case '"':
+                this.skipString();
+                return;
+            case '{':
+                this.skipObject();
+                return;
+            case '[':
+                this.position++;
+                if (this.skipWhitespace() == ']') {
+                    this.position++;
+                    return;
+                }
+                for (;;) {
+                    this.skipValue();
+                    int c = this.skipWhitespace();
+                    this.position++;
+                    if (c == ']') {
+                        return;
+                    }
+                    if (c != ',') {
+                        throw UNSUPPORTED;
+                    }
+                }
+            case 't':
+                this.readLiteral("true");
+                return;
+            case 'f':
+                this.readLiteral("false");
+                return;
+            case 'n':
+                this.readLiteral("null");
+                return;
+            case '-':
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                this.skipNumber();
+                return;
+            default:
+                throw UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Checks an object without building it, rejecting duplicate keys like {@link #readObject(boolean)}. The keys are
+     * compared in place while there are few of them and decoded into a set beyond that.
+     */
+    private void skipObject() {
+        this.position++;
+        if (this.skipWhitespace() == '}') {
+            this.position++;
+            return;
+        }
+        int[] keys = null;
+        int count = 0;
+        Set<String> names = null;
+        do {
+            if (this.skipWhitespace() != '"') {
+                throw UNSUPPORTED;
+            }
+            int start = this.position;
+            this.skipString();
+            if (names != null) {
+                if (!names.add(this.stringAt(start))) {
+                    throw UNSUPPORTED;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    if (this.sameString(keys[i], start)) {
+                        throw UNSUPPORTED;
+                    }
+                }
+                if (keys == null) {
+                    keys = new int[COMPARED_KEYS];
+                }
+                if (count < COMPARED_KEYS) {
+                    keys[count++] = start;
+                } else {
+                    names = new HashSet<>();
+                    for (int i = 0; i < count; i++) {
+                        names.add(this.stringAt(keys[i]));
+                    }
+                    names.add(this.stringAt(start));
+                }
+            }
+            this.expect(':');
+            this.skipValue();
+        } while (this.next() == ',');
+    }
+
+    /**
+     * @param first The position of the opening quote of an already checked string
+     * @param second The position of the opening quote of another one
+     * @return True if both strings decode to the same value, false if not.
+     */
+    private boolean sameString(int first, int second) {
+        for (int i = first + 1, j = second + 1; ; i++, j++) {
+            byte a = this.bytes[i];
+            byte b = this.bytes[j];
+            // Plain ASCII decodes to itself, escapes and multi-byte sequences are decoded to compare them
+            if (a == '\\' || b == '\\' || a < 0 || b < 0) {
+                return this.stringAt(first).equals(this.stringAt(second));
+            }
+            if (a != b) {
+                return false;
+            }
+            if (a == '"') {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param start The position of the opening quote of an already checked string
+     * @return The decoded string
+     */
+    private String stringAt(int start) {
+        int position = this.position;
+        this.position = start;
+        String string = this.readString();
+        this.position = position;
+        return string;
+    }
+
+    private void skipString() {
+        this.position++;
+        while (this.position < this.end) {
+            byte b = this.bytes[this.position];
+            if (b == '"') {
+                this.position++;
+                return;
+            }
+            if (b == '\\') {
+                this.readEscape();
+                continue;
+            }
+            if (b >= 0 && b < ' ') {
+                throw UNSUPPORTED;
+            }
+            this.position++;
+        }
+        throw UNSUPPORTED;
+    }
+
+    private void skipDigits() {
+        while (this.position < this.end && this.bytes[this.position] >= '0' && this.bytes[this.position] <= '9') {
+            this.position++;
+        }
+    }
+
+    private void requireDigits() {
+        int start = this.position;
+        this.skipDigits();
+        if (this.position == start) {
+            throw UNSUPPORTED;
+        }
+    }
+
+    private void readLiteral(String literal) {
+        if (this.position + literal.length() > this.end) {
+            throw UNSUPPORTED;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (this.bytes[this.position + i] != literal.charAt(i)) {
+                throw UNSUPPORTED;
+            }
+        }
+        this.position += literal.length();
+        this.checkTerminator();
+    }
+
+    /**
+     * Unquoted values must be followed by a structural character, otherwise the tokenizer would read them as text.
+     */
+    private void checkTerminator() {
+        switch (this.peek()) {
+            case -1:
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+            case ',':
+            case ']':
+            case '}':
+                return;
+            default:
+                throw UNSUPPORTED;
+        }
+    }
+
+    private void expect(char c) {
+        if (this.skipWhitespace() != c) {
+            throw UNSUPPORTED;
+        }
+        this.position++;
+    }
+
+    /**
+     * Consumes the separator after a member.
+     *
+     * @return The separator
+     */
+    private int next() {
+        int c = this.skipWhitespace();
+        if (c != ',' && c != '}') {
+            throw UNSUPPORTED;
+        }
+        this.position++;
+        return c;
+    }
+
+    private int skipWhitespace() {
+        while (this.position < this.end) {
+            byte b = this.bytes[this.position];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return b;
+            }
+            this.position++;
+        }
+        return -1;
+    }
+
+    private int peek() {
+        return this.position < this.end ? this.bytes[this.position] : -1;
+    }
+
+    private static Object unique(Object current, Object value) {
+        if (current != null) {
+            throw UNSUPPORTED;
+        }
+        return value;
+    }
+
+    private static boolean equals(byte[] bytes, int offset, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(byte[] bytes, int offset, int length, boolean ascii) {
+        return new String(bytes, offset, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Signals input the parser leaves to the tokenizer. Preallocated and without stack trace.
+     */
+    private static final class Unsupported extends RuntimeException {
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,358 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A resumable, non-blocking parser for UTF-8 encoded JSON-RPC messages arriving in arbitrary chunks.
+ * The framing state is kept between calls to {@link #feed(ByteBuffer)}, so every byte is scanned only once
+ * and each message is reported as soon as its top-level value (or batch element) is complete.
+ * <p>
+ * A value larger than the maximum message size is reported as error as soon as the limit is reached, and the rest
+ * of it is skipped, so the memory used is bounded by the limit. A buffer grown by a large value is dropped once the
+ * value is complete. The separators of a batch are checked, a missing or extra comma is reported as decoding error and
+ * an empty batch as invalid request.
+ */
+public class MessageStreamParser {
+
+    /**
+     * The maximum message size used if none is given.
+     */
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    /*
+     * The position within a batch: after its opening bracket, after an element or after a comma.
+     */
+    private static final int BATCH_START = 0;
+    private static final int BATCH_ELEMENT = 1;
+    private static final int BATCH_SEPARATOR = 2;
+
+    private final Listener listener;
+    private final boolean strictId;
+    private final int maxMessageSize;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    private boolean batch;
+    private int batchState;
+    private boolean skipping;
+    private boolean inUnit;
+    private boolean inLiteral;
+    private boolean inString;
+    private boolean escape;
+    private int depth;
+
+    /**
+     * @param listener The listener receiving parsed messages
+     */
+    public MessageStreamParser(Listener listener) {
+        this(listener, true);
+    }
+
+    /**
+     * @param listener The listener receiving parsed messages
+     * @param strictId
+     */
+    public MessageStreamParser(Listener listener, boolean strictId) {
+        this(listener, strictId, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * @param listener The listener receiving parsed messages
+     * @param strictId
+     * @param maxMessageSize The maximum size of a top-level value or batch element
+     */
+    public MessageStreamParser(Listener listener, boolean strictId, int maxMessageSize) {
+        if (maxMessageSize < 1) {
+            throw new IllegalArgumentException("The maximum message size MUST be at least 1.");
+        }
+        this.listener = listener;
+        this.strictId = strictId;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Consumes all remaining bytes of the buffer.
+     *
+     * @param buffer The buffer
+     */
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int position = buffer.position();
+            int remaining = buffer.remaining();
+            this.feed(buffer.array(), buffer.arrayOffset() + position, remaining);
+            ((Buffer) buffer).position(position + remaining);
+        } else {
+            while (buffer.hasRemaining()) {
+                this.feed(buffer.get());
+            }
+        }
+    }
+
+    /**
+     * @param bytes The bytes
+     * @param offset The offset
+     * @param length The length
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            this.feed(bytes[i]);
+        }
+    }
+
+    /**
+     * Signals the end of the input. A pending top-level literal is completed, an unfinished value is reported as
+     * decoding error. Afterwards the parser can be reused.
+     */
+    public void finish() {
+        if (this.inLiteral) {
+            this.complete();
+        } else if ((this.inUnit && !this.skipping) || this.batch) {
+            this.listener.onError(JSONRPCException.parseError());
+        }
+        this.reset();
+    }
+
+    /**
+     * Discards all state, including partially received values.
+     */
+    public void reset() {
+        this.length = 0;
+        this.releaseBuffer();
+        this.batch = false;
+        this.batchState = BATCH_START;
+        this.skipping = false;
+        this.inUnit = false;
+        this.inLiteral = false;
+        this.inString = false;
+        this.escape = false;
+        this.depth = 0;
+    }
+
+    /**
+     * @return True if no value is partially received, false if not.
+     */
+    public boolean isIdle() {
+        return !this.inUnit && !this.batch;
+    }
+
+    private void feed(byte b) {
+        if (this.inUnit) {
+            if (this.inLiteral) {
+                if (!MessageStreamParser.isDelimiter(b)) {
+                    this.append(b);
+                    return;
+                }
+                this.complete();
+                // The delimiter belongs to the enclosing context.
+                this.feedBetween(b);
+                return;
+            }
+            this.append(b);
+            if (this.inString) {
+                if (this.escape) {
+                    this.escape = false;
+                } else if (b == '\\') {
+                    this.escape = true;
+                } else if (b == '"') {
+                    this.inString = false;
+                    if (this.depth == 0) {
+                        this.complete();
+                    }
+                }
+                return;
+            }
+            switch (b) {
+                case '"':
+                    this.inString = true;
+                    break;
+                case '{':
+                case '[':
+                    this.depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (--this.depth == 0) {
+                        this.complete();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return;
+        }
+        this.feedBetween(b);
+    }
+
+    private void feedBetween(byte b) {
+        switch (b) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+                return;
+            case ',':
+                if (this.batch && this.batchState == BATCH_ELEMENT) {
+                    this.batchState = BATCH_SEPARATOR;
+                    return;
+                }
+                this.listener.onError(JSONRPCException.parseError());
+                return;
+            case '[':
+                if (!this.batch) {
+                    this.batch = true;
+                    this.batchState = BATCH_START;
+                    this.listener.onBatchStart();
+                    return;
+                }
+                this.start(b);
+                this.depth = 1;
+                return;
+            case '{':
+                this.start(b);
+                this.depth = 1;
+                return;
+            case ']':
+                if (this.batch) {
+                    if (this.batchState == BATCH_START) {
+                        this.listener.onError(JSONRPCException.invalidRequest("A batch MUST NOT be empty."));
+                    } else if (this.batchState == BATCH_SEPARATOR) {
+                        this.listener.onError(JSONRPCException.parseError());
+                    }
+                    this.batch = false;
+                    this.listener.onBatchEnd();
+                    return;
+                }
+                this.listener.onError(JSONRPCException.parseError());
+                return;
+            case '}':
+                this.listener.onError(JSONRPCException.parseError());
+                return;
+            case '"':
+                this.start(b);
+                this.inString = true;
+                return;
+            default:
+                this.start(b);
+                this.inLiteral = true;
+        }
+    }
+
+    private void start(byte b) {
+        if (this.batch) {
+            if (this.batchState == BATCH_ELEMENT) {
+                // A missing comma, the element itself is still parsed
+                this.listener.onError(JSONRPCException.parseError());
+            }
+            this.batchState = BATCH_ELEMENT;
+        }
+        this.inUnit = true;
+        this.length = 0;
+        this.append(b);
+    }
+
+    private void append(byte b) {
+        if (this.skipping) {
+            return;
+        }
+        if (this.length == this.maxMessageSize) {
+            this.skipping = true;
+            this.listener.onError(new JSONRPCException("The message exceeds the maximum size of " + this.maxMessageSize + " bytes.", JSONRPCException.PARSE_ERROR, !JSONRPCException.STACKLESS));
+            return;
+        }
+        if (this.length == this.buffer.length) {
+            byte[] grown = new byte[(int) Math.min(this.buffer.length * 2L, this.maxMessageSize)];
+            System.arraycopy(this.buffer, 0, grown, 0, this.length);
+            this.buffer = grown;
+        }
+        this.buffer[this.length++] = b;
+    }
+
+    private void complete() {
+        int length = this.length;
+        this.inUnit = false;
+        this.inLiteral = false;
+        this.inString = false;
+        this.escape = false;
+        this.depth = 0;
+        this.length = 0;
+        if (this.skipping) {
+            // Already reported when the limit was reached
+            this.skipping = false;
+            this.releaseBuffer();
+            return;
+        }
+        Message message;
+        try {
+            message = Message.parseJSON(this.buffer, 0, length, this.strictId);
+        } catch (JSONRPCException e) {
+            this.listener.onError(e);
+            return;
+        } finally {
+            this.releaseBuffer();
+        }
+        this.listener.onMessage(message);
+    }
+
+    /**
+     * Drops a buffer grown by a large message, so it is not kept for the rest of the connection.
+     */
+    private void releaseBuffer() {
+        if (this.buffer.length > MAX_RETAINED_CAPACITY) {
+            this.buffer = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    private static boolean isDelimiter(byte b) {
+        switch (b) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+            case ',':
+            case ':':
+            case '[':
+            case ']':
+            case '{':
+            case '}':
+            case '"':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Receives the outcome of every completed top-level value or batch element, in input order.
+     */
+    public interface Listener {
+
+        /**
+         * @param message The parsed and validated message
+         */
+        void onMessage(Message message);
+
+        /**
+         * @param exception The decoding or validation exception
+         */
+        void onError(JSONRPCException exception);
+
+        /**
+         * Called when a batch array starts. The elements follow as separate messages or errors.
+         */
+        default void onBatchStart() {
+        }
+
+        /**
+         * Called when a batch array ends.
+         */
+        default void onBatchEnd() {
+        }
+
+    }
+
+}
@@ -11,4 +11,11 @@ public class NotificationMessage extends RequestMessage{
         super(value);
     }
 
+    /**
+     * @param data The member slots
+     */
+    NotificationMessage(MessageData data) {
+        super(data);
+    }
+
 }
\ No newline at end of file
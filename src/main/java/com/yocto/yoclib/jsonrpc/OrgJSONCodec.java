@@ -0,0 +1,70 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * The codec backed by the org.json tokenizer and writer.
+ */
+final class OrgJSONCodec implements JSONCodec {
+
+    @Override
+    public Object decode(String json) throws JSONRPCException {
+        try {
+            return new JSONTokener(json).nextValue();
+        } catch (JSONException $e) {
+            throw JSONRPCException.parseError();
+        }
+    }
+
+    @Override
+    public Object decode(Reader reader) throws JSONRPCException {
+        try {
+            return new JSONTokener(reader).nextValue();
+        } catch (JSONException $e) {
+            throw JSONRPCException.parseError();
+        }
+    }
+
+    @Override
+    public String encode(Object value) throws JSONRPCException {
+        try {
+            if (value instanceof JSONObject) {
+                return ((JSONObject) value).toString(0);
+            }
+            if (value instanceof JSONArray) {
+                return ((JSONArray) value).toString(0);
+            }
+            return JSONObject.valueToString(value);
+        } catch (JSONException e) {
+            throw OrgJSONCodec.encodeError();
+        }
+    }
+
+    @Override
+    public void encode(Object value, Appendable appendable) throws JSONRPCException, IOException {
+        Writer writer = appendable instanceof Writer ? (Writer) appendable : new AppendableWriter(appendable);
+        try {
+            if (value instanceof JSONObject) {
+                ((JSONObject) value).write(writer, 0, 0);
+            } else if (value instanceof JSONArray) {
+                ((JSONArray) value).write(writer, 0, 0);
+            } else {
+                writer.write(JSONObject.valueToString(value));
+            }
+        } catch (JSONException e) {
+            throw OrgJSONCodec.encodeError();
+        }
+    }
+
+    static JSONRPCException encodeError() {
+        return new JSONRPCException("Failed to encode JSON.", JSONRPCException.INTERNAL_ERROR);
+    }
+
+}
@@ -0,0 +1,487 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds positional ({@link JSONArray}) or named ({@link JSONObject}) params onto a Java type, and converts typed
+ * results back into JSON values.
+ * <p>
+ * Records (on Java 16 and later) are bound through their canonical constructor, positional params in component
+ * order. Other classes need a no-argument constructor and are bound through their non-static, non-transient fields;
+ * they only accept positional params if every field declares its position with {@link JSONRPCParam}. Types of the
+ * JDK are not bound. The constructor, accessors and value conversions are resolved once per type into method handles,
+ * and binders are cached per class, without keeping the class loader alive.
+ * <p>
+ * A value of the wrong type, an unknown name or too many positional params raise a
+ * {@link JSONRPCException#INVALID_PARAMS} error. Missing params are left at their default value.
+ *
+ * @param <T> The type
+ */
+public final class ParamsBinder<T> {
+
+    private static final ClassValue<ParamsBinder<?>> BINDERS = new ClassValue<ParamsBinder<?>>() {
+
+        @Override
+        protected ParamsBinder<?> computeValue(Class<?> type) {
+            if (!ParamsBinder.isBindable(type)) {
+                throw new IllegalArgumentException("Can not bind params to " + type.getName() + ", " + UNBINDABLE);
+            }
+            try {
+                return new ParamsBinder<>(type);
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new IllegalArgumentException("Can not bind params to " + type.getName() + ".", e);
+            }
+        }
+
+    };
+
+    private static final String UNBINDABLE = "only records and classes with a no-argument constructor outside of the JDK are supported.";
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> type;
+    private final String[] names;
+    private final Converter[] converters;
+    private final Object[] defaults;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final MethodHandle[] getters;
+    /**
+     * The property index per position, null if positional params are not accepted.
+     */
+    private final int[] positions;
+
+    /**
+     * For records: {@code (Object[])Object} creating an instance from all values. Otherwise {@code ()Object}.
+     */
+    private final MethodHandle constructor;
+    /**
+     * For other classes: {@code (Object,Object)void} per field. Null for records.
+     */
+    private final MethodHandle[] setters;
+
+    private ParamsBinder(Class<T> type) throws ReflectiveOperationException {
+        this.type = type;
+        List<String> names = new ArrayList<>();
+        List<Class<?>> types = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        Object[] components = ParamsBinder.recordComponents(type);
+        if (components != null) {
+            for (Object component : components) {
+                Method accessor = (Method) component.getClass().getMethod("getAccessor").invoke(component);
+                accessor.setAccessible(true);
+                names.add((String) component.getClass().getMethod("getName").invoke(component));
+                types.add(accessor.getReturnType());
+                getters.add(LOOKUP.unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class)));
+            }
+            Constructor<T> constructor = type.getDeclaredConstructor(types.toArray(new Class<?>[0]));
+            constructor.setAccessible(true);
+            this.constructor = LOOKUP.unreflectConstructor(constructor).asSpreader(Object[].class, types.size()).asType(MethodType.methodType(Object.class, Object[].class));
+            this.setters = null;
+            this.positions = new int[components.length];
+            Arrays.setAll(this.positions, i -> i);
+        } else {
+            List<Field> fields = new ArrayList<>();
+            ParamsBinder.collectFields(type, fields);
+            this.setters = new MethodHandle[fields.size()];
+            this.positions = ParamsBinder.positions(type, fields);
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                field.setAccessible(true);
+                names.add(field.getName());
+                types.add(field.getType());
+                getters.add(LOOKUP.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class)));
+                this.setters[i] = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            this.constructor = LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        }
+        this.names = names.toArray(new String[0]);
+        this.getters = getters.toArray(new MethodHandle[0]);
+        this.converters = new Converter[this.names.length];
+        this.defaults = new Object[this.names.length];
+        for (int i = 0; i < this.names.length; i++) {
+            this.indexes.put(this.names[i], i);
+            this.converters[i] = ParamsBinder.converter(types.get(i));
+            this.defaults[i] = ParamsBinder.defaultValue(types.get(i));
+        }
+    }
+
+    /**
+     * @param type The type
+     * @param <T> The type
+     * @return The binder of the type
+     * @throws IllegalArgumentException If the type can not be bound
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ParamsBinder<T> of(Class<T> type) {
+        return (ParamsBinder<T>) BINDERS.get(type);
+    }
+
+    /**
+     * @return The type
+     */
+    public Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * @param params The params: an array, an object, or null if absent
+     * @return The bound instance
+     * @throws JSONRPCException If the params do not match the type
+     */
+    public T bind(Object params) throws JSONRPCException {
+        Object[] values = this.defaults.clone();
+        if (params instanceof RawJSON) {
+            params = ((RawJSON) params).getValue();
+        }
+        if (params instanceof JSONArray) {
+            JSONArray array = (JSONArray) params;
+            if (this.positions == null) {
+                throw ParamsBinder.invalidParams("The params MUST be an object.");
+            }
+            if (array.length() > this.positions.length) {
+                throw ParamsBinder.invalidParams("Expected at most " + this.positions.length + " params, got " + array.length() + ".");
+            }
+            for (int i = 0; i < array.length(); i++) {
+                int index = this.positions[i];
+                values[index] = this.convert(index, array.opt(i));
+            }
+        } else if (params instanceof JSONObject) {
+            JSONObject object = (JSONObject) params;
+            for (String key : object.keySet()) {
+                Integer index = this.indexes.get(key);
+                if (index == null) {
+                    throw ParamsBinder.invalidParams("Unknown param \"" + key + "\".");
+                }
+                values[index] = this.convert(index, object.opt(key));
+            }
+        } else if (params != null && !JSONObject.NULL.equals(params)) {
+            throw ParamsBinder.invalidParams("The params MUST be an array or object.");
+        }
+        return this.create(values);
+    }
+
+    /**
+     * @param value The instance
+     * @return An object with a member per property
+     */
+    public JSONObject toObject(T value) {
+        JSONObject object = new JSONObject();
+        for (int i = 0; i < this.names.length; i++) {
+            Object property;
+            try {
+                property = this.getters[i].invokeExact((Object) value);
+            } catch (Throwable t) {
+                throw ParamsBinder.rethrow(t);
+            }
+            object.put(this.names[i], ParamsBinder.toJSON(property));
+        }
+        return object;
+    }
+
+    /**
+     * Converts a typed value into a JSON value: bindable types become objects, arrays and collections become arrays,
+     * maps become objects and enums their name.
+     *
+     * @param value The value
+     * @return The JSON value, {@link JSONObject#NULL} for null
+     * @throws IllegalArgumentException If the value has another type, like a JDK type not listed above
+     */
+    @SuppressWarnings("unchecked")
+    public static Object toJSON(Object value) {
+        if (value == null) {
+            return JSONObject.NULL;
+        }
+        if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof JSONObject || value instanceof JSONArray || value instanceof JSONString || JSONObject.NULL.equals(value)) {
+            return value;
+        }
+        if (value instanceof Character) {
+            return value.toString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value.getClass().isArray()) {
+            JSONArray array = new JSONArray();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                array.put(ParamsBinder.toJSON(Array.get(value, i)));
+            }
+            return array;
+        }
+        if (value instanceof Collection) {
+            JSONArray array = new JSONArray();
+            for (Object element : (Collection<?>) value) {
+                array.put(ParamsBinder.toJSON(element));
+            }
+            return array;
+        }
+        if (value instanceof Map) {
+            JSONObject object = new JSONObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                object.put(String.valueOf(entry.getKey()), ParamsBinder.toJSON(entry.getValue()));
+            }
+            return object;
+        }
+        ParamsBinder<Object> binder;
+        try {
+            binder = (ParamsBinder<Object>) ParamsBinder.of(value.getClass());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Can not convert " + value.getClass().getName() + " to JSON, " + UNBINDABLE, e);
+        }
+        return binder.toObject(value);
+    }
+
+    private Object convert(int index, Object value) throws JSONRPCException {
+        if (JSONObject.NULL.equals(value)) {
+            if (this.defaults[index] != null) {
+                throw ParamsBinder.invalidParams("The param \"" + this.names[index] + "\" MUST NOT be null.");
+            }
+            return null;
+        }
+        Object converted = this.converters[index].convert(value);
+        if (converted == null) {
+            throw ParamsBinder.invalidParams("The param \"" + this.names[index] + "\" has an invalid type.");
+        }
+        return converted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T create(Object[] values) throws JSONRPCException {
+        try {
+            if (this.setters == null) {
+                return (T) (Object) this.constructor.invokeExact(values);
+            }
+            Object instance = (Object) this.constructor.invokeExact();
+            for (int i = 0; i < this.setters.length; i++) {
+                this.setters[i].invokeExact(instance, values[i]);
+            }
+            return (T) instance;
+        } catch (IllegalArgumentException e) {
+            // Thrown by record constructors validating their components
+            throw ParamsBinder.invalidParams(e.getMessage() != null ? e.getMessage() : "Invalid params.");
+        } catch (Throwable t) {
+            throw ParamsBinder.rethrow(t);
+        }
+    }
+
+    /**
+     * Converts a non-null JSON value to a target type.
+     */
+    @FunctionalInterface
+    private interface Converter {
+
+        /**
+         * @param value The JSON value, not null
+         * @return The converted value, or null if the value does not fit the type
+         * @throws JSONRPCException If a nested value does not fit
+         */
+        Object convert(Object value) throws JSONRPCException;
+
+    }
+
+    private static Converter converter(Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            return value -> ParamsBinder.isInteger(value) && ((Number) value).longValue() == ((Number) value).intValue() ? (Object) ((Number) value).intValue() : null;
+        }
+        if (type == long.class || type == Long.class) {
+            return value -> ParamsBinder.isInteger(value) ? (Object) ((Number) value).longValue() : null;
+        }
+        if (type == short.class || type == Short.class) {
+            return value -> ParamsBinder.isInteger(value) && ((Number) value).longValue() == ((Number) value).shortValue() ? (Object) ((Number) value).shortValue() : null;
+        }
+        if (type == byte.class || type == Byte.class) {
+            return value -> ParamsBinder.isInteger(value) && ((Number) value).longValue() == ((Number) value).byteValue() ? (Object) ((Number) value).byteValue() : null;
+        }
+        if (type == double.class || type == Double.class) {
+            return value -> value instanceof Number ? (Object) ((Number) value).doubleValue() : null;
+        }
+        if (type == float.class || type == Float.class) {
+            return value -> value instanceof Number ? (Object) ((Number) value).floatValue() : null;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return value -> value instanceof Boolean ? value : null;
+        }
+        if (type == char.class || type == Character.class) {
+            return value -> value instanceof String && ((String) value).length() == 1 ? (Object) ((String) value).charAt(0) : null;
+        }
+        if (type == String.class) {
+            return value -> value instanceof String ? value : null;
+        }
+        if (type == BigDecimal.class) {
+            return value -> value instanceof BigDecimal ? value : value instanceof BigInteger ? new BigDecimal((BigInteger) value) : ParamsBinder.isInteger(value) ? BigDecimal.valueOf(((Number) value).longValue()) : value instanceof Number ? new BigDecimal(value.toString()) : null;
+        }
+        if (type == BigInteger.class) {
+            return value -> value instanceof BigInteger ? value : ParamsBinder.isInteger(value) ? BigInteger.valueOf(((Number) value).longValue()) : null;
+        }
+        if (type == Object.class) {
+            return value -> value;
+        }
+        if (type == JSONObject.class || type == JSONArray.class) {
+            return value -> type.isInstance(value) ? value : null;
+        }
+        if (type.isEnum()) {
+            return value -> {
+                if (value instanceof String) {
+                    for (Object constant : type.getEnumConstants()) {
+                        if (((Enum<?>) constant).name().equals(value)) {
+                            return constant;
+                        }
+                    }
+                }
+                return null;
+            };
+        }
+        if (type.isArray()) {
+            Class<?> componentType = type.getComponentType();
+            Converter component = ParamsBinder.converter(componentType);
+            return value -> {
+                if (!(value instanceof JSONArray)) {
+                    return null;
+                }
+                JSONArray array = (JSONArray) value;
+                Object result = Array.newInstance(componentType, array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    Object element = array.opt(i);
+                    Object converted = JSONObject.NULL.equals(element) ? null : component.convert(element);
+                    if (converted == null && (componentType.isPrimitive() || !JSONObject.NULL.equals(element))) {
+                        throw ParamsBinder.invalidParams("An element of an array param has an invalid type.");
+                    }
+                    Array.set(result, i, converted);
+                }
+                return result;
+            };
+        }
+        if (type == List.class || type == Collection.class) {
+            return value -> value instanceof JSONArray ? ((JSONArray) value).toList() : null;
+        }
+        if (type == Map.class) {
+            return value -> value instanceof JSONObject ? ((JSONObject) value).toMap() : null;
+        }
+        // Nested types are resolved when first used, so types can refer to themselves
+        return value -> value instanceof JSONArray || value instanceof JSONObject ? ParamsBinder.of(type).bind(value) : null;
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Integer || value instanceof Long;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        return Array.get(Array.newInstance(type, 1), 0);
+    }
+
+    /**
+     * @param type The type
+     * @return The record components, or null if the type is not a record (or records are not supported)
+     */
+    private static Object[] recordComponents(Class<?> type) throws ReflectiveOperationException {
+        Method isRecord;
+        try {
+            isRecord = Class.class.getMethod("isRecord");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        if (!(Boolean) isRecord.invoke(type)) {
+            return null;
+        }
+        return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+    }
+
+    /**
+     * Rejects the JDK, whose internals can not be opened on Java 9 and later, and types that can not be instantiated.
+     */
+    private static boolean isBindable(Class<?> type) {
+        String name = type.getName();
+        if (name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.") || name.startsWith("com.sun.")) {
+            return false;
+        }
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum() || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return ParamsBinder.recordComponents(type) != null || type.getDeclaredConstructor() != null;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The field index per position, or null if no field declares one
+     * @throws IllegalArgumentException If only some fields declare one, or the positions are not 0 to n-1
+     */
+    private static int[] positions(Class<?> type, List<Field> fields) {
+        int[] positions = new int[fields.size()];
+        Arrays.fill(positions, -1);
+        int declared = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            JSONRPCParam param = fields.get(i).getAnnotation(JSONRPCParam.class);
+            if (param == null) {
+                continue;
+            }
+            int position = param.position();
+            if (position < 0 || position >= positions.length || positions[position] != -1) {
+                throw new IllegalArgumentException("The position " + position + " of " + type.getName() + "." + fields.get(i).getName() + " is out of range or duplicate.");
+            }
+            positions[position] = i;
+            declared++;
+        }
+        if (declared == 0) {
+            return null;
+        }
+        if (declared != positions.length) {
+            throw new IllegalArgumentException("Either all or none of the fields of " + type.getName() + " MUST declare a position.");
+        }
+        return positions;
+    }
+
+    private static void collectFields(Class<?> type, List<Field> fields) {
+        if (type == null || type == Object.class) {
+            return;
+        }
+        ParamsBinder.collectFields(type.getSuperclass(), fields);
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isSynthetic()) {
+                fields.add(field);
+            }
+        }
+    }
+
+    private static JSONRPCException invalidParams(String message) {
+        return new JSONRPCException(message, JSONRPCException.INVALID_PARAMS, !JSONRPCException.STACKLESS);
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.yocto.yoclib.jsonrpc;
+
+/**
+ * The outcome of parsing a single message: either the message or the error it was rejected with.
+ * <p>
+ * Results of {@link Message#tryParse(Object, boolean)} only carry the error code, message and id; the exception is
+ * created when first requested.
+ */
+public final class ParseResult {
+
+    private final Message message;
+    private final int code;
+    private final String errorMessage;
+    private final Object id;
+    private final boolean version2;
+
+    private JSONRPCException exception;
+
+    private ParseResult(Message message, JSONRPCException exception, int code, String errorMessage, Object id, boolean version2) {
+        this.message = message;
+        this.exception = exception;
+        this.code = code;
+        this.errorMessage = errorMessage;
+        this.id = id;
+        this.version2 = version2;
+    }
+
+    /**
+     * @param message The message
+     * @return A successful result
+     */
+    static ParseResult success(Message message) {
+        return new ParseResult(message, null, 0, null, null, message.isVersion2());
+    }
+
+    /**
+     * @param exception The exception
+     * @return A failed result
+     */
+    static ParseResult failure(JSONRPCException exception) {
+        return new ParseResult(null, exception, exception.getCode(), exception.getMessage(), null, true);
+    }
+
+    /**
+     * @param code The error code
+     * @param errorMessage The error message
+     * @param id The id of the rejected message, or null if it could not be determined
+     * @return A failed result
+     */
+    static ParseResult invalid(int code, String errorMessage, Object id) {
+        return ParseResult.invalid(code, errorMessage, id, true);
+    }
+
+    /**
+     * @param code The error code
+     * @param errorMessage The error message
+     * @param id The id of the rejected message, or null if it could not be determined
+     * @param version2 False if the rejected message is a V1 message, true if it is not or could not be determined
+     * @return A failed result
+     */
+    static ParseResult invalid(int code, String errorMessage, Object id, boolean version2) {
+        return new ParseResult(null, null, code, errorMessage, id, version2);
+    }
+
+    /**
+     * @return True if a message was parsed, false if not.
+     */
+    public boolean isSuccess() {
+        return this.message != null;
+    }
+
+    /**
+     * @return The message, or null if parsing failed.
+     */
+    public Message getMessage() {
+        return this.message;
+    }
+
+    /**
+     * @return The error code, or 0 if parsing succeeded.
+     */
+    public int getCode() {
+        return this.code;
+    }
+
+    /**
+     * @return The error message, or null if parsing succeeded.
+     */
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    /**
+     * @return The id of the message, also if it was rejected, or null if there is none or it could not be determined.
+     */
+    public Object getId() {
+        return this.message != null ? this.message.getId() : this.id;
+    }
+
+    /**
+     * @return False if the message is a V1 message, also if it was rejected, true if not or if the version could not
+     * be determined. Error responses to a rejected message use this version.
+     */
+    public boolean isVersion2() {
+        return this.version2;
+    }
+
+    /**
+     * @return The exception, or null if parsing succeeded.
+     */
+    public JSONRPCException getException() {
+        if (this.exception == null && this.message == null) {
+            this.exception = new JSONRPCException(this.errorMessage, this.code, !JSONRPCException.STACKLESS);
+        }
+        return this.exception;
+    }
+
+    /**
+     * @return The message
+     * @throws JSONRPCException The exception if parsing failed
+     */
+    public Message get() throws JSONRPCException {
+        if (this.message == null) {
+            throw this.getException();
+        }
+        return this.message;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An undecoded JSON value, kept as a UTF-8 slice of an input buffer. The value is only decoded when
+ * {@link #getValue()} is called and is written verbatim when encoded, so it can be passed through without a copy.
+ * <p>
+ * The underlying bytes are not copied, so they must not be modified while this value is in use.
+ */
+public final class RawJSON implements JSONString {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    private volatile Object value;
+
+    /**
+     * @param bytes UTF-8 encoded JSON value
+     */
+    public RawJSON(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes UTF-8 encoded JSON value
+     * @param offset The offset
+     * @param length The length
+     */
+    public RawJSON(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return The decoded value
+     */
+    public Object getValue() {
+        Object value = this.value;
+        if (value == null) {
+            value = MessageParser.parseValue(this.bytes, this.offset, this.length);
+            this.value = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return True if the value is an array, false if not.
+     */
+    public boolean isArray() {
+        return this.first() == '[';
+    }
+
+    /**
+     * @return True if the value is an object, false if not.
+     */
+    public boolean isObject() {
+        return this.first() == '{';
+    }
+
+    /**
+     * @return The number of bytes
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @return A read-only view of the bytes
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(this.bytes, this.offset, this.length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return A copy of the bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(this.bytes, this.offset, this.offset + this.length);
+    }
+
+    /**
+     * @param stream The stream
+     * @throws IOException An exception
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        stream.write(this.bytes, this.offset, this.length);
+    }
+
+    @Override
+    public String toJSONString() {
+        return new String(this.bytes, this.offset, this.length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return this.toJSONString();
+    }
+
+    private int first() {
+        return this.length > 0 ? this.bytes[this.offset] : -1;
+    }
+
+}
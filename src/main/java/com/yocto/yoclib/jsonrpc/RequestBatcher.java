@@ -0,0 +1,314 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces outgoing requests and notifications into batches. Messages are collected until the batch is full or the
+ * time window since the first collected message has passed, and are then encoded and sent together; a single
+ * collected message is sent on its own.
+ * <p>
+ * Requests get their id from a {@link RequestCorrelator}. The response body, whether a batch or not, is handed to
+ * {@link #receive(byte[])}, which completes the futures of the requests by id. An error response without id, like
+ * the answer to a batch the peer could not parse, fails all outstanding requests of the batch it answers: the one
+ * holding the other answered requests of the body, or else the oldest batch with outstanding requests.
+ * <p>
+ * The sender is called by one thread at a time and in batch order, either by the timer thread or by a thread adding
+ * a message or flushing.
+ */
+public class RequestBatcher implements AutoCloseable {
+
+    /**
+     * Sends an encoded body to the peer. Calls are never concurrent, so it does not need to be thread-safe.
+     */
+    @FunctionalInterface
+    public interface Sender {
+
+        /**
+         * @param body The UTF-8 encoded message or batch
+         * @throws IOException If sending fails, which fails the requests of the body
+         */
+        void send(byte[] body) throws IOException;
+
+    }
+
+    private final Sender sender;
+    private final RequestCorrelator correlator;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Held while taking a batch and sending it, so batches are sent one at a time and in order.
+     */
+    private final Object sendLock = new Object();
+
+    /**
+     * The sent batches with outstanding requests, oldest first.
+     */
+    private final ArrayDeque<SentBatch> sent = new ArrayDeque<>();
+
+    private List<Message> messages = new ArrayList<>();
+    private List<CompletableFuture<ResponseMessage>> futures = new ArrayList<>();
+
+    /**
+     * Counts the sent batches, so a window timer of a batch that was already sent does not cut the next one short.
+     */
+    private long generation;
+    private boolean closed;
+
+    /**
+     * @param sender The sender
+     * @param correlator The correlator generating ids and matching responses
+     * @param maxBatchSize The number of messages at which a batch is sent immediately
+     * @param window The time a message waits for others before its batch is sent
+     * @param unit The unit of the window
+     */
+    public RequestBatcher(Sender sender, RequestCorrelator correlator, int maxBatchSize, long window, TimeUnit unit) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The maximum batch size MUST be at least 1.");
+        }
+        this.sender = sender;
+        this.correlator = correlator;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = unit.toNanos(window);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jsonrpc-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param method The method
+     * @param params The params, or null
+     * @return The future completed with the response
+     * @throws JSONRPCException If the params are invalid
+     * @throws IllegalStateException If the batcher is closed
+     */
+    public CompletableFuture<ResponseMessage> call(String method, Object params) throws JSONRPCException {
+        RequestCorrelator.Call call = this.correlator.call(method, params);
+        try {
+            this.add(call.getRequest(), call.getResponse());
+        } catch (IllegalStateException e) {
+            call.getResponse().cancel(false);
+            throw e;
+        }
+        return call.getResponse();
+    }
+
+    /**
+     * @param method The method
+     * @param params The params, or null
+     * @throws JSONRPCException If the params are invalid
+     * @throws IllegalStateException If the batcher is closed
+     */
+    public void sendNotification(String method, Object params) throws JSONRPCException {
+        this.add(Message.createNotificationMessageV2(method, params), null);
+    }
+
+    /**
+     * Sends the collected messages now.
+     */
+    public void flush() {
+        this.flush(-1);
+    }
+
+    /**
+     * @param generation The batch to send, -1 for the current one
+     */
+    private void flush(long generation) {
+        synchronized (this.sendLock) {
+            List<Message> messages;
+            List<CompletableFuture<ResponseMessage>> futures;
+            synchronized (this) {
+                if (this.messages.isEmpty() || (generation >= 0 && generation != this.generation)) {
+                    return;
+                }
+                this.generation++;
+                messages = this.messages;
+                futures = this.futures;
+                this.messages = new ArrayList<>();
+                this.futures = new ArrayList<>();
+                this.prune();
+                if (!futures.isEmpty()) {
+                    // Before sending, as the answer may be received before send returns
+                    this.sent.add(new SentBatch(messages, futures));
+                }
+            }
+            try {
+                this.sender.send(RequestBatcher.encode(messages));
+            } catch (IOException | JSONRPCException | RuntimeException e) {
+                for (CompletableFuture<ResponseMessage> future : futures) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes the requests answered by a response body.
+     *
+     * @param body The UTF-8 encoded response or batch of responses
+     * @return The number of completed requests
+     * @throws JSONRPCException If the body is not valid JSON
+     */
+    public int receive(byte[] body) throws JSONRPCException {
+        int completed = 0;
+        ResponseMessage error = null;
+        Long answeredId = null;
+        for (ParseResult result : MessageBatchParser.parse(body)) {
+            if (!result.isSuccess() || !result.getMessage().isResponse()) {
+                continue;
+            }
+            ResponseMessage response = (ResponseMessage) result.getMessage();
+            if (response.hasNumericId()) {
+                if (answeredId == null) {
+                    answeredId = response.getIdAsLong();
+                }
+                if (this.correlator.complete(response)) {
+                    completed++;
+                }
+            } else if (response.hasError() && response.getId() == null) {
+                error = response;
+            }
+        }
+        if (error != null) {
+            completed += this.fail(answeredId, error);
+        }
+        return completed;
+    }
+
+    /**
+     * Sends the collected messages and stops the timer. The correlator is not closed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+        }
+        this.scheduler.shutdown();
+        this.flush();
+    }
+
+    private void add(Message message, CompletableFuture<ResponseMessage> future) {
+        boolean full;
+        synchronized (this) {
+            if (this.closed) {
+                throw new IllegalStateException("The batcher is closed.");
+            }
+            this.messages.add(message);
+            if (future != null) {
+                this.futures.add(future);
+            }
+            full = this.messages.size() >= this.maxBatchSize;
+            if (!full && this.messages.size() == 1) {
+                long generation = this.generation;
+                this.scheduler.schedule(() -> this.flush(generation), this.windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Fails the outstanding requests of the batch answered by an error response without id.
+     *
+     * @param answeredId An id answered in the same body, or null if there is none
+     * @param error The error response
+     * @return The number of failed requests
+     */
+    private synchronized int fail(Long answeredId, ResponseMessage error) {
+        this.prune();
+        SentBatch batch = null;
+        for (SentBatch candidate : this.sent) {
+            if (answeredId != null ? candidate.contains(answeredId) : !candidate.isDone()) {
+                batch = candidate;
+                break;
+            }
+        }
+        if (batch == null) {
+            return 0;
+        }
+        this.sent.remove(batch);
+        Integer code = error.getErrorCode();
+        JSONRPCException exception = new JSONRPCException(error.getErrorMessage(), code != null ? code : JSONRPCException.INTERNAL_ERROR);
+        int failed = 0;
+        for (CompletableFuture<ResponseMessage> future : batch.futures) {
+            if (future.completeExceptionally(exception)) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Forgets the oldest sent batches of which all requests are done.
+     */
+    private synchronized void prune() {
+        while (!this.sent.isEmpty() && this.sent.peek().isDone()) {
+            this.sent.poll();
+        }
+    }
+
+    private static byte[] encode(List<Message> messages) throws JSONRPCException {
+        if (messages.size() == 1) {
+            return Message.encodeJSON(messages.get(0).toObject()).getBytes(StandardCharsets.UTF_8);
+        }
+        JSONArray batch = new JSONArray();
+        for (Message message : messages) {
+            batch.put(message.toObject());
+        }
+        return Message.encodeJSON(batch).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The ids and futures of the requests of a sent batch.
+     */
+    private static final class SentBatch {
+
+        private final long[] ids;
+        private final List<CompletableFuture<ResponseMessage>> futures;
+
+        private SentBatch(List<Message> messages, List<CompletableFuture<ResponseMessage>> futures) {
+            this.ids = new long[futures.size()];
+            int i = 0;
+            for (Message message : messages) {
+                if (message.isRequest() && message.hasNumericId()) {
+                    this.ids[i++] = message.getIdAsLong();
+                }
+            }
+            this.futures = futures;
+        }
+
+        private boolean contains(long id) {
+            for (long candidate : this.ids) {
+                if (candidate == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isDone() {
+            for (CompletableFuture<ResponseMessage> future : this.futures) {
+                if (!future.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
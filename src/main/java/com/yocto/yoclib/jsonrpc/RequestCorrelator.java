@@ -0,0 +1,397 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Matches the responses received over a (multiplexed) connection to the requests sent on it.
+ * <p>
+ * Ids are generated from a counter and every outstanding request gets a future in a table keyed by the unboxed id,
+ * which is completed with the response carrying its id. The table is split in stripes, each an open addressing hash
+ * table guarded by its own lock, which stores the ids as primitive longs without boxing them or allocating a node per
+ * entry. Outstanding requests expire through a hashed timer wheel, driven by one periodic task, instead of a scheduled
+ * task per request: a request is put in the bucket of its deadline and only the buckets of the elapsed ticks are
+ * inspected. Expired futures fail with a {@link TimeoutException}.
+ * <p>
+ * The periodic task runs on the given scheduler, or else on a single daemon thread shared by all correlators. A
+ * correlator MUST be closed to stop its task.
+ */
+public class RequestCorrelator implements AutoCloseable {
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int STRIPES = 16;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final long defaultTimeoutNanos;
+    private final long tickNanos;
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final long startNanos = System.nanoTime();
+    private final ScheduledFuture<?> timer;
+
+    /**
+     * The last processed tick, only accessed by the timer task.
+     */
+    private long tick;
+    private volatile boolean closed;
+
+    /**
+     * Creates a correlator with a timeout of 30 seconds and a timer resolution of 100 milliseconds.
+     */
+    public RequestCorrelator() {
+        this(30, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a correlator driven by the shared timer thread.
+     *
+     * @param defaultTimeout The timeout of requests registered without one
+     * @param defaultTimeoutUnit The unit of the timeout
+     * @param tick The timer resolution, timeouts expire up to one tick late
+     * @param tickUnit The unit of the resolution
+     */
+    public RequestCorrelator(long defaultTimeout, TimeUnit defaultTimeoutUnit, long tick, TimeUnit tickUnit) {
+        this(defaultTimeout, defaultTimeoutUnit, tick, tickUnit, SharedTimer.INSTANCE);
+    }
+
+    /**
+     * @param defaultTimeout The timeout of requests registered without one
+     * @param defaultTimeoutUnit The unit of the timeout
+     * @param tick The timer resolution, timeouts expire up to one tick late
+     * @param tickUnit The unit of the resolution
+     * @param scheduler The scheduler running the timer task, not shut down on close
+     */
+    public RequestCorrelator(long defaultTimeout, TimeUnit defaultTimeoutUnit, long tick, TimeUnit tickUnit, ScheduledExecutorService scheduler) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("The timer resolution MUST be positive.");
+        }
+        this.defaultTimeoutNanos = defaultTimeoutUnit.toNanos(defaultTimeout);
+        this.tickNanos = tickUnit.toNanos(tick);
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.timer = scheduler.scheduleAtFixedRate(this::advance, this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return A new id, unique for this correlator
+     */
+    public long nextId() {
+        return this.nextId.getAndIncrement();
+    }
+
+    /**
+     * Creates a V2 request with a new id and registers it with the default timeout.
+     *
+     * @param method The method
+     * @param params The params, or null
+     * @return The outstanding call
+     * @throws JSONRPCException If the params are invalid
+     */
+    public Call call(String method, Object params) throws JSONRPCException {
+        long id = this.nextId();
+        RequestMessage request = Message.createRequestMessageV2WithLongId(id, method, params);
+        return new Call(request, this.register(id));
+    }
+
+    /**
+     * @param id The id of the sent request
+     * @return The future completed with the response
+     */
+    public CompletableFuture<ResponseMessage> register(long id) {
+        return this.register(id, this.defaultTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param id The id of the sent request
+     * @param timeout The timeout, 0 or less for none
+     * @param unit The unit of the timeout
+     * @return The future completed with the response
+     * @throws IllegalStateException If the id is already outstanding or the correlator is closed
+     */
+    public CompletableFuture<ResponseMessage> register(long id, long timeout, TimeUnit unit) {
+        if (this.closed) {
+            throw new IllegalStateException("The correlator is closed.");
+        }
+        Pending pending = new Pending(id);
+        Stripe stripe = this.stripe(id);
+        if (!stripe.putIfAbsent(id, pending)) {
+            throw new IllegalStateException("The id " + id + " is already outstanding.");
+        }
+        // Removes the entry on every completion, including cancellation by the caller
+        pending.future.whenComplete((response, throwable) -> stripe.remove(id, pending));
+        if (timeout > 0) {
+            long elapsed = System.nanoTime() - this.startNanos;
+            long deadline = elapsed + unit.toNanos(timeout);
+            if (deadline < 0) {
+                // Saturates, the request then never expires
+                deadline = Long.MAX_VALUE;
+            }
+            // At least the next tick, as the current one may already have been processed
+            long ticks = Math.max(deadline / this.tickNanos + (deadline % this.tickNanos != 0 ? 1 : 0), elapsed / this.tickNanos + 1);
+            pending.deadlineTick = ticks;
+            this.wheel[(int) (ticks & (WHEEL_SIZE - 1))].pending.add(pending);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Completes the outstanding request with the id of the response.
+     *
+     * @param response The response
+     * @return True if a request was outstanding for the id, false if not.
+     */
+    public boolean complete(ResponseMessage response) {
+        if (!response.hasNumericId()) {
+            return false;
+        }
+        long id = response.getIdAsLong();
+        Pending pending = this.stripe(id).remove(id, null);
+        return pending != null && pending.future.complete(response);
+    }
+
+    /**
+     * @return The number of outstanding requests
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Stripe stripe : this.stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    /**
+     * Stops the timer and cancels all outstanding requests.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.timer.cancel(false);
+        List<Pending> outstanding = new ArrayList<>();
+        for (Stripe stripe : this.stripes) {
+            stripe.collect(outstanding);
+        }
+        // Outside of the locks, as the cancellation removes the entries
+        for (Pending pending : outstanding) {
+            pending.future.cancel(false);
+        }
+    }
+
+    private Stripe stripe(long id) {
+        // Consecutive ids go to consecutive stripes
+        return this.stripes[(int) id & (STRIPES - 1)];
+    }
+
+    /**
+     * Processes the ticks elapsed since the last run, which may be several if the scheduler ran late.
+     */
+    private void advance() {
+        long now = (System.nanoTime() - this.startNanos) / this.tickNanos;
+        while (this.tick < now) {
+            long tick = ++this.tick;
+            Iterator<Pending> iterator = this.wheel[(int) (tick & (WHEEL_SIZE - 1))].pending.iterator();
+            while (iterator.hasNext()) {
+                Pending pending = iterator.next();
+                if (pending.future.isDone()) {
+                    iterator.remove();
+                } else if (pending.deadlineTick <= tick) {
+                    iterator.remove();
+                    pending.future.completeExceptionally(new TimeoutException("No response for request " + pending.id + "."));
+                }
+            }
+        }
+    }
+
+    /**
+     * An open addressing hash table with linear probing, a slot is free when its value is null.
+     */
+    private static final class Stripe {
+
+        private long[] keys = new long[16];
+        private Pending[] values = new Pending[16];
+        private int size;
+
+        private static int index(long id, int mask) {
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+
+        private synchronized boolean putIfAbsent(long id, Pending pending) {
+            int mask = this.keys.length - 1;
+            int i = Stripe.index(id, mask);
+            while (this.values[i] != null) {
+                if (this.keys[i] == id) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = id;
+            this.values[i] = pending;
+            // Keeps the load factor at most 1/2
+            if (++this.size * 2 > this.keys.length) {
+                this.resize(this.keys.length * 2);
+            }
+            return true;
+        }
+
+        /**
+         * @param id The id
+         * @param expected The value to remove, or null for any
+         * @return The removed value, or null if none
+         */
+        private synchronized Pending remove(long id, Pending expected) {
+            int mask = this.keys.length - 1;
+            int i = Stripe.index(id, mask);
+            Pending value;
+            while ((value = this.values[i]) != null) {
+                if (this.keys[i] == id) {
+                    if (expected != null && value != expected) {
+                        return null;
+                    }
+                    this.delete(i);
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Frees the slot and shifts the following entries of the probe sequence back, so no lookup stops early.
+         */
+        private void delete(int free) {
+            int mask = this.keys.length - 1;
+            this.values[free] = null;
+            this.size--;
+            int i = free;
+            while (true) {
+                i = (i + 1) & mask;
+                if (this.values[i] == null) {
+                    return;
+                }
+                int home = Stripe.index(this.keys[i], mask);
+                // Stays if its home slot lies cyclically in (free, i]
+                if (free < i ? (free < home && home <= i) : (free < home || home <= i)) {
+                    continue;
+                }
+                this.keys[free] = this.keys[i];
+                this.values[free] = this.values[i];
+                this.values[i] = null;
+                free = i;
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] keys = this.keys;
+            Pending[] values = this.values;
+            this.keys = new long[capacity];
+            this.values = new Pending[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < keys.length; j++) {
+                if (values[j] != null) {
+                    int i = Stripe.index(keys[j], mask);
+                    while (this.values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    this.keys[i] = keys[j];
+                    this.values[i] = values[j];
+                }
+            }
+        }
+
+        private synchronized int size() {
+            return this.size;
+        }
+
+        private synchronized void collect(List<Pending> list) {
+            for (Pending value : this.values) {
+                if (value != null) {
+                    list.add(value);
+                }
+            }
+        }
+
+    }
+
+    private static final class Bucket {
+
+        private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    }
+
+    private static final class SharedTimer {
+
+        private static final ScheduledExecutorService INSTANCE = SharedTimer.create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "jsonrpc-correlator-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Drops the task of a closed correlator at once instead of at its next run
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+
+    }
+
+    private static final class Pending {
+
+        private final long id;
+        private final CompletableFuture<ResponseMessage> future = new CompletableFuture<>();
+
+        /**
+         * The tick at which the request expires, a later round of the wheel if it is not the current one.
+         */
+        private long deadlineTick;
+
+        private Pending(long id) {
+            this.id = id;
+        }
+
+    }
+
+    /**
+     * A request together with the future of its response.
+     */
+    public static final class Call {
+
+        private final RequestMessage request;
+        private final CompletableFuture<ResponseMessage> response;
+
+        private Call(RequestMessage request, CompletableFuture<ResponseMessage> response) {
+            this.request = request;
+            this.response = response;
+        }
+
+        /**
+         * @return The request to send
+         */
+        public RequestMessage getRequest() {
+            return this.request;
+        }
+
+        /**
+         * @return The future completed with the response
+         */
+        public CompletableFuture<ResponseMessage> getResponse() {
+            return this.response;
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Identifies a call by its method and the structure of its params, regardless of the id, the member order of objects
+ * and the boxing of integers. The hash is computed by walking the params, without encoding them.
+ * <p>
+ * A key refers to the params of the message, use {@link #detach()} for a key that is kept.
+ */
+final class RequestKey {
+
+    private final String method;
+    private final Object params;
+    private final int hash;
+
+    private RequestKey(String method, Object params, int hash) {
+        this.method = method;
+        this.params = params;
+        this.hash = hash;
+    }
+
+    /**
+     * @param message The request or notification
+     * @return The key
+     */
+    static RequestKey of(Message message) {
+        Object params = message.getParams();
+        return new RequestKey(message.getMethod(), params, 31 * Objects.hashCode(message.getMethod()) + RequestKey.hash(params));
+    }
+
+    /**
+     * @return An equal key with a copy of the params, so changes to those of the message do not affect it
+     */
+    RequestKey detach() {
+        return new RequestKey(this.method, RequestKey.copy(this.params), this.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof RequestKey)) {
+            return false;
+        }
+        RequestKey other = (RequestKey) object;
+        return this.hash == other.hash && Objects.equals(this.method, other.method) && RequestKey.equals(this.params, other.params);
+    }
+
+    private static int hash(Object value) {
+        if (value instanceof JSONObject) {
+            // Independent of the member order
+            int hash = 1;
+            JSONObject object = (JSONObject) value;
+            for (String key : object.keySet()) {
+                hash += key.hashCode() ^ RequestKey.hash(object.opt(key));
+            }
+            return hash;
+        }
+        if (value instanceof JSONArray) {
+            int hash = 2;
+            JSONArray array = (JSONArray) value;
+            for (int i = 0; i < array.length(); i++) {
+                hash = 31 * hash + RequestKey.hash(array.opt(i));
+            }
+            return hash;
+        }
+        if (RequestKey.isInteger(value)) {
+            return Long.hashCode(((Number) value).longValue());
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().hashCode();
+        }
+        return Objects.hashCode(value);
+    }
+
+    private static boolean equals(Object a, Object b) {
+        if (a instanceof JSONObject && b instanceof JSONObject) {
+            JSONObject x = (JSONObject) a;
+            JSONObject y = (JSONObject) b;
+            if (x.length() != y.length()) {
+                return false;
+            }
+            for (String key : x.keySet()) {
+                if (!y.has(key) || !RequestKey.equals(x.opt(key), y.opt(key))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof JSONArray && b instanceof JSONArray) {
+            JSONArray x = (JSONArray) a;
+            JSONArray y = (JSONArray) b;
+            if (x.length() != y.length()) {
+                return false;
+            }
+            for (int i = 0; i < x.length(); i++) {
+                if (!RequestKey.equals(x.opt(i), y.opt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (RequestKey.isInteger(a) && RequestKey.isInteger(b)) {
+            return ((Number) a).longValue() == ((Number) b).longValue();
+        }
+        if (a instanceof BigDecimal && b instanceof BigDecimal) {
+            return ((BigDecimal) a).compareTo((BigDecimal) b) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Integer || value instanceof Long;
+    }
+
+    private static Object copy(Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            JSONObject copy = new JSONObject();
+            for (String key : object.keySet()) {
+                copy.put(key, RequestKey.copy(object.opt(key)));
+            }
+            return copy;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            JSONArray copy = new JSONArray();
+            for (int i = 0; i < array.length(); i++) {
+                copy.put(RequestKey.copy(array.opt(i)));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+}
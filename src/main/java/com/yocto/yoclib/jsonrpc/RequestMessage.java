@@ -11,4 +11,11 @@ public class RequestMessage extends Message{
         super(value);
     }
 
+    /**
+     * @param data The member slots
+     */
+    RequestMessage(MessageData data) {
+        super(data);
+    }
+
 }
\ No newline at end of file
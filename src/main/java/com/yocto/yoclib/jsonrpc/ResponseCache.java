@@ -0,0 +1,132 @@
+package com.yocto.yoclib.jsonrpc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of an idempotent method, keyed by the method and the structure of the params. Register it in
+ * place of the handler it wraps:
+ * <pre>
+ * dispatcher.register("getInfo", new ResponseCache(handler, 1000, 10, TimeUnit.SECONDS));
+ * </pre>
+ * Results are stored encoded, as {@link RawJSON}, so a hit skips both the handler and the encoding of the result:
+ * {@link Dispatcher#handle(byte[])} copies the bytes into the response template with the id of the request. Errors
+ * are not cached.
+ * <p>
+ * Entries expire after the time to live, counted from the completion of the handler. The entries are split over up
+ * to 16 stripes, one per 64 entries, each locked on its own and evicting its least recently used entry when full. A
+ * small cache has a single stripe and so evicts exactly in LRU order.
+ */
+public class ResponseCache implements Dispatcher.Handler {
+
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_STRIPE_ENTRIES = 64;
+
+    private final Dispatcher.Handler handler;
+    private final long timeToLiveNanos;
+    private final Stripe[] stripes;
+
+    /**
+     * @param handler The handler of the method
+     * @param maxEntries The maximum number of cached results
+     * @param timeToLive The time a result is served from the cache
+     * @param unit The unit of the time to live
+     */
+    public ResponseCache(Dispatcher.Handler handler, int maxEntries, long timeToLive, TimeUnit unit) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The maximum number of entries MUST be at least 1.");
+        }
+        this.handler = handler;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maxEntries / MIN_STRIPE_ENTRIES)))];
+        for (int i = 0; i < this.stripes.length; i++) {
+            // Spreads the remainder, so the capacities add up to the maximum
+            this.stripes[i] = new Stripe(maxEntries / this.stripes.length + (i < maxEntries % this.stripes.length ? 1 : 0));
+        }
+    }
+
+    @Override
+    public Object handle(Message message) throws JSONRPCException {
+        RequestKey key = RequestKey.of(message);
+        Stripe stripe = this.stripe(key);
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            CachedResponse entry = stripe.get(key);
+            if (entry != null) {
+                if (now - entry.created < this.timeToLiveNanos) {
+                    return entry.result;
+                }
+                stripe.remove(key);
+            }
+        }
+        Object result = this.handler.handle(message);
+        RawJSON encoded = result instanceof RawJSON ? (RawJSON) result : new RawJSON(ResponseTemplates.encodeValue(result));
+        CachedResponse entry = new CachedResponse(encoded, System.nanoTime());
+        synchronized (stripe) {
+            stripe.put(key.detach(), entry);
+        }
+        return encoded;
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void invalidateAll() {
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * @return The number of cached results, including expired ones not yet removed
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(RequestKey key) {
+        int hash = key.hashCode();
+        return this.stripes[(hash ^ (hash >>> 16)) & (this.stripes.length - 1)];
+    }
+
+    /**
+     * A map in access order, guarded by its own monitor.
+     */
+    private static final class Stripe extends LinkedHashMap<RequestKey, CachedResponse> {
+
+        private final int maxEntries;
+
+        private Stripe(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RequestKey, CachedResponse> eldest) {
+            return this.size() > this.maxEntries;
+        }
+
+    }
+
+    private static final class CachedResponse {
+
+        private final RawJSON result;
+        private final long created;
+
+        private CachedResponse(RawJSON result, long created) {
+            this.result = result;
+            this.created = created;
+        }
+
+    }
+
+}
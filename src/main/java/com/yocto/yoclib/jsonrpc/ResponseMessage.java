@@ -11,4 +11,11 @@ public class ResponseMessage extends Message{
         super(value);
     }
 
+    /**
+     * @param data The member slots
+     */
+    ResponseMessage(MessageData data) {
+        super(data);
+    }
+
 }
\ No newline at end of file
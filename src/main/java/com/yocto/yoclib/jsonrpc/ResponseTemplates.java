@@ -0,0 +1,357 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes V2 responses from pre-encoded templates, splicing in only the id and the result. This avoids building a
+ * message and an object tree for the standard error responses and for plain result responses.
+ * <p>
+ * The templates are derived from {@link Message#createResponseMessageV2(Object, Object, JSONObject)} at class
+ * initialization, so the output is byte-identical to {@code encodeJSON(createResponseMessageV2(...).toObject())}.
+ */
+public final class ResponseTemplates {
+
+    private static final String ID_MARKER = "ID_MARKER";
+    private static final String RESULT_MARKER = "RESULT_MARKER";
+
+    private static final int[] CODES = {
+            JSONRPCException.PARSE_ERROR,
+            JSONRPCException.INVALID_REQUEST,
+            JSONRPCException.METHOD_NOT_FOUND,
+            JSONRPCException.INVALID_PARAMS,
+            JSONRPCException.INTERNAL_ERROR,
+    };
+    private static final String[] MESSAGES = {
+            "Parse error",
+            "Invalid Request",
+            "Method not found",
+            "Invalid params",
+            "Internal error",
+    };
+
+    private static final byte[][] ERROR_PREFIXES = new byte[CODES.length][];
+    private static final byte[][] ERROR_SUFFIXES = new byte[CODES.length][];
+
+    /**
+     * The result response is split into the text before the first, between both and after the second placeholder.
+     */
+    private static final byte[] RESULT_PREFIX;
+    private static final byte[] RESULT_INFIX;
+    private static final byte[] RESULT_SUFFIX;
+    private static final boolean RESULT_ID_FIRST;
+
+    private static final int SCRATCH_SIZE = 1024;
+    private static final int SCRATCH_MAX_SIZE = 64 * 1024;
+    /**
+     * Results written to a stream are encoded here first. A buffer grown beyond the maximum size is not kept.
+     */
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(SCRATCH_SIZE));
+
+    static {
+        try {
+            for (int i = 0; i < CODES.length; i++) {
+                String json = Message.encodeJSON(Message.createResponseMessageV2(ID_MARKER, null, new JSONObject().put("code", CODES[i]).put("message", MESSAGES[i])).toObject());
+                int id = json.indexOf(JSONObject.quote(ID_MARKER));
+                ERROR_PREFIXES[i] = ResponseTemplates.bytes(json.substring(0, id));
+                ERROR_SUFFIXES[i] = ResponseTemplates.bytes(json.substring(id + ID_MARKER.length() + 2));
+            }
+            String json = Message.encodeJSON(Message.createResponseMessageV2(ID_MARKER, RESULT_MARKER).toObject());
+            int id = json.indexOf(JSONObject.quote(ID_MARKER));
+            int result = json.indexOf(JSONObject.quote(RESULT_MARKER));
+            RESULT_ID_FIRST = id < result;
+            int first = Math.min(id, result);
+            int second = Math.max(id, result);
+            RESULT_PREFIX = ResponseTemplates.bytes(json.substring(0, first));
+            RESULT_INFIX = ResponseTemplates.bytes(json.substring(first + (RESULT_ID_FIRST ? ID_MARKER : RESULT_MARKER).length() + 2, second));
+            RESULT_SUFFIX = ResponseTemplates.bytes(json.substring(second + (RESULT_ID_FIRST ? RESULT_MARKER : ID_MARKER).length() + 2));
+        } catch (JSONRPCException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ResponseTemplates() {
+    }
+
+    /**
+     * @param code One of the standard error codes of {@link JSONRPCException}
+     * @return The standard message of the code
+     * @throws IllegalArgumentException If the code is not a standard error code
+     */
+    public static String getErrorMessage(int code) {
+        return MESSAGES[ResponseTemplates.indexOf(code)];
+    }
+
+    /**
+     * @param code One of the standard error codes of {@link JSONRPCException}
+     * @param id The id, null if it could not be determined
+     * @return The UTF-8 encoded error response
+     * @throws IllegalArgumentException If the code is not a standard error code
+     */
+    public static byte[] encodeError(int code, Object id) {
+        int index = ResponseTemplates.indexOf(code);
+        byte[] prefix = ERROR_PREFIXES[index];
+        byte[] suffix = ERROR_SUFFIXES[index];
+        ByteBuffer buffer = ByteBuffer.allocate(prefix.length + ResponseTemplates.idLength(id) + suffix.length);
+        buffer.put(prefix);
+        ResponseTemplates.putId(id, buffer);
+        buffer.put(suffix);
+        return buffer.array();
+    }
+
+    /**
+     * @param code One of the standard error codes of {@link JSONRPCException}
+     * @param id The id, null if it could not be determined
+     * @param stream The stream, which is not flushed or closed
+     * @throws IOException If writing fails
+     * @throws IllegalArgumentException If the code is not a standard error code
+     */
+    public static void writeError(int code, Object id, OutputStream stream) throws IOException {
+        int index = ResponseTemplates.indexOf(code);
+        stream.write(ERROR_PREFIXES[index]);
+        ResponseTemplates.writeId(id, stream);
+        stream.write(ERROR_SUFFIXES[index]);
+    }
+
+    /**
+     * @param code One of the standard error codes of {@link JSONRPCException}
+     * @param id The id, null if it could not be determined
+     * @param buffer The buffer, written starting at its position
+     * @throws BufferOverflowException If the buffer is too small, its position is left unchanged.
+     * @throws IllegalArgumentException If the code is not a standard error code
+     */
+    public static void writeError(int code, Object id, ByteBuffer buffer) {
+        int index = ResponseTemplates.indexOf(code);
+        byte[] prefix = ERROR_PREFIXES[index];
+        byte[] suffix = ERROR_SUFFIXES[index];
+        if (buffer.remaining() < prefix.length + ResponseTemplates.idLength(id) + suffix.length) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(prefix);
+        ResponseTemplates.putId(id, buffer);
+        buffer.put(suffix);
+    }
+
+    /**
+     * @param id The id
+     * @param result The result, null is written as JSON null
+     * @return The UTF-8 encoded result response
+     * @throws JSONRPCException If the result can not be encoded
+     */
+    public static byte[] encodeResult(Object id, Object result) throws JSONRPCException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            ResponseTemplates.writeResult(id, result, stream);
+        } catch (IOException e) {
+            throw new JSONRPCException("Failed to encode JSON.", JSONRPCException.INTERNAL_ERROR);
+        }
+        return stream.toByteArray();
+    }
+
+    /**
+     * @param id The id
+     * @param result The result, null is written as JSON null
+     * @param stream The stream, which is not closed
+     * @throws IOException If writing fails
+     * @throws JSONRPCException If the result can not be encoded
+     */
+    public static void writeResult(Object id, Object result, OutputStream stream) throws IOException, JSONRPCException {
+        stream.write(RESULT_PREFIX);
+        if (RESULT_ID_FIRST) {
+            ResponseTemplates.writeId(id, stream);
+            stream.write(RESULT_INFIX);
+            ResponseTemplates.writeResult(result, stream);
+        } else {
+            ResponseTemplates.writeResult(result, stream);
+            stream.write(RESULT_INFIX);
+            ResponseTemplates.writeId(id, stream);
+        }
+        stream.write(RESULT_SUFFIX);
+    }
+
+    /**
+     * @param id The id
+     * @param result The result, null is written as JSON null
+     * @param buffer The buffer, written starting at its position
+     * @throws JSONRPCException If the result can not be encoded
+     * @throws BufferOverflowException If the buffer is too small, its position is left unchanged.
+     */
+    public static void writeResult(Object id, Object result, ByteBuffer buffer) throws JSONRPCException {
+        int position = buffer.position();
+        try {
+            if (buffer.remaining() < RESULT_PREFIX.length + RESULT_INFIX.length + RESULT_SUFFIX.length + ResponseTemplates.idLength(id)) {
+                throw new BufferOverflowException();
+            }
+            buffer.put(RESULT_PREFIX);
+            if (RESULT_ID_FIRST) {
+                ResponseTemplates.putId(id, buffer);
+                buffer.put(RESULT_INFIX);
+                ResponseTemplates.putResult(result, buffer);
+            } else {
+                ResponseTemplates.putResult(result, buffer);
+                buffer.put(RESULT_INFIX);
+                ResponseTemplates.putId(id, buffer);
+            }
+            buffer.put(RESULT_SUFFIX);
+        } catch (BufferOverflowException | JSONRPCException e) {
+            ((Buffer) buffer).position(position);
+            throw e;
+        }
+    }
+
+    private static void writeResult(Object result, OutputStream stream) throws IOException, JSONRPCException {
+        if (result instanceof RawJSON) {
+            ((RawJSON) result).writeTo(stream);
+            return;
+        }
+        ByteBuffer buffer = ResponseTemplates.encodeToScratch(result);
+        stream.write(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * @param result The result, null is encoded as JSON null
+     * @return The UTF-8 encoded result
+     * @throws JSONRPCException If the result can not be encoded
+     */
+    static byte[] encodeValue(Object result) throws JSONRPCException {
+        if (result instanceof RawJSON) {
+            return ((RawJSON) result).toByteArray();
+        }
+        ByteBuffer buffer = ResponseTemplates.encodeToScratch(result);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * @return The per-thread buffer holding the encoded result up to its position
+     */
+    private static ByteBuffer encodeToScratch(Object result) throws JSONRPCException {
+        ByteBuffer buffer = SCRATCH.get();
+        while (true) {
+            ((Buffer) buffer).clear();
+            try {
+                ResponseTemplates.putResult(result, buffer);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+        if (buffer.capacity() <= SCRATCH_MAX_SIZE) {
+            SCRATCH.set(buffer);
+        }
+        return buffer;
+    }
+
+    static void putResult(Object result, ByteBuffer buffer) throws JSONRPCException {
+        if (result instanceof RawJSON) {
+            buffer.put(((RawJSON) result).asByteBuffer());
+        } else {
+            Message.encodeJSON(result != null ? result : JSONObject.NULL, buffer);
+        }
+    }
+
+    private static int indexOf(int code) {
+        for (int i = 0; i < CODES.length; i++) {
+            if (CODES[i] == code) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a standard error code: " + code);
+    }
+
+    /**
+     * @param id
+     * @return True if the id is a string that is written verbatim between quotes, false if not.
+     */
+    private static boolean isPlainString(Object id) {
+        if (!(id instanceof String)) {
+            return false;
+        }
+        String string = (String) id;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < ' ' || c > '~' || c == '"' || c == '\\' || c == '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInteger(Object id) {
+        return id instanceof Integer || id instanceof Long;
+    }
+
+    private static int idLength(Object id) {
+        if (id == null) {
+            return 4;
+        }
+        if (ResponseTemplates.isInteger(id)) {
+            long value = ((Number) id).longValue();
+            int length = value < 0 ? 2 : 1;
+            for (long rest = value / 10; rest != 0; rest /= 10) {
+                length++;
+            }
+            return length;
+        }
+        if (ResponseTemplates.isPlainString(id)) {
+            return ((String) id).length() + 2;
+        }
+        return ResponseTemplates.bytes(JSONObject.valueToString(id)).length;
+    }
+
+    private static void writeId(Object id, OutputStream stream) throws IOException {
+        if (id == null || ResponseTemplates.isInteger(id) || ResponseTemplates.isPlainString(id)) {
+            byte[] bytes = new byte[ResponseTemplates.idLength(id)];
+            ResponseTemplates.putId(id, ByteBuffer.wrap(bytes));
+            stream.write(bytes);
+        } else {
+            stream.write(ResponseTemplates.bytes(JSONObject.valueToString(id)));
+        }
+    }
+
+    static void putId(Object id, ByteBuffer buffer) {
+        if (id == null) {
+            buffer.put((byte) 'n').put((byte) 'u').put((byte) 'l').put((byte) 'l');
+        } else if (ResponseTemplates.isInteger(id)) {
+            ResponseTemplates.putLong(((Number) id).longValue(), buffer);
+        } else if (ResponseTemplates.isPlainString(id)) {
+            String string = (String) id;
+            buffer.put((byte) '"');
+            for (int i = 0; i < string.length(); i++) {
+                buffer.put((byte) string.charAt(i));
+            }
+            buffer.put((byte) '"');
+        } else {
+            buffer.put(ResponseTemplates.bytes(JSONObject.valueToString(id)));
+        }
+    }
+
+    static void putLong(long value, ByteBuffer buffer) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+        } else {
+            // Digits are produced from the negated value, so Long.MIN_VALUE needs no special case
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor <= -10) {
+            divisor *= 10;
+        }
+        for (; divisor != 0; divisor /= 10) {
+            buffer.put((byte) ('0' - value / divisor));
+            value %= divisor;
+        }
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.yocto.yoclib.jsonrpc;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Conversions used by the code generated for a {@link JSONRPCService}. Every method converts to one type, so the
+ * generated call sites stay monomorphic.
+ * <p>
+ * A name identifies the param being converted; a null name means the result of a call. A value of the wrong type is
+ * a {@link JSONRPCException#INVALID_PARAMS} error for a param and an {@link JSONRPCException#INTERNAL_ERROR} error for
+ * a result. Null is passed through for reference types and rejected for primitives.
+ */
+public final class ServiceSupport {
+
+    private ServiceSupport() {
+    }
+
+    /**
+     * @param params The params: an array, an object, or null if absent
+     * @param names The param names, in positional order
+     * @return The values in positional order, null for missing params
+     * @throws JSONRPCException If there are too many or unknown params
+     */
+    public static Object[] params(Object params, String[] names) throws JSONRPCException {
+        Object[] values = new Object[names.length];
+        if (params instanceof RawJSON) {
+            params = ((RawJSON) params).getValue();
+        }
+        if (params instanceof JSONArray) {
+            JSONArray array = (JSONArray) params;
+            if (array.length() > names.length) {
+                throw ServiceSupport.invalidParams("Expected at most " + names.length + " params, got " + array.length() + ".");
+            }
+            for (int i = 0; i < array.length(); i++) {
+                values[i] = array.opt(i);
+            }
+        } else if (params instanceof JSONObject) {
+            JSONObject object = (JSONObject) params;
+            for (String key : object.keySet()) {
+                int index = ServiceSupport.indexOf(names, key);
+                if (index < 0) {
+                    throw ServiceSupport.invalidParams("Unknown param \"" + key + "\".");
+                }
+                values[index] = object.opt(key);
+            }
+        } else if (!ServiceSupport.isNull(params)) {
+            throw ServiceSupport.invalidParams("The params MUST be an array or object.");
+        }
+        return values;
+    }
+
+    /**
+     * @param response The response to a call
+     * @return The result
+     * @throws JSONRPCException If the response is an error, with its code and message
+     */
+    public static Object result(ResponseMessage response) throws JSONRPCException {
+        if (response == null) {
+            throw new JSONRPCException("No response.", JSONRPCException.INTERNAL_ERROR);
+        }
+        if (response.hasError()) {
+            Integer code = response.getErrorCode();
+            throw new JSONRPCException(response.getErrorMessage(), code != null ? code : JSONRPCException.INTERNAL_ERROR);
+        }
+        return response.getResult();
+    }
+
+    /**
+     * @param value The value
+     * @return True if the value is null or JSON null, false if not.
+     */
+    public static boolean isNull(Object value) {
+        return value == null || JSONObject.NULL.equals(value);
+    }
+
+    public static int toInt(Object value, String name) throws JSONRPCException {
+        long number = ServiceSupport.toLong(value, name);
+        if (number != (int) number) {
+            throw ServiceSupport.invalidType(name);
+        }
+        return (int) number;
+    }
+
+    public static long toLong(Object value, String name) throws JSONRPCException {
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        throw ServiceSupport.invalidValue(value, name);
+    }
+
+    public static short toShort(Object value, String name) throws JSONRPCException {
+        long number = ServiceSupport.toLong(value, name);
+        if (number != (short) number) {
+            throw ServiceSupport.invalidType(name);
+        }
+        return (short) number;
+    }
+
+    public static byte toByte(Object value, String name) throws JSONRPCException {
+        long number = ServiceSupport.toLong(value, name);
+        if (number != (byte) number) {
+            throw ServiceSupport.invalidType(name);
+        }
+        return (byte) number;
+    }
+
+    public static double toDouble(Object value, String name) throws JSONRPCException {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        throw ServiceSupport.invalidValue(value, name);
+    }
+
+    public static float toFloat(Object value, String name) throws JSONRPCException {
+        return (float) ServiceSupport.toDouble(value, name);
+    }
+
+    public static boolean toBoolean(Object value, String name) throws JSONRPCException {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw ServiceSupport.invalidValue(value, name);
+    }
+
+    public static char toChar(Object value, String name) throws JSONRPCException {
+        if (value instanceof String && ((String) value).length() == 1) {
+            return ((String) value).charAt(0);
+        }
+        throw ServiceSupport.invalidValue(value, name);
+    }
+
+    public static String toString(Object value, String name) throws JSONRPCException {
+        if (ServiceSupport.isNull(value)) {
+            return null;
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw ServiceSupport.invalidType(name);
+    }
+
+    public static BigDecimal toBigDecimal(Object value, String name) throws JSONRPCException {
+        if (ServiceSupport.isNull(value)) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof Number) {
+            return new BigDecimal(value.toString());
+        }
+        throw ServiceSupport.invalidType(name);
+    }
+
+    public static BigInteger toBigInteger(Object value, String name) throws JSONRPCException {
+        if (ServiceSupport.isNull(value)) {
+            return null;
+        }
+        if (value instanceof BigInteger) {
+            return (BigInteger) value;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        }
+        throw ServiceSupport.invalidType(name);
+    }
+
+    public static JSONObject toJSONObject(Object value, String name) throws JSONRPCException {
+        if (ServiceSupport.isNull(value)) {
+            return null;
+        }
+        if (value instanceof JSONObject) {
+            return (JSONObject) value;
+        }
+        throw ServiceSupport.invalidType(name);
+    }
+
+    public static JSONArray toJSONArray(Object value, String name) throws JSONRPCException {
+        if (ServiceSupport.isNull(value)) {
+            return null;
+        }
+        if (value instanceof JSONArray) {
+            return (JSONArray) value;
+        }
+        throw ServiceSupport.invalidType(name);
+    }
+
+    /**
+     * @param value The value
+     * @param name The param name, or null for a result
+     * @return The value, null for JSON null
+     */
+    public static Object toObject(Object value, String name) {
+        return ServiceSupport.isNull(value) ? null : value;
+    }
+
+    public static <E extends Enum<E>> E toEnum(Class<E> type, Object value, String name) throws JSONRPCException {
+        if (ServiceSupport.isNull(value)) {
+            return null;
+        }
+        if (value instanceof String) {
+            try {
+                return Enum.valueOf(type, (String) value);
+            } catch (IllegalArgumentException e) {
+                // Not a constant of the enum
+            }
+        }
+        throw ServiceSupport.invalidType(name);
+    }
+
+    /**
+     * @param value An enum constant, or null
+     * @return The name, or JSON null
+     */
+    public static Object fromEnum(Enum<?> value) {
+        return value != null ? value.name() : JSONObject.NULL;
+    }
+
+    /**
+     * @param value A value, or null
+     * @return The value, or JSON null
+     */
+    public static Object fromObject(Object value) {
+        return value != null ? value : JSONObject.NULL;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static JSONRPCException invalidValue(Object value, String name) {
+        if (ServiceSupport.isNull(value)) {
+            if (name == null) {
+                return new JSONRPCException("The result MUST NOT be null.", JSONRPCException.INTERNAL_ERROR);
+            }
+            return ServiceSupport.invalidParams("The param \"" + name + "\" MUST NOT be null.");
+        }
+        return ServiceSupport.invalidType(name);
+    }
+
+    private static JSONRPCException invalidType(String name) {
+        if (name == null) {
+            return new JSONRPCException("The result has an invalid type.", JSONRPCException.INTERNAL_ERROR);
+        }
+        return ServiceSupport.invalidParams("The param \"" + name + "\" has an invalid type.");
+    }
+
+    private static JSONRPCException invalidParams(String message) {
+        return new JSONRPCException(message, JSONRPCException.INVALID_PARAMS, !JSONRPCException.STACKLESS);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.yocto.yoclib.jsonrpc;
+
+/**
+ * Delivers the messages of a generated service client. A {@link Dispatcher} is an in-process transport:
+ * {@code dispatcher::dispatch}.
+ */
+@FunctionalInterface
+public interface ServiceTransport {
+
+    /**
+     * @param message The request or notification
+     * @return The response, null for a notification
+     * @throws JSONRPCException If the message can not be delivered
+     */
+    ResponseMessage send(Message message) throws JSONRPCException;
+
+}
@@ -0,0 +1,204 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CBORTest{
+
+    private static final String[] MESSAGES = {
+            "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"sum\",\"params\":[1,-2,2147483648,-9223372036854775808,18446744073709551616,-18446744073709551617]}",
+            "{\"jsonrpc\":\"2.0\",\"id\":\"abc\",\"method\":\"pay\",\"params\":{\"amount\":1.50,\"rate\":-0.000125,\"big\":1e400,\"text\":\"é€😀\\u0000\",\"nested\":{\"list\":[true,false,null,{}]}}}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"event\"}",
+            "{\"jsonrpc\":\"2.0\",\"id\":10000000000,\"result\":{\"payments\":[\"$10.12\",\"$23.45\"]}}",
+            "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32700,\"message\":\"Parse error\",\"data\":[0.1,-0.0]}}",
+            "{\"id\":123,\"method\":\"getInfo\",\"params\":[\"payments\"]}",
+            "{\"id\":123,\"result\":null,\"error\":null}",
+            "[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"a\"},{\"jsonrpc\":\"2.0\",\"method\":\"b\",\"params\":[]}]",
+    };
+
+    private static final String[] INVALID = {
+            "{\"jsonrpc\":\"2.0\",\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":1}",
+            "{\"jsonrpc\":\"1.0\",\"id\":1,\"method\":\"a\"}",
+            "{\"id\":1,\"method\":\"a\",\"params\":{}}",
+            "\"text\"",
+    };
+
+    @Test
+    public void testRoundTripMatchesJSON() throws JSONRPCException{
+        for(String json : MESSAGES){
+            Object tree = Message.decodeJSON(json);
+            byte[] cbor = Message.encodeCBOR(tree);
+            Object decoded = Message.decodeCBOR(cbor);
+
+            assertEquals(Message.encodeJSON(tree),Message.encodeJSON(decoded),json);
+            assertArrayEquals(cbor,Message.encodeCBOR(decoded),json);
+            if(!Message.isBatch(tree)){
+                assertEquals(Message.encodeJSON(Message.parseJSON(json).toObject()),Message.encodeJSON(Message.parseCBOR(cbor).toObject()),json);
+            }
+        }
+    }
+
+    @Test
+    public void testValidationMatchesJSON() throws JSONRPCException{
+        for(String json : INVALID){
+            byte[] cbor = Message.encodeCBOR(Message.decodeJSON(json));
+            JSONRPCException expected = assertThrows(JSONRPCException.class,() -> Message.parseJSON(json));
+            JSONRPCException actual = assertThrows(JSONRPCException.class,() -> Message.parseCBOR(cbor));
+
+            assertEquals(expected.getCode(),actual.getCode(),json);
+            assertEquals(expected.getMessage(),actual.getMessage(),json);
+        }
+    }
+
+    @Test
+    public void testVectors() throws JSONRPCException{
+        assertEncoded("00",0);
+        assertEncoded("1818",24);
+        assertEncoded("20",-1);
+        assertEncoded("1a000f4240",1000000);
+        assertEncoded("1bffffffffffffffff",new BigInteger("18446744073709551615"));
+        assertEncoded("c249010000000000000000",new BigInteger("18446744073709551616"));
+        assertEncoded("c349010000000000000000",new BigInteger("-18446744073709551617"));
+        assertEncoded("fb3ff8000000000000",1.5);
+        assertEncoded("6449455446","IETF");
+        assertEncoded("8201820203",new JSONArray("[1,[2,3]]"));
+        assertEncoded("c48221196ab3",new BigDecimal("273.15"));
+        assertEncoded("f6",JSONObject.NULL);
+        assertEncoded("43010203",new byte[]{1,2,3});
+
+        assertEquals(1.0f,Message.decodeCBOR(hex("f93c00")));
+        assertEquals(65504.0f,Message.decodeCBOR(hex("f97bff")));
+        assertEquals(100000.0f,Message.decodeCBOR(hex("fa47c35000")));
+        assertEquals(JSONObject.NULL,Message.decodeCBOR(hex("f7")));
+        assertArrayEquals(new byte[]{1,2,3,4,5},(byte[]) Message.decodeCBOR(hex("5f42010243030405ff")));
+        assertEquals("streaming",Message.decodeCBOR(hex("7f657374726561646d696e67ff")));
+        assertTrue(new JSONArray().similar(Message.decodeCBOR(hex("9fff"))));
+        assertTrue(new JSONObject("{\"Fun\":true,\"Amt\":-2}").similar(Message.decodeCBOR(hex("bf6346756ef563416d7421ff"))));
+        assertEquals("http://www.example.com",Message.decodeCBOR(hex("d82076687474703a2f2f7777772e6578616d706c652e636f6d")));
+        assertEquals(Long.MIN_VALUE,Message.decodeCBOR(hex("3b7fffffffffffffff")));
+    }
+
+    private static void assertEncoded(String expected,Object value) throws JSONRPCException{
+        byte[] cbor = Message.encodeCBOR(value);
+        Object decoded = Message.decodeCBOR(cbor);
+
+        assertArrayEquals(hex(expected),cbor);
+        if(value instanceof byte[]){
+            assertArrayEquals((byte[]) value,(byte[]) decoded);
+        }else if(value instanceof JSONArray){
+            assertTrue(((JSONArray) value).similar(decoded));
+        }else if(value instanceof Number && !(value instanceof Double)){
+            assertEquals(0,new BigDecimal(value.toString()).compareTo(new BigDecimal(decoded.toString())));
+        }else{
+            assertEquals(value,decoded);
+        }
+    }
+
+    @Test
+    public void testManyChunks() throws JSONRPCException{
+        int chunks = 1<<20;
+        byte[] cbor = new byte[2*chunks+2];
+        cbor[0] = 0x5f;
+        for(int i=0;i<chunks;i++){
+            cbor[1+2*i] = 0x41;
+            cbor[2+2*i] = (byte) i;
+        }
+        cbor[cbor.length-1] = (byte) 0xff;
+
+        byte[] decoded = assertTimeoutPreemptively(Duration.ofSeconds(10),() -> (byte[]) Message.decodeCBOR(cbor));
+
+        assertEquals(chunks,decoded.length);
+        assertEquals((byte) 12345,decoded[12345]);
+    }
+
+    @Test
+    public void testBinaryParams() throws JSONRPCException{
+        byte[] blob = new byte[]{0,(byte) 0xFF,10,13};
+        Message request = Message.createRequestMessageV2(1,"store",new JSONArray().put(blob));
+        Message parsed = Message.parseCBOR(Message.encodeCBOR(request.toObject()));
+
+        assertArrayEquals(blob,(byte[]) ((JSONArray) parsed.getParams()).get(0));
+    }
+
+    @Test
+    public void testMalformed(){
+        String[] inputs = {"","18","1a000f42","64494554","a1016161","a2616101616102","ff","0000","c2626162","9f01","61ff","7f4161ff","1c"};
+
+        for(String input : inputs){
+            JSONRPCException e = assertThrows(JSONRPCException.class,() -> Message.decodeCBOR(hex(input)),input);
+
+            assertEquals(JSONRPCException.PARSE_ERROR,e.getCode());
+            assertEquals("Failed to decode CBOR.",e.getMessage());
+        }
+        assertThrows(JSONRPCException.class,() -> Message.encodeCBOR(new JSONArray().put(new Object())));
+    }
+
+    @Test
+    public void testNonFinite() throws JSONRPCException{
+        // Half, single and double precision NaN and infinities, alone and as map or array members
+        String[] inputs = {"f97e00","f97c00","a16161f97e00","81f9fc00","fa7fc00000","fa7f800000","a16161faff800000","fb7ff8000000000000","fbfff0000000000000","81fb7ff0000000000000"};
+
+        for(String input : inputs){
+            JSONRPCException e = assertThrows(JSONRPCException.class,() -> Message.decodeCBOR(hex(input)),input);
+
+            assertEquals(JSONRPCException.PARSE_ERROR,e.getCode());
+        }
+
+        JSONObject response = (JSONObject) Message.decodeCBOR(new Dispatcher().handleCBOR(hex("a16161f97e00")));
+
+        assertEquals(JSONRPCException.PARSE_ERROR,response.getJSONObject("error").getInt("code"));
+    }
+
+    @Test
+    public void testDecimalFractionExponent(){
+        JSONRPCException e = assertThrows(JSONRPCException.class,() -> Message.decodeCBOR(hex("c4823a7fffffff01")));
+
+        assertEquals(JSONRPCException.PARSE_ERROR,e.getCode());
+    }
+
+    @Test
+    public void testBatch() throws JSONRPCException{
+        JSONArray batch = new JSONArray()
+                .put(Message.createRequestMessageV2(1,"echo",new JSONArray().put(new byte[]{7})).toObject())
+                .put(new JSONObject().put("jsonrpc","2.0").put("id",2))
+                .put(Message.createNotificationMessageV2("log").toObject())
+                .put(Message.createRequestMessageV2(3,"missing").toObject());
+        List<ParseResult> results = MessageBatchParser.parseCBOR(Message.encodeCBOR(batch));
+
+        assertEquals(4,results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(JSONRPCException.INVALID_REQUEST,results.get(1).getCode());
+        assertEquals(1,MessageBatchParser.parseCBOR(Message.encodeCBOR(batch.get(0))).size());
+
+        Dispatcher dispatcher = new Dispatcher().register("echo",Message::getParams).register("log",message -> null);
+        JSONArray responses = (JSONArray) Message.decodeCBOR(dispatcher.handleCBOR(Message.encodeCBOR(batch)));
+
+        assertEquals(3,responses.length());
+        assertArrayEquals(new byte[]{7},(byte[]) responses.getJSONObject(0).getJSONArray("result").get(0));
+        assertEquals(JSONRPCException.INVALID_REQUEST,responses.getJSONObject(1).getJSONObject("error").getInt("code"));
+        assertEquals(JSONRPCException.METHOD_NOT_FOUND,responses.getJSONObject(2).getJSONObject("error").getInt("code"));
+        assertNull(dispatcher.handleCBOR(Message.encodeCBOR(batch.get(2))));
+        assertEquals(JSONRPCException.PARSE_ERROR,((JSONObject) Message.decodeCBOR(dispatcher.handleCBOR(hex("ff")))).getJSONObject("error").getInt("code"));
+        assertEquals(JSONRPCException.INVALID_REQUEST,((JSONObject) Message.decodeCBOR(dispatcher.handleCBOR(hex("80")))).getJSONObject("error").getInt("code"));
+    }
+
+    private static byte[] hex(String hex){
+        byte[] bytes = new byte[hex.length()/2];
+        for(int i=0;i<bytes.length;i++){
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i*2,i*2+2),16);
+        }
+        return bytes;
+    }
+
+}
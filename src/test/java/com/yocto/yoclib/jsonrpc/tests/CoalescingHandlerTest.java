@@ -0,0 +1,102 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingHandlerTest{
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CoalescingHandler handler = new CoalescingHandler(message -> {
+        this.calls.incrementAndGet();
+        try{
+            this.release.await(5,TimeUnit.SECONDS);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        if(((JSONArray) message.getParams()).getInt(0)<0){
+            throw new JSONRPCException("Negative",JSONRPCException.INVALID_PARAMS);
+        }
+        return new JSONObject().put("value",((JSONArray) message.getParams()).getInt(0));
+    });
+
+    private List<Future<ResponseMessage>> dispatchConcurrently(ExecutorService executor,Dispatcher dispatcher,int count,int value) throws InterruptedException{
+        List<Future<ResponseMessage>> futures = new ArrayList<>();
+        for(int i=0;i<count;i++){
+            int id = i;
+            futures.add(executor.submit(() -> dispatcher.dispatch(Message.createRequestMessageV2(id,"get",new JSONArray().put(value)))));
+        }
+        long deadline = System.currentTimeMillis()+5000;
+        while(this.calls.get()==0 && System.currentTimeMillis()<deadline){
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        return futures;
+    }
+
+    @Test
+    public void testIdenticalCallsShareExecution() throws InterruptedException,ExecutionException{
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try{
+            Dispatcher dispatcher = new Dispatcher().register("get",this.handler);
+            List<Future<ResponseMessage>> futures = this.dispatchConcurrently(executor,dispatcher,8,5);
+
+            assertEquals(1,this.handler.getInFlightCount());
+
+            this.release.countDown();
+            for(int i=0;i<8;i++){
+                ResponseMessage response = futures.get(i).get();
+
+                assertEquals(i,response.getId());
+                assertEquals(5,((JSONObject) response.getResult()).getInt("value"));
+            }
+            assertEquals(1,this.calls.get());
+            assertEquals(0,this.handler.getInFlightCount());
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testErrorIsShared() throws InterruptedException,ExecutionException{
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            Dispatcher dispatcher = new Dispatcher().register("get",this.handler);
+            List<Future<ResponseMessage>> futures = this.dispatchConcurrently(executor,dispatcher,4,-1);
+
+            this.release.countDown();
+            for(Future<ResponseMessage> future : futures){
+                assertEquals(JSONRPCException.INVALID_PARAMS,future.get().getErrorCode());
+            }
+            assertEquals(1,this.calls.get());
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSequentialCallsAreNotCoalesced() throws JSONRPCException{
+        this.release.countDown();
+        this.handler.handle(Message.createRequestMessageV2(1,"get",new JSONArray().put(1)));
+        this.handler.handle(Message.createRequestMessageV2(2,"get",new JSONArray().put(1)));
+
+        assertEquals(2,this.calls.get());
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DispatcherTest{
+
+    private final AtomicInteger notified = new AtomicInteger();
+
+    private final Dispatcher dispatcher = new Dispatcher()
+            .register("sum",message -> ((JSONArray) message.getParams()).getInt(0)+((JSONArray) message.getParams()).getInt(1))
+            .register("nothing",message -> null)
+            .register("notify",message -> this.notified.incrementAndGet())
+            .register("invalid",message -> {
+                throw new JSONRPCException("Bad params",JSONRPCException.INVALID_PARAMS);
+            })
+            .register("crash",message -> {
+                throw new IllegalStateException();
+            });
+
+    private static JSONObject handle(Dispatcher dispatcher,String json) throws JSONRPCException{
+        byte[] response = dispatcher.handle(json.getBytes(StandardCharsets.UTF_8));
+        return response!=null?new JSONObject(new String(response,StandardCharsets.UTF_8)):null;
+    }
+
+    @Test
+    public void testDispatchRequest() throws JSONRPCException{
+        ResponseMessage response = this.dispatcher.dispatch(Message.createRequestMessageV2(1,"sum",new JSONArray().put(1).put(2)));
+
+        assertEquals(1,response.getId());
+        assertEquals(3,response.getResult());
+        assertTrue(response.isVersion2());
+
+        response = this.dispatcher.dispatch(Message.createRequestMessageV1(2,"sum",new JSONArray().put(3).put(4)));
+
+        assertEquals(7,response.getResult());
+        assertFalse(response.isVersion2());
+        assertEquals("{\"result\":null,\"id\":3,\"jsonrpc\":\"2.0\"}",Message.encodeJSON(this.dispatcher.dispatch(Message.createRequestMessageV2(3,"nothing")).toObject()));
+    }
+
+    @Test
+    public void testDispatchErrors() throws JSONRPCException{
+        ResponseMessage response = this.dispatcher.dispatch(Message.createRequestMessageV2("a","unknown"));
+
+        assertEquals("a",response.getId());
+        assertEquals(JSONRPCException.METHOD_NOT_FOUND,response.getErrorCode());
+        assertEquals("Method not found",response.getErrorMessage());
+
+        response = this.dispatcher.dispatch(Message.createRequestMessageV2(1,"invalid"));
+
+        assertEquals(JSONRPCException.INVALID_PARAMS,response.getErrorCode());
+        assertEquals("Bad params",response.getErrorMessage());
+
+        response = this.dispatcher.dispatch(Message.createRequestMessageV2(1,"crash"));
+
+        assertEquals(JSONRPCException.INTERNAL_ERROR,response.getErrorCode());
+
+        response = this.dispatcher.dispatch(Message.createRequestMessageV1(1,"unknown",new JSONArray()));
+
+        assertFalse(response.isVersion2());
+        assertEquals(JSONRPCException.METHOD_NOT_FOUND,((JSONObject) response.getError()).getInt("code"));
+        assertThrows(IllegalArgumentException.class,() -> this.dispatcher.dispatch(Message.createResponseMessageV2(1,"x")));
+    }
+
+    @Test
+    public void testDispatchNotification() throws JSONRPCException{
+        assertNull(this.dispatcher.dispatch(Message.createNotificationMessageV2("notify")));
+        assertNull(this.dispatcher.dispatch(Message.createNotificationMessageV2("unknown")));
+        assertNull(this.dispatcher.dispatch(Message.createNotificationMessageV2("crash")));
+        assertEquals(1,this.notified.get());
+
+        // Without strict ids, an id of 0 makes a notification
+        assertNull(this.dispatcher.dispatch(Message.parseJSON("{\"jsonrpc\":\"2.0\",\"id\":0,\"method\":\"notify\"}",false)));
+        assertEquals(2,this.notified.get());
+        assertNotNull(this.dispatcher.dispatch(Message.parseJSON("{\"jsonrpc\":\"2.0\",\"id\":0,\"method\":\"notify\"}",true)));
+    }
+
+    @Test
+    public void testDispatchWithoutMethod() throws JSONRPCException{
+        ResponseMessage response = this.dispatcher.dispatch(Message.createRequestMessageV2(1,null));
+
+        assertEquals(JSONRPCException.INVALID_REQUEST,response.getErrorCode());
+        assertNull(this.dispatcher.dispatch(Message.createNotificationMessageV2(null)));
+    }
+
+    @Test
+    public void testDispatchInvalidV1() throws JSONRPCException{
+        ParseResult result = Message.tryParse(new JSONObject("{\"id\":1,\"method\":\"sum\"}"));
+
+        assertFalse(result.isVersion2());
+
+        ResponseMessage response = this.dispatcher.dispatch(result);
+
+        assertFalse(response.isVersion2());
+        assertEquals(1,response.getId());
+        assertEquals(JSONRPCException.INVALID_REQUEST,((JSONObject) response.getError()).getInt("code"));
+        assertTrue(Message.tryParse(new JSONObject("{\"jsonrpc\":\"2.0\",\"id\":1}")).isVersion2());
+    }
+
+    @Test
+    public void testRegistry(){
+        Dispatcher.Handler handler = message -> 1;
+        Dispatcher dispatcher = new Dispatcher().register("a",handler);
+
+        assertSame(handler,dispatcher.getHandler("a"));
+        assertTrue(dispatcher.unregister("a"));
+        assertFalse(dispatcher.unregister("a"));
+        assertNull(dispatcher.getHandler("a"));
+    }
+
+    @Test
+    public void testHandleSingle() throws JSONRPCException{
+        assertTrue(new JSONObject("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":3}").similar(handle(this.dispatcher,"{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"sum\",\"params\":[1,2]}")));
+        assertNull(handle(this.dispatcher,"{\"jsonrpc\":\"2.0\",\"method\":\"notify\"}"));
+        assertTrue(new JSONObject("{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32700,\"message\":\"Parse error\"}}").similar(handle(this.dispatcher,"{\"jsonrpc\":\"2.0\",\"method\"")));
+        assertTrue(new JSONObject("{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}").similar(handle(this.dispatcher,"[]")));
+
+        JSONObject response = handle(this.dispatcher,"{\"jsonrpc\":\"2.0\",\"id\":5,\"method\":1}");
+
+        assertEquals(5,response.get("id"));
+        assertEquals(-32600,response.getJSONObject("error").getInt("code"));
+        assertEquals("The \"method\" property in request MUST be a string.",response.getJSONObject("error").getString("data"));
+    }
+
+    @Test
+    public void testHandleBatch() throws JSONRPCException{
+        byte[] body = ("[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"sum\",\"params\":[1,2]},"
+                +"{\"jsonrpc\":\"2.0\",\"method\":\"notify\"},"
+                +"1,"
+                +"{\"jsonrpc\":\"2.0\",\"id\":\"x\",\"method\":\"unknown\"}]").getBytes(StandardCharsets.UTF_8);
+        JSONArray responses = new JSONArray(new String(this.dispatcher.handle(body),StandardCharsets.UTF_8));
+
+        assertEquals(3,responses.length());
+        assertEquals(3,responses.getJSONObject(0).get("result"));
+        assertEquals(JSONObject.NULL,responses.getJSONObject(1).get("id"));
+        assertEquals(-32600,responses.getJSONObject(1).getJSONObject("error").getInt("code"));
+        assertEquals("x",responses.getJSONObject(2).get("id"));
+        assertEquals(-32601,responses.getJSONObject(2).getJSONObject("error").getInt("code"));
+        assertEquals(1,this.notified.get());
+        assertNull(this.dispatcher.handle("[{\"jsonrpc\":\"2.0\",\"method\":\"notify\"}]".getBytes(StandardCharsets.UTF_8)));
+
+        List<ResponseMessage> list = this.dispatcher.dispatch(MessageBatchParser.parse(body));
+
+        assertEquals(3,list.size());
+    }
+
+    @Test
+    public void testConcurrentBatch() throws JSONRPCException{
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try{
+            Dispatcher dispatcher = new Dispatcher(executor,4).register("sleep",message -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(),Math::max);
+                try{
+                    Thread.sleep(100);
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return message.getId();
+            });
+            StringBuilder json = new StringBuilder("[");
+            for(int i=0;i<12;i++){
+                json.append(i>0?",":"").append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"sleep\"}");
+            }
+            json.append(",{\"jsonrpc\":\"2.0\",\"method\":\"sleep\"},{\"jsonrpc\":\"2.0\",\"id\":99,\"method\":\"unknown\"}]");
+
+            long start = System.nanoTime();
+            List<ResponseMessage> responses = dispatcher.dispatch(MessageBatchParser.parse(json.toString().getBytes(StandardCharsets.UTF_8)));
+            long elapsed = (System.nanoTime()-start)/1000000;
+
+            assertEquals(13,responses.size());
+            for(int i=0;i<12;i++){
+                assertEquals(i,responses.get(i).getResult());
+            }
+            assertEquals(JSONRPCException.METHOD_NOT_FOUND,responses.get(12).getErrorCode());
+            assertTrue(maxRunning.get()<=4);
+            assertTrue(elapsed<1000,"Took "+elapsed+" ms");
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDispatchAsync() throws JSONRPCException,InterruptedException,ExecutionException{
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try{
+            Dispatcher dispatcher = new Dispatcher(executor,2).register("thread",message -> Thread.currentThread().getName());
+
+            assertNotEquals(Thread.currentThread().getName(),dispatcher.dispatchAsync(Message.createRequestMessageV2(1,"thread")).get().getResult());
+            assertNull(dispatcher.dispatchAsync(Message.createNotificationMessageV2("thread")).get());
+            assertEquals("main",new Dispatcher().register("thread",message -> "main").dispatchAsync(Message.createRequestMessageV2(1,"thread")).get().getResult());
+        }finally{
+            executor.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class,() -> new Dispatcher(executor,0));
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JSONCodecTest{
+
+    private static final String[] INPUTS = {
+            "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"sum\",\"params\":[1,2.5,-3e2,12345678901234567890,true,null]}",
+            " [ {\"a\" : \"\\u00e9\\n\\\"\"} , [] , {} ] ",
+            "\"text\"",
+            "-0",
+            "1.0",
+            "{'a':b}",
+            "{\"a\":1,\"a\":2}",
+            "{} trailing",
+            "[1,]",
+            "{\"a\":",
+            "",
+            "nul",
+    };
+
+    @Test
+    public void testDecodeMatchesOrgJSON(){
+        for(String input : INPUTS){
+            Object expected;
+            try{
+                expected = JSONCodec.ORG_JSON.decode(input);
+            }catch(JSONRPCException e){
+                assertEquals(JSONRPCException.PARSE_ERROR,e.getCode());
+                JSONRPCException fast = assertThrows(JSONRPCException.class,() -> JSONCodec.FAST.decode(input),input);
+                assertEquals(e.getCode(),fast.getCode());
+                continue;
+            }
+            assertSimilar(expected,assertDoesNotThrow(() -> JSONCodec.FAST.decode(input)),input);
+            byte[] bytes = (" "+input).getBytes(StandardCharsets.UTF_8);
+            assertSimilar(expected,assertDoesNotThrow(() -> JSONCodec.FAST.decode(bytes,1,bytes.length-1)),input);
+            assertSimilar(expected,assertDoesNotThrow(() -> JSONCodec.FAST.decode(new StringReader(input))),input);
+        }
+    }
+
+    private static void assertSimilar(Object expected,Object actual,String message){
+        if(expected instanceof JSONObject){
+            assertTrue(((JSONObject) expected).similar(actual),message);
+        }else if(expected instanceof JSONArray){
+            assertTrue(((JSONArray) expected).similar(actual),message);
+        }else{
+            assertEquals(expected,actual,message);
+        }
+    }
+
+    @Test
+    public void testEncodeMatchesOrgJSON() throws Exception{
+        JSONObject object = new JSONObject()
+                .put("escapes","</script> \"quoted\" \\ / \b\f\n\r\t \u0001 \u007f \u0085 é   € ℀ 😀")
+                .put("empty","")
+                .put("numbers",new JSONArray().put(1).put(10000000000L).put(2.5).put(1e300).put(1.0f).put(new BigDecimal("1.50")).put(new BigInteger("123456789012345678901234567890")))
+                .put("nested",new JSONObject().put("a",new JSONArray().put(JSONObject.NULL).put(true).put(false)))
+                .put("collection",Arrays.asList(1,"x"))
+                .put("map",Collections.singletonMap("k","v"))
+                .put("raw",Message.parseJSONLazy("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"b\":[1, 2]}}".getBytes(StandardCharsets.UTF_8)).getRawResult());
+        Object[] values = {object,new JSONArray().put(object).put("x"),"</",12,JSONObject.NULL,null,new BigDecimal("0.1")};
+
+        for(Object value : values){
+            String expected = JSONCodec.ORG_JSON.encode(value);
+
+            assertEquals(expected,JSONCodec.FAST.encode(value));
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            Message.encodeJSON(value,stream,JSONCodec.FAST);
+
+            assertEquals(expected,new String(stream.toByteArray(),StandardCharsets.UTF_8));
+
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            Message.encodeJSON(value,buffer,JSONCodec.FAST);
+
+            assertEquals(expected,new String(buffer.array(),0,buffer.position(),StandardCharsets.UTF_8));
+
+            StringBuilder builder = new StringBuilder();
+            Message.encodeJSON(value,builder,JSONCodec.FAST);
+
+            assertEquals(expected,builder.toString());
+        }
+    }
+
+    @Test
+    public void testEncodeError(){
+        JSONArray array = new JSONArray().put((JSONString) () -> {
+            throw new IllegalStateException();
+        });
+        JSONRPCException e = assertThrows(JSONRPCException.class,() -> JSONCodec.FAST.encode(array));
+
+        assertEquals(JSONRPCException.INTERNAL_ERROR,e.getCode());
+        assertThrows(JSONRPCException.class,() -> JSONCodec.ORG_JSON.encode(array));
+    }
+
+    @Test
+    public void testDefault() throws JSONRPCException{
+        assertSame(JSONCodec.ORG_JSON,JSONCodec.getDefault());
+        assertEquals(Message.encodeJSON(new JSONObject().put("a",1)),JSONCodec.FAST.encode(new JSONObject().put("a",1)));
+        assertEquals(JSONRPCException.PARSE_ERROR,assertThrows(JSONRPCException.class,() -> Message.decodeJSON("{",JSONCodec.FAST)).getCode());
+    }
+
+    @Test
+    public void testDefaultDecodeReader() throws JSONRPCException{
+        JSONCodec codec = new JSONCodec(){
+            @Override
+            public Object decode(String json){
+                throw new UnsupportedOperationException("Readers are not read into a string");
+            }
+
+            @Override
+            public void encode(Object value,Appendable appendable){
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        assertEquals(1,((JSONObject) codec.decode(new StringReader("{\"a\":1}"))).getInt("a"));
+        assertEquals(JSONRPCException.PARSE_ERROR,assertThrows(JSONRPCException.class,() -> codec.decode(new StringReader("{"))).getCode());
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBatchParserTest{
+
+    private static byte[] batch(int size){
+        StringBuilder json = new StringBuilder("[");
+        for(int i=0;i<size;i++){
+            json.append(i>0?",":"");
+            if(i%10==3){
+                json.append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":").append(i).append("}");
+            }else{
+                json.append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"m\",\"params\":[").append(i).append("]}");
+            }
+        }
+        return json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertBatch(int size,List<ParseResult> results){
+        assertEquals(size,results.size());
+        for(int i=0;i<size;i++){
+            ParseResult result = results.get(i);
+            if(i%10==3){
+                assertEquals("The \"method\" property in request MUST be a string.",result.getException().getMessage());
+            }else{
+                assertEquals(i,result.getMessage().getId());
+                assertEquals(i,((JSONArray) result.getMessage().getParams()).getInt(0));
+            }
+        }
+    }
+
+    @Test
+    public void testParseForkJoin() throws JSONRPCException{
+        assertBatch(5000,MessageBatchParser.parse(batch(5000)));
+        assertBatch(5,MessageBatchParser.parse(batch(5)));
+    }
+
+    @Test
+    public void testParseExecutor() throws JSONRPCException{
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            byte[] bytes = batch(1000);
+            assertBatch(1000,MessageBatchParser.parse(bytes,0,bytes.length,true,executor));
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseTree() throws JSONRPCException{
+        JSONArray array = (JSONArray) Message.decodeJSON(new String(batch(200),StandardCharsets.UTF_8));
+
+        assertBatch(200,MessageBatchParser.parse(array,true,ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void testParseLenientAndSingle() throws JSONRPCException{
+        List<ParseResult> results = MessageBatchParser.parse("[{'jsonrpc':'2.0','method':'a'},]".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1,results.size());
+        assertInstanceOf(NotificationMessage.class,results.get(0).getMessage());
+
+        results = MessageBatchParser.parse("{\"jsonrpc\":\"2.0\",\"method\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1,results.size());
+        assertInstanceOf(NotificationMessage.class,results.get(0).getMessage());
+        assertEquals(0,MessageBatchParser.parse("[]".getBytes(StandardCharsets.UTF_8)).size());
+    }
+
+    @Test
+    public void testParseInvalidJSON(){
+        Throwable t = assertThrows(JSONRPCException.class,() -> MessageBatchParser.parse("[{}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("Failed to decode JSON.",t.getMessage());
+    }
+
+    @Test
+    public void testParseDuplicateKeys(){
+        String[] batches = {
+                "[{\"jsonrpc\":\"2.0\",\"method\":\"a\"},{\"jsonrpc\":\"2.0\",\"method\":\"a\",\"method\":\"b\"}]",
+                "[{\"jsonrpc\":\"2.0\",\"method\":\"a\"},{\"jsonrpc\":\"2.0\",\"method\":\"a\",\"params\":{\"x\":1,\"x\":2}}]",
+        };
+        for (String batch : batches) {
+            JSONRPCException t = assertThrows(JSONRPCException.class,() -> MessageBatchParser.parse(batch.getBytes(StandardCharsets.UTF_8)));
+
+            assertEquals(JSONRPCException.PARSE_ERROR,t.getCode());
+            assertEquals("Failed to decode JSON.",t.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBatchReaderTest{
+
+    private static InputStream input(String json){
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadBatch() throws JSONRPCException{
+        MessageBatchReader reader = new MessageBatchReader(input("[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"a\"},{\"jsonrpc\":\"2.0\",\"method\":1},{\"jsonrpc\":\"2.0\",\"method\":\"b\"}]"));
+
+        ParseResult first = reader.next();
+        assertTrue(reader.isBatch());
+        assertTrue(first.isSuccess());
+        assertInstanceOf(RequestMessage.class,first.get());
+
+        ParseResult second = reader.next();
+        assertFalse(second.isSuccess());
+        assertNull(second.getMessage());
+        assertEquals("The \"method\" property in request MUST be a string.",second.getException().getMessage());
+        Throwable t = assertThrows(JSONRPCException.class,second::get);
+        assertSame(second.getException(),t);
+
+        assertInstanceOf(NotificationMessage.class,reader.next().getMessage());
+        assertFalse(reader.hasNext());
+        assertThrows(NoSuchElementException.class,reader::next);
+    }
+
+    @Test
+    public void testReadSingle(){
+        MessageBatchReader reader = new MessageBatchReader(input("{\"id\":1,\"result\":1,\"error\":null}"));
+
+        assertTrue(reader.hasNext());
+        assertInstanceOf(ResponseMessage.class,reader.next().getMessage());
+        assertFalse(reader.isBatch());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testReadLargeBatch(){
+        StringBuilder json = new StringBuilder("[");
+        for(int i=0;i<10000;i++){
+            json.append(i>0?",":"").append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"m\",\"params\":[\"").append(i).append("\"]}");
+        }
+        json.append("]");
+
+        assertEquals(10000L,new MessageBatchReader(input(json.toString())).stream().filter(ParseResult::isSuccess).count());
+    }
+
+    @Test
+    public void testReadTruncated(){
+        MessageBatchReader reader = new MessageBatchReader(input("[{\"jsonrpc\":\"2.0\",\"method\":\"a\"},{\"jsonrpc\""));
+
+        assertEquals("Failed to decode JSON.",reader.stream().filter(r -> !r.isSuccess()).map(r -> r.getException().getMessage()).collect(Collectors.joining()));
+    }
+
+}
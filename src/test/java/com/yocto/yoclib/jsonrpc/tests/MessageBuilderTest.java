@@ -0,0 +1,134 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBuilderTest{
+
+    private static final Object[] IDS = {null,0,7,-1,Long.MAX_VALUE,Long.MIN_VALUE,"","abc","</x","\"q\"\\","caf\u00e9\u2028",new BigDecimal("1.50")};
+
+    private static String encode(MessageBuilder builder) throws JSONRPCException{
+        return new String(builder.encode(),StandardCharsets.UTF_8);
+    }
+
+    private static String expected(Message message) throws JSONRPCException{
+        return Message.encodeJSON(message.toObject());
+    }
+
+    @Test
+    public void testRequestMatchesEncodeJSON() throws JSONRPCException{
+        Object[] params = {null,new JSONArray().put(1).put("x"),new JSONObject().put("a",new JSONArray()),new RawJSON("{\"b\":2}".getBytes(StandardCharsets.UTF_8))};
+        for(Object id : IDS){
+            for(Object p : params){
+                MessageBuilder builder = new MessageBuilder().id(id).method("sum").params(p);
+
+                assertEquals(expected(Message.createRequestMessageV2(id,"sum",p)),encode(builder));
+                assertTrue(builder.build().isRequest());
+            }
+        }
+        assertEquals(expected(Message.createRequestMessageV2WithLongId(10000000000L,"sum")),encode(new MessageBuilder().id(10000000000L).method("sum")));
+        assertEquals(expected(Message.createRequestMessageV2("\u00e9","a\"b")),encode(new MessageBuilder().id("\u00e9").method("a\"b")));
+    }
+
+    @Test
+    public void testNotificationMatchesEncodeJSON() throws JSONRPCException{
+        MessageBuilder builder = new MessageBuilder().method("log");
+
+        assertEquals(expected(Message.createNotificationMessageV2("log")),encode(builder));
+        assertTrue(builder.build().isNotification());
+
+        builder.params(new JSONArray().put("line"));
+
+        assertEquals(expected(Message.createNotificationMessageV2("log",new JSONArray().put("line"))),encode(builder));
+    }
+
+    @Test
+    public void testResponseMatchesEncodeJSON() throws JSONRPCException{
+        Object[] results = {null,42,"ok",new JSONObject().put("a",1).put("b",new JSONArray().put(true)),new BigDecimal("1.5")};
+        for(Object id : IDS){
+            for(Object result : results){
+                MessageBuilder builder = MessageBuilder.get().id(id).result(result);
+
+                assertEquals(expected(Message.createResponseMessageV2(id,result!=null?result:JSONObject.NULL)),encode(builder));
+                assertEquals(expected(builder.build()),encode(builder));
+            }
+            MessageBuilder builder = MessageBuilder.get().id(id).error(JSONRPCException.METHOD_NOT_FOUND,"Method not found");
+
+            assertEquals(expected(Message.createResponseMessageV2(id,null,new JSONObject().put("code",-32601).put("message","Method not found"))),encode(builder));
+
+            builder.error(1,"Failed",new JSONObject().put("reason","x"));
+
+            assertEquals(expected(Message.createResponseMessageV2(id,null,new JSONObject().put("code",1).put("message","Failed").put("data",new JSONObject().put("reason","x")))),encode(builder));
+            assertEquals(expected(builder.build()),encode(builder));
+        }
+        assertEquals(expected(Message.createResponseMessageV2(null,1)),encode(new MessageBuilder().result(1)));
+    }
+
+    @Test
+    public void testValidation(){
+        assertEquals("[V2] The \"params\" property in request MUST be an object, array or null.",assertThrows(JSONRPCException.class,() -> new MessageBuilder().id(1).method("sum").params("x").encode()).getMessage());
+        assertEquals("[V2] The \"params\" property in request MUST be an object, array or null.",assertThrows(JSONRPCException.class,() -> new MessageBuilder().method("log").params(new RawJSON("1".getBytes(StandardCharsets.UTF_8))).build()).getMessage());
+        assertEquals("Missing \"method\" property in request.",assertThrows(JSONRPCException.class,() -> new MessageBuilder().params(new JSONArray()).encode()).getMessage());
+        assertEquals("[V2] Only one property \"result\" or \"error\" can be non null.",assertThrows(JSONRPCException.class,() -> new MessageBuilder().id(1).result(1).error(1,"x").encode()).getMessage());
+        assertEquals("[V2] The \"message\" property of the error object MUST be a string.",assertThrows(JSONRPCException.class,() -> new MessageBuilder().id(1).error(1,null).encode()).getMessage());
+        assertEquals("[V2] Unknown message type.",assertThrows(JSONRPCException.class,() -> new MessageBuilder().id(1).encode()).getMessage());
+        assertEquals("[V2] Unknown message type.",assertThrows(JSONRPCException.class,() -> new MessageBuilder().id(1).method("sum").result(1).encode()).getMessage());
+        assertEquals(JSONRPCException.INTERNAL_ERROR,assertThrows(JSONRPCException.class,() -> new MessageBuilder().id(1).encode()).getCode());
+    }
+
+    @Test
+    public void testReuse() throws JSONRPCException,IOException{
+        MessageBuilder builder = new MessageBuilder();
+        JSONArray large = new JSONArray();
+        for(int i=0;i<1000;i++){
+            large.put("item"+i);
+        }
+
+        assertEquals(expected(Message.createResponseMessageV2(1,large)),encode(builder.id(1).result(large)));
+        assertEquals(expected(Message.createRequestMessageV2(2,"next")),encode(builder.reset().id(2).method("next")));
+        assertSame(MessageBuilder.get(),MessageBuilder.get());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        builder.writeTo(stream);
+
+        assertEquals(expected(Message.createRequestMessageV2(2,"next")),new String(stream.toByteArray(),StandardCharsets.UTF_8));
+
+        StringBuilder huge = new StringBuilder();
+        for(int i=0;i<100000;i++){
+            huge.append('x');
+        }
+        for(int i=0;i<2;i++){
+            assertEquals(expected(Message.createResponseMessageV2(3,huge.toString())),encode(builder.reset().id(3).result(huge.toString())));
+            assertEquals(expected(Message.createResponseMessageV2(4,"small")),encode(builder.reset().id(4).result("small")));
+        }
+    }
+
+    @Test
+    public void testWriteToBuffer() throws JSONRPCException{
+        MessageBuilder builder = new MessageBuilder().id(1).result("ok");
+        byte[] expected = builder.encode();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put((byte) ' ');
+        builder.writeTo(buffer);
+
+        assertEquals(1+expected.length,buffer.position());
+
+        ByteBuffer small = ByteBuffer.allocate(expected.length-1);
+
+        assertThrows(BufferOverflowException.class,() -> builder.writeTo(small));
+        assertEquals(0,small.position());
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageDeflaterTest{
+
+    private static List<byte[]> messages() throws JSONRPCException{
+        List<byte[]> messages = new ArrayList<>();
+        for(int i=0;i<200;i++){
+            Message message;
+            switch(i%3){
+                case 0:
+                    message = Message.createRequestMessageV2(i,"getBalance",new JSONObject().put("account","NL"+i).put("currency","EUR"));
+                    break;
+                case 1:
+                    message = Message.createResponseMessageV2(i,new JSONObject().put("balance",i*100).put("currency","EUR"));
+                    break;
+                default:
+                    message = Message.createNotificationMessageV2("transferCompleted",new JSONArray().put(i));
+            }
+            messages.add(Message.encodeJSON(message.toObject()).getBytes(StandardCharsets.UTF_8));
+        }
+        return messages;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception{
+        Dispatcher dispatcher = new Dispatcher().register("getBalance",message -> null).register("transferCompleted",message -> null);
+        byte[] dictionary = MessageDeflater.dictionary(dispatcher.getMethods(),Arrays.asList("account","currency","balance"));
+        List<byte[]> messages = messages();
+        long raw = 0;
+        long compressed = 0;
+        try(MessageDeflater deflater = new MessageDeflater(dictionary);MessageInflater inflater = new MessageInflater(dictionary,1<<20)){
+            for(byte[] message : messages){
+                byte[] block = deflater.compress(message);
+
+                assertArrayEquals(message,inflater.decompress(block));
+
+                raw += message.length;
+                compressed += block.length;
+            }
+            assertEquals(raw,deflater.getBytesRead());
+        }
+        assertTrue(compressed*4<raw,compressed+" of "+raw);
+    }
+
+    @Test
+    public void testDictionaryHelpsFirstMessage() throws JSONRPCException{
+        byte[] message = messages().get(0);
+        byte[] dictionary = MessageDeflater.dictionary(Collections.singletonList("getBalance"),Collections.singletonList("account"));
+        try(MessageDeflater with = new MessageDeflater(dictionary);MessageDeflater without = new MessageDeflater(null)){
+            assertTrue(with.compress(message).length<without.compress(message).length);
+        }
+    }
+
+    @Test
+    public void testFrames() throws Exception{
+        List<byte[]> messages = messages();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try(MessageDeflater deflater = new MessageDeflater(null)){
+            for(byte[] message : messages){
+                deflater.write(message,stream);
+            }
+            deflater.write(new byte[0],stream);
+        }
+        byte[] frames = stream.toByteArray();
+        try(MessageInflater inflater = new MessageInflater(null,1<<20)){
+            ByteArrayInputStream input = new ByteArrayInputStream(frames);
+            for(byte[] message : messages){
+                assertArrayEquals(message,inflater.read(input));
+            }
+            assertArrayEquals(new byte[0],inflater.read(input));
+            assertNull(inflater.read(input));
+        }
+        try(MessageInflater inflater = new MessageInflater(null,1<<20)){
+            assertThrows(EOFException.class,() -> inflater.read(new ByteArrayInputStream(Arrays.copyOf(frames,10))));
+        }
+    }
+
+    @Test
+    public void testConcurrentFrames() throws Exception{
+        List<byte[]> messages = messages();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try(MessageDeflater deflater = new MessageDeflater(null)){
+            messages.parallelStream().forEach(message -> {
+                try{
+                    deflater.write(message,stream);
+                }catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        List<String> read = new ArrayList<>();
+        try(MessageInflater inflater = new MessageInflater(null,1<<20)){
+            ByteArrayInputStream input = new ByteArrayInputStream(stream.toByteArray());
+            for(byte[] message = inflater.read(input);message!=null;message = inflater.read(input)){
+                read.add(new String(message,StandardCharsets.UTF_8));
+            }
+        }
+        List<String> expected = new ArrayList<>();
+        for(byte[] message : messages){
+            expected.add(new String(message,StandardCharsets.UTF_8));
+        }
+        Collections.sort(expected);
+        Collections.sort(read);
+
+        assertEquals(expected,read);
+    }
+
+    @Test
+    public void testInvalid() throws IOException{
+        byte[] large = new byte[10000];
+        Arrays.fill(large,(byte) 'a');
+        try(MessageDeflater deflater = new MessageDeflater(null);MessageInflater inflater = new MessageInflater(null,large.length)){
+            assertArrayEquals(large,inflater.decompress(deflater.compress(large)));
+            byte[] block = deflater.compress(Arrays.copyOf(large,large.length+1));
+            assertThrows(ZipException.class,() -> inflater.decompress(block));
+        }
+        try(MessageInflater inflater = new MessageInflater(null,1000)){
+            assertThrows(ZipException.class,() -> inflater.decompress(new byte[]{(byte) 0xFF}));
+            assertThrows(ZipException.class,() -> inflater.read(new ByteArrayInputStream(new byte[]{(byte) 0xFF,(byte) 0xFF,0x7F})));
+        }
+    }
+
+}
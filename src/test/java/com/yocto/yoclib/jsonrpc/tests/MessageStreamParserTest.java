@@ -0,0 +1,223 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageStreamParserTest{
+
+    private static class CollectingListener implements MessageStreamParser.Listener{
+
+        private final List<Object> events = new ArrayList<>();
+
+        @Override
+        public void onMessage(Message message){
+            this.events.add(message);
+        }
+
+        @Override
+        public void onError(JSONRPCException exception){
+            this.events.add(exception.getMessage());
+        }
+
+        @Override
+        public void onBatchStart(){
+            this.events.add("[");
+        }
+
+        @Override
+        public void onBatchEnd(){
+            this.events.add("]");
+        }
+
+    }
+
+    @Test
+    public void testFeedByteByByte(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener);
+
+        byte[] bytes = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"café\",\"params\":[\"}\\\"{\"]}\n{\"jsonrpc\":\"2.0\",\"method\":\"abc\"}".getBytes(StandardCharsets.UTF_8);
+        for(byte b : bytes){
+            parser.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+
+        assertEquals(2,listener.events.size());
+        assertInstanceOf(RequestMessage.class,listener.events.get(0));
+        assertEquals("café",((Message) listener.events.get(0)).getMethod());
+        assertEquals("}\"{",((JSONArray) ((Message) listener.events.get(0)).getParams()).get(0));
+        assertInstanceOf(NotificationMessage.class,listener.events.get(1));
+        assertTrue(parser.isIdle());
+    }
+
+    @Test
+    public void testFeedBatch(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener);
+
+        parser.feed(ByteBuffer.wrap("[{\"jsonrpc\":\"2.0\",\"id\":1,\"resu".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1,listener.events.size());
+        assertFalse(parser.isIdle());
+
+        parser.feed(ByteBuffer.wrap("lt\":true},123,{\"jsonrpc\":\"2.0\"}]".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(5,listener.events.size());
+        assertEquals("[",listener.events.get(0));
+        assertInstanceOf(ResponseMessage.class,listener.events.get(1));
+        assertEquals("A message MUST be a JSON object.",listener.events.get(2));
+        assertEquals("[V2] Unknown message type.",listener.events.get(3));
+        assertEquals("]",listener.events.get(4));
+        assertTrue(parser.isIdle());
+    }
+
+    @Test
+    public void testFeedDirectBuffer(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener);
+
+        byte[] bytes = "{\"method\":\"abc\",\"params\":[],\"id\":null}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        parser.feed(buffer);
+
+        assertFalse(buffer.hasRemaining());
+        assertEquals(1,listener.events.size());
+        assertInstanceOf(NotificationMessage.class,listener.events.get(0));
+    }
+
+    @Test
+    public void testFeedInvalidJSON(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener);
+
+        parser.feed(ByteBuffer.wrap("{\"method\":}{\"method\":\"abc\",\"params\":[]}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2,listener.events.size());
+        assertEquals("Failed to decode JSON.",listener.events.get(0));
+        assertInstanceOf(NotificationMessage.class,listener.events.get(1));
+    }
+
+    @Test
+    public void testFinish(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener);
+
+        parser.feed(ByteBuffer.wrap("123".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0,listener.events.size());
+        parser.finish();
+        assertEquals("A message MUST be a JSON object.",listener.events.get(0));
+
+        parser.feed(ByteBuffer.wrap("{\"method\"".getBytes(StandardCharsets.UTF_8)));
+        parser.finish();
+        assertEquals("Failed to decode JSON.",listener.events.get(1));
+        assertTrue(parser.isIdle());
+    }
+
+    @Test
+    public void testFeedBatchSeparators(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener);
+
+        parser.feed(ByteBuffer.wrap("[{\"jsonrpc\":\"2.0\",\"method\":\"a\"}{\"jsonrpc\":\"2.0\",\"method\":\"b\"}]".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(5,listener.events.size());
+        assertInstanceOf(NotificationMessage.class,listener.events.get(1));
+        assertEquals("Failed to decode JSON.",listener.events.get(2));
+        assertInstanceOf(NotificationMessage.class,listener.events.get(3));
+
+        listener.events.clear();
+        parser.feed(ByteBuffer.wrap("[,,{\"jsonrpc\":\"2.0\",\"method\":\"a\"},]".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(6,listener.events.size());
+        assertEquals("Failed to decode JSON.",listener.events.get(1));
+        assertEquals("Failed to decode JSON.",listener.events.get(2));
+        assertInstanceOf(NotificationMessage.class,listener.events.get(3));
+        assertEquals("Failed to decode JSON.",listener.events.get(4));
+        assertEquals("]",listener.events.get(5));
+
+        listener.events.clear();
+        parser.feed(ByteBuffer.wrap("[1 ,2]".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4,listener.events.size());
+        assertTrue(parser.isIdle());
+    }
+
+    @Test
+    public void testFeedEmptyBatch(){
+        List<ParseResult> results = new ArrayList<>();
+        MessageBatchReader reader = new MessageBatchReader(new ByteArrayInputStream("[ ]".getBytes(StandardCharsets.UTF_8)));
+        reader.forEachRemaining(results::add);
+
+        assertEquals(1,results.size());
+        assertEquals(JSONRPCException.INVALID_REQUEST,results.get(0).getCode());
+        assertEquals("A batch MUST NOT be empty.",results.get(0).getErrorMessage());
+    }
+
+    @Test
+    public void testFeedMaxMessageSize(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener,true,40);
+
+        parser.feed(ByteBuffer.wrap("[{\"jsonrpc\":\"2.0\",\"method\":\"abc\",\"params\":[\"0123456789012345678901234567890123456789\"]},{\"jsonrpc\":\"2.0\",\"method\":\"abc\"}]".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4,listener.events.size());
+        assertEquals("The message exceeds the maximum size of 40 bytes.",listener.events.get(1));
+        assertInstanceOf(NotificationMessage.class,listener.events.get(2));
+
+        listener.events.clear();
+        byte[] chunk = new byte[1024];
+        Arrays.fill(chunk,(byte) '[');
+        for(int i=0;i<1024;i++){
+            parser.feed(ByteBuffer.wrap(chunk));
+        }
+
+        assertEquals(2,listener.events.size());
+        assertEquals("The message exceeds the maximum size of 40 bytes.",listener.events.get(1));
+
+        parser.reset();
+        parser.feed(ByteBuffer.wrap("{\"jsonrpc\":\"2.0\",\"method\":\"abc\"}".getBytes(StandardCharsets.UTF_8)));
+
+        assertInstanceOf(NotificationMessage.class,listener.events.get(2));
+        assertThrows(IllegalArgumentException.class,() -> new MessageStreamParser(listener,true,0));
+    }
+
+    @Test
+    public void testFeedAfterLargeMessage(){
+        CollectingListener listener = new CollectingListener();
+        MessageStreamParser parser = new MessageStreamParser(listener);
+
+        StringBuilder huge = new StringBuilder();
+        for(int i=0;i<100000;i++){
+            huge.append('x');
+        }
+        byte[] large = ("{\"jsonrpc\":\"2.0\",\"method\":\"large\",\"params\":[\""+huge+"\"]}").getBytes(StandardCharsets.UTF_8);
+        byte[] small = "{\"jsonrpc\":\"2.0\",\"method\":\"small\"}".getBytes(StandardCharsets.UTF_8);
+        for(int i=0;i<2;i++){
+            parser.feed(ByteBuffer.wrap(large));
+            parser.feed(ByteBuffer.wrap(small));
+        }
+
+        assertEquals(4,listener.events.size());
+        assertEquals(huge.toString(),((JSONArray) ((Message) listener.events.get(2)).getParams()).get(0));
+        assertEquals("small",((Message) listener.events.get(3)).getMethod());
+
+        parser.feed(ByteBuffer.wrap(large,0,large.length-2));
+        parser.reset();
+        parser.feed(ByteBuffer.wrap(small));
+
+        assertEquals(5,listener.events.size());
+        assertEquals("small",((Message) listener.events.get(4)).getMethod());
+        assertTrue(parser.isIdle());
+    }
+
+}
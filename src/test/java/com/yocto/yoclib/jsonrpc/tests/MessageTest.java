@@ -2,6 +2,15 @@ package com.yocto.yoclib.jsonrpc.tests;
 
 import com.yocto.yoclib.jsonrpc.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
@@ -32,6 +41,30 @@ public class MessageTest{
         assertTrue(new JSONArray().similar(Message.decodeJSON("[]")));
     }
 
+    @Test
+    public void testDecodeJSONReader() throws JSONRPCException{
+        assertTrue(new JSONObject().put("method","abc").similar(Message.decodeJSON(new StringReader("{\"method\":\"abc\"}"))));
+
+        Throwable t = assertThrows(JSONRPCException.class,() -> Message.decodeJSON(new StringReader("")));
+
+        assertEquals("Failed to decode JSON.",t.getMessage());
+    }
+
+    @Test
+    public void testDecodeJSONInputStream() throws JSONRPCException{
+        assertEquals("\u20ac",Message.decodeJSON(new ByteArrayInputStream("\"\u20ac\"".getBytes(StandardCharsets.UTF_8))));
+        assertTrue(new JSONArray().similar(Message.decodeJSON(new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    @Test
+    public void testDecodeJSONChannel() throws JSONRPCException{
+        assertTrue(new JSONObject().similar(Message.decodeJSON(Channels.newChannel(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8))))));
+
+        Throwable t = assertThrows(JSONRPCException.class,() -> Message.decodeJSON(Channels.newChannel(new ByteArrayInputStream("{".getBytes(StandardCharsets.UTF_8)))));
+
+        assertEquals("Failed to decode JSON.",t.getMessage());
+    }
+
     @Test
     public void testEncodeJSONString() throws JSONRPCException{
         assertEquals("\"abc\"",Message.encodeJSON("abc"));
@@ -47,6 +80,48 @@ public class MessageTest{
         assertEquals("[]",Message.encodeJSON(new JSONArray()));
     }
 
+    @Test
+    public void testEncodeJSONAppendable() throws JSONRPCException{
+        JSONObject object = Message.createResponseMessageV2(123,new JSONArray().put("a\u20ac\ud83d\ude00").put(1.5).put(JSONObject.NULL)).toObject();
+
+        StringBuilder builder = new StringBuilder();
+        Message.encodeJSON(object,builder);
+        assertEquals(Message.encodeJSON(object),builder.toString());
+
+        StringWriter writer = new StringWriter();
+        Message.encodeJSON("abc",writer);
+        assertEquals("\"abc\"",writer.toString());
+    }
+
+    @Test
+    public void testEncodeJSONOutputStream() throws JSONRPCException{
+        JSONObject object = Message.createRequestMessageV2(1,"caf\u00e9",new JSONObject().put("k","\u20ac")).toObject();
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Message.encodeJSON(object,stream);
+        assertArrayEquals(Message.encodeJSON(object).getBytes(StandardCharsets.UTF_8),stream.toByteArray());
+    }
+
+    @Test
+    public void testEncodeJSONByteBuffer() throws JSONRPCException{
+        JSONArray array = new JSONArray().put("a\u20ac\ud83d\ude00\u00e9").put(new JSONObject().put("x",true));
+        byte[] expected = Message.encodeJSON(array).getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put((byte) 'x');
+        Message.encodeJSON(array,buffer);
+        assertEquals(1+expected.length,buffer.position());
+        byte[] actual = new byte[expected.length];
+        buffer.flip().position(1);
+        buffer.get(actual);
+        assertArrayEquals(expected,actual);
+
+        ByteBuffer small = ByteBuffer.allocate(8);
+        small.put((byte) 'x');
+        assertThrows(BufferOverflowException.class,() -> Message.encodeJSON(array,small));
+        assertEquals(1,small.position());
+    }
+
     @Test
     public void testIsBatch(){
         assertTrue(Message.isBatch(new JSONArray()));
@@ -229,6 +304,13 @@ public class MessageTest{
         assertEquals("[V2] Only one property \"result\" or \"error\" can be present.",t.getMessage());
     }
 
+    @Test
+    public void testParseResponseV2WithErrorString(){
+        Throwable t = assertThrows(JSONRPCException.class,() -> Message.parseObject(new JSONObject().put("jsonrpc","2.0").put("id",123).put("error","def")));
+
+        assertEquals("[V2] The \"error\" property MUST be an object.",t.getMessage());
+    }
+
     @Test
     public void testParseResponseV1WithResultNullAndErrorNumber(){
         Throwable t = assertThrows(JSONRPCException.class,() -> Message.parseObject(new JSONObject().put("result",JSONObject.NULL).put("error",12.34)));
@@ -447,4 +529,243 @@ public class MessageTest{
         assertTrue(new JSONObject().put("id",123).put("method","getMethod").put("params",new JSONArray().put("param1").put("param2")).similar(Message.createRequestMessageV1(123,"getMethod",new JSONArray().put("param1").put("param2")).toObject()));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParseJSONMatchesParseObject() throws JSONRPCException{
+        String[] inputs = {
+                "",
+                "   ",
+                "123",
+                "[]",
+                "{}",
+                "{",
+                "{\"method\":}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"abc\",\"params\":[1,-2,3.5,-0,1e3,12345678901,123456789012345678901234,true,false,null,\"x\\n\\u00e9\",{\"a\":[]}]}",
+                "{\"jsonrpc\":\"2.0\",\"method\":\"abc\"}",
+                "{\"jsonrpc\":\"2.0\",\"method\":\"abc\",\"params\":null}",
+                "{\"jsonrpc\":\"2.0\",\"id\":false,\"method\":\"abc\",\"params\":[]}",
+                "{\"jsonrpc\":\"2.0\",\"id\":0,\"method\":\"abc\"}",
+                "{\"jsonrpc\":\"1.5\"}",
+                "{\"jsonrpc\":\"2.0\"}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"abc\",\"error\":{}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":1}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":1.5,\"message\":\"x\"}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32600,\"message\":\"x\"}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":\"x\"}",
+                "{\"jsonrpc\":\"2.0\",\"error\":{\"code\":1,\"message\":\"x\"}}",
+                "{\"method\":\"abc\"}",
+                "{\"method\":\"abc\",\"params\":{}}",
+                "{\"method\":\"abc\",\"params\":[],\"id\":\"\"}",
+                "{\"result\":null,\"error\":12.34}",
+                "{\"id\":1,\"result\":\"abc\",\"error\":null,\"extra\":[1]}",
+                "{\"id\":1,\"id\":2,\"result\":\"abc\",\"error\":null}",
+                "{\"\\u0069d\":1,\"result\":\"abc\",\"error\":null}",
+                "{'method':'abc',params:[],}",
+                "{\"method\":\"abc\",\"params\":[01]}",
+                "  {\"method\":\"caf\u00e9\",\"params\":[\"\u20ac\"]} trailing",
+        };
+        for(String input : inputs){
+            for(boolean strictId : new boolean[]{true,false}){
+                Object expected;
+                try{
+                    expected = Message.parseObject(Message.decodeJSON(input),strictId);
+                }catch(JSONRPCException e){
+                    expected = e.getMessage();
+                }
+                Object actual;
+                try{
+                    actual = Message.parseJSON(input,strictId);
+                }catch(JSONRPCException e){
+                    actual = e.getMessage();
+                }
+                byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+                ParseResult result = Message.tryParse(bytes,0,bytes.length,strictId);
+                if(expected instanceof Message){
+                    assertTrue(result.isSuccess(),input);
+                    assertEquals(((Message) expected).toObject().toString(),result.getMessage().toObject().toString(),input);
+                }else{
+                    assertEquals(expected,result.getErrorMessage(),input);
+                    assertEquals(expected,result.getException().getMessage(),input);
+                }
+                if(expected instanceof Message){
+                    assertInstanceOf(expected.getClass(),actual,input);
+                    assertEquals(expected.getClass(),actual.getClass(),input);
+                    assertTrue(((Message) expected).toObject().similar(((Message) actual).toObject()),input);
+                    assertEquals(((Message) expected).toObject().toString(),((Message) actual).toObject().toString(),input);
+                }else{
+                    assertEquals(expected,actual,input);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseJSONLazy() throws JSONRPCException{
+        byte[] bytes = "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"forward\",\"params\":{ \"a\" : [1, 2] }}".getBytes(StandardCharsets.UTF_8);
+        Message message = Message.parseJSONLazy(bytes);
+
+        assertInstanceOf(RequestMessage.class,message);
+        assertEquals("forward",message.getMethod());
+        assertEquals(7,message.getId());
+        assertEquals("{ \"a\" : [1, 2] }",new String(message.getRawParams().toByteArray(),StandardCharsets.UTF_8));
+        assertTrue(new JSONObject().put("a",new JSONArray().put(1).put(2)).similar(message.getParams()));
+        assertSame(message.getParams(),message.getParams());
+        assertEquals("{\"a\":[1,2]}",Message.encodeJSON(message.getParams()));
+        assertTrue(Message.encodeJSON(message.toObject()).contains("\"params\":{ \"a\" : [1, 2] }"));
+    }
+
+    @Test
+    public void testParseJSONLazyResponse() throws JSONRPCException{
+        Message result = Message.parseJSONLazy("{\"id\":1,\"result\":[\"x\"],\"error\":null}".getBytes(StandardCharsets.UTF_8));
+
+        assertInstanceOf(ResponseMessage.class,result);
+        assertEquals("[\"x\"]",result.getRawResult().toJSONString());
+        assertTrue(new JSONArray().put("x").similar(result.getResult()));
+
+        Message error = Message.parseJSONLazy("{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-1,\"message\":\"m\",\"data\":{\"k\":true}}}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(-1,error.getErrorCode());
+        assertEquals("{\"k\":true}",error.getRawErrorData().toJSONString());
+        assertTrue(new JSONObject().put("k",true).similar(error.getErrorData()));
+        assertNull(Message.parseJSON("{\"id\":1,\"result\":[],\"error\":null}").getRawResult());
+    }
+
+    @Test
+    public void testParseJSONLazyValidation(){
+        Throwable t = assertThrows(JSONRPCException.class,() -> Message.parseJSONLazy("{\"method\":\"abc\",\"params\":{}}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("[V1] The \"params\" property in request MUST be an array.",t.getMessage());
+
+        t = assertThrows(JSONRPCException.class,() -> Message.parseJSONLazy("{\"jsonrpc\":\"2.0\",\"method\":\"abc\",\"params\":[1,}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("Failed to decode JSON.",t.getMessage());
+    }
+
+    @Test
+    public void testParseJSONLazyDuplicateKeys() throws JSONRPCException{
+        String[] duplicates = {
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"m\",\"params\":{\"a\":1,\"a\":2}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"m\",\"params\":[{\"b\":{}},{\"a\":1,\"\\u0061\":2}]}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"x\":{\"\u00e9\":1,\"\\u00e9\":2}}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[{\"k1\":1,\"k2\":2,\"k3\":3,\"k4\":4,\"k5\":5,\"k6\":6,\"k7\":7,\"k8\":8,\"k9\":9,\"k3\":10}]}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":1,\"message\":\"x\",\"data\":{\"a\":1,\"a\":2}}}",
+        };
+        for (String json : duplicates) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            JSONRPCException eager = assertThrows(JSONRPCException.class,() -> Message.parseJSON(bytes));
+            JSONRPCException lazy = assertThrows(JSONRPCException.class,() -> Message.parseJSONLazy(bytes));
+
+            assertEquals(JSONRPCException.PARSE_ERROR,lazy.getCode());
+            assertEquals(eager.getMessage(),lazy.getMessage());
+        }
+
+        Message message = Message.parseJSONLazy("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"a\":1,\"\\u0062\":2,\"ab\":3,\"\u00e9\":4,\"k1\":1,\"k2\":2,\"k3\":3,\"k4\":4,\"k5\":5,\"k6\":6}}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(10,((JSONObject) message.getResult()).length());
+    }
+
+    @Test
+    public void testCreateRequestMessageV2WithRawParams() throws JSONRPCException{
+        RawJSON params = new RawJSON("[1,2]".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(Message.encodeJSON(Message.createRequestMessageV2(1,"m",params).toObject()).contains("\"params\":[1,2]"));
+        assertThrows(JSONRPCException.class,() -> Message.createRequestMessageV2(1,"m",new RawJSON("1".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testToObjectIsDetached() throws JSONRPCException{
+        JSONObject object = new JSONObject().put("jsonrpc","2.0").put("id",1).put("method","abc").put("extension","x");
+        Message message = Message.parseObject(object);
+
+        object.put("method","changed");
+        message.toObject().put("id",2);
+
+        assertEquals("abc",message.getMethod());
+        assertEquals(1,message.getId());
+        assertNotSame(message.toObject(),message.toObject());
+        assertTrue(new JSONObject().put("jsonrpc","2.0").put("id",1).put("method","abc").put("extension","x").similar(message.toObject()));
+    }
+
+    @Test
+    public void testExceptionCodes(){
+        assertEquals(JSONRPCException.PARSE_ERROR,assertThrows(JSONRPCException.class,() -> Message.decodeJSON("{")).getCode());
+        assertEquals(JSONRPCException.PARSE_ERROR,assertThrows(JSONRPCException.class,() -> Message.parseJSON("{\"id\":".getBytes(StandardCharsets.UTF_8))).getCode());
+        assertEquals(JSONRPCException.INVALID_REQUEST,assertThrows(JSONRPCException.class,() -> Message.parseObject("abc")).getCode());
+        assertEquals(JSONRPCException.INVALID_REQUEST,assertThrows(JSONRPCException.class,() -> Message.parseObject(new JSONObject().put("jsonrpc","2.0").put("method",1))).getCode());
+        assertEquals(JSONRPCException.INVALID_REQUEST,assertThrows(JSONRPCException.class,() -> Message.parseJSON("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":1,\"error\":null}".getBytes(StandardCharsets.UTF_8))).getCode());
+        assertEquals(JSONRPCException.INTERNAL_ERROR,assertThrows(JSONRPCException.class,() -> Message.createRequestMessageV2(1,"m","abc")).getCode());
+        assertEquals(JSONRPCException.INTERNAL_ERROR,assertThrows(JSONRPCException.class,() -> Message.createResponseMessageV2(1,1,new JSONObject())).getCode());
+        assertEquals(JSONRPCException.INTERNAL_ERROR,new JSONRPCException("abc").getCode());
+        assertEquals(JSONRPCException.METHOD_NOT_FOUND,new JSONRPCException("abc",JSONRPCException.METHOD_NOT_FOUND).getCode());
+    }
+
+    @Test
+    public void testTryParse() throws JSONRPCException{
+        ParseResult result = Message.tryParse(new JSONObject().put("jsonrpc","2.0").put("id","a").put("method",1));
+
+        assertFalse(result.isSuccess());
+        assertNull(result.getMessage());
+        assertEquals(JSONRPCException.INVALID_REQUEST,result.getCode());
+        assertEquals("The \"method\" property in request MUST be a string.",result.getErrorMessage());
+        assertEquals("a",result.getId());
+        assertEquals(JSONRPCException.INVALID_REQUEST,result.getException().getCode());
+        assertSame(result.getException(),assertThrows(JSONRPCException.class,result::get));
+
+        result = Message.tryParse("[1]");
+
+        assertEquals(JSONRPCException.INVALID_REQUEST,result.getCode());
+        assertNull(result.getId());
+
+        byte[] bytes = "{\"jsonrpc\":\"2.0\",\"id\":".getBytes(StandardCharsets.UTF_8);
+        result = Message.tryParse(bytes,0,bytes.length,true);
+
+        assertEquals(JSONRPCException.PARSE_ERROR,result.getCode());
+        assertEquals("Failed to decode JSON.",result.getErrorMessage());
+        assertNull(result.getId());
+
+        result = Message.tryParse(new JSONObject().put("jsonrpc","2.0").put("id",3).put("method","m"));
+
+        assertTrue(result.isSuccess());
+        assertEquals(0,result.getCode());
+        assertEquals(3,result.getId());
+        assertNull(result.getException());
+        assertInstanceOf(RequestMessage.class,result.get());
+    }
+
+    @Test
+    public void testLongId() throws JSONRPCException{
+        RequestMessage request = Message.createRequestMessageV2WithLongId(5L,"m");
+
+        assertEquals(5,request.getId());
+        assertTrue(request.hasNumericId());
+        assertEquals(5L,request.getIdAsLong());
+
+        request = Message.createRequestMessageV2WithLongId(Long.MAX_VALUE,"m",new JSONArray());
+
+        assertEquals(Long.MAX_VALUE,request.getId());
+        assertEquals(Long.MAX_VALUE,request.getIdAsLong());
+        assertEquals("{\"result\":1,\"id\":10000000000,\"jsonrpc\":\"2.0\"}",Message.encodeJSON(Message.createResponseMessageV2WithLongId(10000000000L,1).toObject()));
+        assertEquals(-7L,Message.createResponseMessageV2WithLongId(-7L,null,new JSONObject().put("code",1).put("message","x")).getIdAsLong());
+
+        Message message = Message.parseJSON("{\"jsonrpc\":\"2.0\",\"id\":123456789012,\"result\":1}".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(message.hasNumericId());
+        assertEquals(123456789012L,message.getIdAsLong());
+
+        message = Message.parseObject(new JSONObject().put("jsonrpc","2.0").put("id","12").put("result",1));
+
+        assertFalse(message.hasNumericId());
+        assertThrows(IllegalStateException.class,message::getIdAsLong);
+        assertFalse(Message.parseObject(new JSONObject().put("jsonrpc","2.0").put("id",1.0).put("result",1)).hasNumericId());
+        assertFalse(Message.parseObject(new JSONObject().put("jsonrpc","2.0").put("id",new java.math.BigInteger("123456789012345678901234")).put("result",1)).hasNumericId());
+    }
+
+    @Test
+    public void testNonStrictNumericIds() throws JSONRPCException{
+        for(long id : new long[]{0,1,255,256,512,65536,-256,1L<<40,(1L<<40)+1}){
+            boolean falsy = (id&0xFF)==0;
+
+            assertEquals(falsy,Message.parseObject(new JSONObject().put("jsonrpc","2.0").put("id",id).put("method","m"),false).isNotification(false),String.valueOf(id));
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParamsBinderTest{
+
+    public enum Currency{
+        EUR,USD
+    }
+
+    public static class Base{
+        @JSONRPCParam(position=0) String account;
+    }
+
+    public static class Payment extends Base{
+        @JSONRPCParam(position=1) long amount;
+        @JSONRPCParam(position=2) Currency currency;
+        @JSONRPCParam(position=3) BigDecimal ratio;
+        @JSONRPCParam(position=4) Integer priority;
+        @JSONRPCParam(position=5) boolean settled;
+        @JSONRPCParam(position=6) String[] tags;
+        @JSONRPCParam(position=7) Payment next;
+        transient int ignored;
+        static int alsoIgnored;
+    }
+
+    public static class Page{
+        int offset;
+        int limit = 10;
+        List<Object> filters;
+    }
+
+    public static class Reordered{
+        @JSONRPCParam(position=1) int b;
+        @JSONRPCParam(position=0) String a;
+    }
+
+    public static class Partial{
+        @JSONRPCParam(position=0) int a;
+        int b;
+    }
+
+    public static class Duplicate{
+        @JSONRPCParam(position=0) int a;
+        @JSONRPCParam(position=0) int b;
+    }
+
+    @Test
+    public void testBindPositional() throws JSONRPCException{
+        Payment payment = ParamsBinder.of(Payment.class).bind(new JSONArray("[\"NL00\",10000000000,\"EUR\",0.25,null,true,[\"a\",\"b\"],[\"DE00\",5]]"));
+
+        assertEquals("NL00",payment.account);
+        assertEquals(10000000000L,payment.amount);
+        assertEquals(Currency.EUR,payment.currency);
+        assertEquals(new BigDecimal("0.25"),payment.ratio);
+        assertNull(payment.priority);
+        assertTrue(payment.settled);
+        assertArrayEquals(new String[]{"a","b"},payment.tags);
+        assertEquals("DE00",payment.next.account);
+        assertEquals(5,payment.next.amount);
+        assertNull(payment.next.next);
+
+        Reordered reordered = ParamsBinder.of(Reordered.class).bind(new JSONArray("[\"x\",2]"));
+
+        assertEquals("x",reordered.a);
+        assertEquals(2,reordered.b);
+    }
+
+    @Test
+    public void testPositionsRequired(){
+        assertParamsError("The params MUST be an object.",() -> ParamsBinder.of(Page.class).bind(new JSONArray("[1,2]")));
+        assertEquals("Either all or none of the fields of "+Partial.class.getName()+" MUST declare a position.",assertThrows(IllegalArgumentException.class,() -> ParamsBinder.of(Partial.class)).getMessage());
+        assertThrows(IllegalArgumentException.class,() -> ParamsBinder.of(Duplicate.class));
+    }
+
+    @Test
+    public void testBindNamed() throws JSONRPCException{
+        Payment payment = ParamsBinder.of(Payment.class).bind(new JSONObject("{\"amount\":3,\"account\":\"NL00\",\"ratio\":1,\"next\":{\"currency\":\"USD\"}}"));
+
+        assertEquals("NL00",payment.account);
+        assertEquals(3,payment.amount);
+        assertEquals(BigDecimal.ONE,payment.ratio);
+        assertFalse(payment.settled);
+        assertEquals(Currency.USD,payment.next.currency);
+
+        Page page = ParamsBinder.of(Page.class).bind(null);
+
+        assertEquals(0,page.offset);
+        assertEquals(0,page.limit);
+
+        page = ParamsBinder.of(Page.class).bind(new JSONObject().put("filters",new JSONArray().put("x").put(1)));
+
+        assertEquals(Arrays.asList("x",1),page.filters);
+    }
+
+    @Test
+    public void testMismatch(){
+        ParamsBinder<Payment> binder = ParamsBinder.of(Payment.class);
+
+        assertParamsError("The param \"amount\" has an invalid type.",() -> binder.bind(new JSONObject().put("amount","3")));
+        assertParamsError("The param \"amount\" has an invalid type.",() -> binder.bind(new JSONObject().put("amount",1.5)));
+        assertParamsError("The param \"settled\" MUST NOT be null.",() -> binder.bind(new JSONObject().put("settled",JSONObject.NULL)));
+        assertParamsError("Unknown param \"unknown\".",() -> binder.bind(new JSONObject().put("unknown",1)));
+        assertParamsError("Expected at most 8 params, got 9.",() -> binder.bind(new JSONArray("[1,2,3,4,5,6,7,8,9]")));
+        assertParamsError("The param \"currency\" has an invalid type.",() -> binder.bind(new JSONObject().put("currency","GBP")));
+        assertParamsError("The param \"account\" has an invalid type.",() -> binder.bind(new JSONObject().put("next",new JSONObject().put("account",1))));
+        assertParamsError("An element of an array param has an invalid type.",() -> binder.bind(new JSONObject().put("tags",new JSONArray().put(1))));
+        assertParamsError("The params MUST be an array or object.",() -> binder.bind("abc"));
+        assertParamsError("The param \"priority\" has an invalid type.",() -> binder.bind(new JSONObject().put("priority",10000000000L)));
+        assertThrows(IllegalArgumentException.class,() -> ParamsBinder.of(List.class));
+    }
+
+    private static void assertParamsError(String message,org.junit.jupiter.api.function.Executable executable){
+        JSONRPCException e = assertThrows(JSONRPCException.class,executable);
+
+        assertEquals(JSONRPCException.INVALID_PARAMS,e.getCode());
+        assertEquals(message,e.getMessage());
+    }
+
+    @Test
+    public void testToJSON(){
+        Payment payment = new Payment();
+        payment.account = "NL00";
+        payment.amount = 7;
+        payment.currency = Currency.USD;
+        payment.tags = new String[]{"x"};
+
+        JSONObject object = (JSONObject) ParamsBinder.toJSON(payment);
+
+        assertEquals("NL00",object.get("account"));
+        assertEquals(7L,object.get("amount"));
+        assertEquals("USD",object.get("currency"));
+        assertEquals(JSONObject.NULL,object.get("next"));
+        assertEquals("x",object.getJSONArray("tags").get(0));
+        assertFalse(object.has("ignored"));
+        assertEquals(JSONObject.NULL,ParamsBinder.toJSON(null));
+        assertEquals(3,ParamsBinder.toJSON(3));
+        assertTrue(new JSONArray("[1,\"a\"]").similar(ParamsBinder.toJSON(Arrays.asList(1,"a"))));
+        assertEquals("Can not convert java.time.Instant to JSON, only records and classes with a no-argument constructor outside of the JDK are supported.",assertThrows(IllegalArgumentException.class,() -> ParamsBinder.toJSON(Instant.now())).getMessage());
+        assertThrows(IllegalArgumentException.class,() -> ParamsBinder.of(Instant.class));
+    }
+
+    @Test
+    public void testDispatcher() throws JSONRPCException{
+        Dispatcher dispatcher = new Dispatcher().register("pay",Payment.class,payment -> {
+            Payment receipt = new Payment();
+            receipt.account = payment.account;
+            receipt.amount = payment.amount*2;
+            return receipt;
+        });
+
+        JSONObject response = new JSONObject(new String(dispatcher.handle("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"pay\",\"params\":{\"account\":\"NL00\",\"amount\":21}}".getBytes(StandardCharsets.UTF_8)),StandardCharsets.UTF_8));
+
+        assertEquals(42,response.getJSONObject("result").getInt("amount"));
+        assertEquals("NL00",response.getJSONObject("result").getString("account"));
+
+        ResponseMessage error = dispatcher.dispatch(Message.parseJSONLazy("{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"pay\",\"params\":{\"amount\":\"x\"}}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(JSONRPCException.INVALID_PARAMS,error.getErrorCode());
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestBatcherTest{
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    private RequestBatcher receiver;
+
+    private final Dispatcher server = new Dispatcher().register("echo",message -> ((JSONArray) message.getParams()).get(0)).register("log",message -> null);
+
+    @Test
+    public void testSizeThreshold() throws JSONRPCException,InterruptedException,ExecutionException,TimeoutException{
+        try(RequestCorrelator correlator = new RequestCorrelator();RequestBatcher batcher = new RequestBatcher(body -> this.sent.add(new String(body,StandardCharsets.UTF_8)),correlator,3,1,TimeUnit.HOURS)){
+            CompletableFuture<ResponseMessage> first = batcher.call("echo",new JSONArray().put("a"));
+            batcher.sendNotification("log",null);
+
+            assertTrue(this.sent.isEmpty());
+
+            CompletableFuture<ResponseMessage> second = batcher.call("echo",new JSONArray().put("b"));
+
+            assertEquals(1,this.sent.size());
+
+            JSONArray batch = new JSONArray(this.sent.get(0));
+
+            assertEquals(3,batch.length());
+            assertEquals("log",batch.getJSONObject(1).getString("method"));
+
+            byte[] response = this.server.handle(this.sent.get(0).getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(2,new JSONArray(new String(response,StandardCharsets.UTF_8)).length());
+            assertEquals(2,batcher.receive(response));
+            assertEquals("a",first.get(1,TimeUnit.SECONDS).getResult());
+            assertEquals("b",second.get(1,TimeUnit.SECONDS).getResult());
+        }
+    }
+
+    @Test
+    public void testTimeWindow() throws JSONRPCException,InterruptedException,ExecutionException,TimeoutException{
+        try(RequestCorrelator correlator = new RequestCorrelator();RequestBatcher batcher = new RequestBatcher(body -> {
+            this.sent.add(new String(body,StandardCharsets.UTF_8));
+            try{
+                batcherReceive(body);
+            }catch(JSONRPCException e){
+                throw new IOException(e);
+            }
+        },correlator,100,20,TimeUnit.MILLISECONDS)){
+            this.receiver = batcher;
+            List<CompletableFuture<ResponseMessage>> futures = new ArrayList<>();
+            for(int i=0;i<5;i++){
+                futures.add(batcher.call("echo",new JSONArray().put(i)));
+            }
+            for(int i=0;i<5;i++){
+                assertEquals(i,futures.get(i).get(5,TimeUnit.SECONDS).getResult());
+            }
+            assertEquals(1,this.sent.size());
+
+            CompletableFuture<ResponseMessage> single = batcher.call("echo",new JSONArray().put("x"));
+
+            assertEquals("x",single.get(5,TimeUnit.SECONDS).getResult());
+            assertEquals("echo",new JSONObject(this.sent.get(1)).getString("method"));
+        }
+    }
+
+    private void batcherReceive(byte[] body) throws JSONRPCException{
+        byte[] response = this.server.handle(body);
+        if(response!=null){
+            this.receiver.receive(response);
+        }
+    }
+
+    @Test
+    public void testSendFailure() throws JSONRPCException{
+        try(RequestCorrelator correlator = new RequestCorrelator();RequestBatcher batcher = new RequestBatcher(body -> {
+            throw new IOException("Connection reset");
+        },correlator,10,1,TimeUnit.HOURS)){
+            CompletableFuture<ResponseMessage> future = batcher.call("echo",new JSONArray().put(1));
+            batcher.flush();
+
+            ExecutionException e = assertThrows(ExecutionException.class,future::get);
+
+            assertInstanceOf(IOException.class,e.getCause());
+            assertEquals(0,correlator.getPendingCount());
+            batcher.close();
+            assertThrows(IllegalStateException.class,() -> batcher.sendNotification("log",null));
+            assertThrows(IllegalStateException.class,() -> batcher.call("echo",null));
+            assertEquals(0,correlator.getPendingCount());
+        }
+    }
+
+    @Test
+    public void testErrorWithoutId() throws JSONRPCException{
+        try(RequestCorrelator correlator = new RequestCorrelator();RequestBatcher batcher = new RequestBatcher(body -> this.sent.add(new String(body,StandardCharsets.UTF_8)),correlator,2,1,TimeUnit.HOURS)){
+            CompletableFuture<ResponseMessage> first = batcher.call("echo",new JSONArray().put(1));
+            CompletableFuture<ResponseMessage> second = batcher.call("echo",new JSONArray().put(2));
+            CompletableFuture<ResponseMessage> third = batcher.call("echo",new JSONArray().put(3));
+            CompletableFuture<ResponseMessage> fourth = batcher.call("echo",new JSONArray().put(4));
+
+            assertEquals(2,this.sent.size());
+            assertEquals(2,batcher.receive(ResponseTemplates.encodeError(JSONRPCException.PARSE_ERROR,null)));
+
+            ExecutionException e = assertThrows(ExecutionException.class,first::get);
+
+            assertEquals(JSONRPCException.PARSE_ERROR,((JSONRPCException) e.getCause()).getCode());
+            assertTrue(second.isCompletedExceptionally());
+            assertFalse(third.isDone());
+
+            // The answered id picks the second batch
+            String body = "["+new String(ResponseTemplates.encodeResult(new JSONArray(this.sent.get(1)).getJSONObject(1).getLong("id"),1),StandardCharsets.UTF_8)+","+new String(ResponseTemplates.encodeError(JSONRPCException.INVALID_REQUEST,null),StandardCharsets.UTF_8)+"]";
+
+            assertEquals(2,batcher.receive(body.getBytes(StandardCharsets.UTF_8)));
+            assertTrue(third.isCompletedExceptionally());
+            assertFalse(fourth.isCompletedExceptionally());
+            assertEquals(0,correlator.getPendingCount());
+        }
+    }
+
+    @Test
+    public void testSendsAreSerialized() throws Exception{
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        try(RequestCorrelator correlator = new RequestCorrelator();RequestBatcher batcher = new RequestBatcher(body -> {
+            if(active.incrementAndGet()>1){
+                overlaps.incrementAndGet();
+            }
+            this.sent.add(new String(body,StandardCharsets.UTF_8));
+            Thread.yield();
+            active.decrementAndGet();
+        },correlator,2,1,TimeUnit.MILLISECONDS)){
+            IntStream.range(0,2000).parallel().forEach(i -> {
+                try{
+                    batcher.sendNotification("log",new JSONArray().put(i));
+                }catch(JSONRPCException e){
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        int count = 0;
+        for(String body : this.sent){
+            count += body.startsWith("[")?new JSONArray(body).length():1;
+        }
+
+        assertEquals(0,overlaps.get());
+        assertEquals(2000,count);
+    }
+
+}
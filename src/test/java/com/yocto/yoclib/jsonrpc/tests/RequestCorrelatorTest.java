@@ -0,0 +1,162 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestCorrelatorTest{
+
+    @Test
+    public void testCompleteWithParsedResponse() throws JSONRPCException,InterruptedException,ExecutionException{
+        try(RequestCorrelator correlator = new RequestCorrelator()){
+            RequestCorrelator.Call call = correlator.call("sum",new JSONArray().put(1).put(2));
+            long id = call.getRequest().getIdAsLong();
+
+            assertEquals(1,correlator.getPendingCount());
+            assertFalse(correlator.complete(Message.createResponseMessageV2WithLongId(id+1,3)));
+            assertFalse(correlator.complete(Message.createResponseMessageV2("x",3)));
+
+            Message response = Message.parseJSON(("{\"jsonrpc\":\"2.0\",\"id\":"+id+",\"result\":3}").getBytes(StandardCharsets.UTF_8));
+
+            assertTrue(correlator.complete((ResponseMessage) response));
+            assertSame(response,call.getResponse().get());
+            assertFalse(correlator.complete((ResponseMessage) response));
+            assertEquals(0,correlator.getPendingCount());
+        }
+    }
+
+    @Test
+    public void testTimeout(){
+        try(RequestCorrelator correlator = new RequestCorrelator(30,TimeUnit.SECONDS,10,TimeUnit.MILLISECONDS)){
+            long id = correlator.nextId();
+            CompletableFuture<ResponseMessage> future = correlator.register(id,50,TimeUnit.MILLISECONDS);
+            CompletableFuture<ResponseMessage> other = correlator.register(correlator.nextId());
+
+            ExecutionException e = assertThrows(ExecutionException.class,() -> future.get(5,TimeUnit.SECONDS));
+
+            assertInstanceOf(TimeoutException.class,e.getCause());
+            assertFalse(other.isDone());
+            assertEquals(1,correlator.getPendingCount());
+            assertThrows(IllegalStateException.class,() -> correlator.register(id+1));
+        }
+    }
+
+    @Test
+    public void testLargeTimeout() throws InterruptedException{
+        try(RequestCorrelator correlator = new RequestCorrelator(30,TimeUnit.SECONDS,10,TimeUnit.MILLISECONDS)){
+            CompletableFuture<ResponseMessage> future = correlator.register(correlator.nextId(),Long.MAX_VALUE,TimeUnit.MILLISECONDS);
+            CompletableFuture<ResponseMessage> other = correlator.register(correlator.nextId(),Long.MAX_VALUE,TimeUnit.NANOSECONDS);
+
+            Thread.sleep(100);
+
+            assertFalse(future.isDone());
+            assertFalse(other.isDone());
+        }
+    }
+
+    @Test
+    public void testScheduler() throws InterruptedException{
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try{
+            RequestCorrelator correlator = new RequestCorrelator(30,TimeUnit.SECONDS,10,TimeUnit.MILLISECONDS,scheduler);
+            CompletableFuture<ResponseMessage> future = correlator.register(correlator.nextId(),20,TimeUnit.MILLISECONDS);
+
+            ExecutionException e = assertThrows(ExecutionException.class,() -> future.get(5,TimeUnit.SECONDS));
+
+            assertInstanceOf(TimeoutException.class,e.getCause());
+
+            correlator.close();
+
+            assertFalse(scheduler.isShutdown());
+        }finally{
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelAndClose(){
+        RequestCorrelator correlator = new RequestCorrelator();
+        CompletableFuture<ResponseMessage> cancelled = correlator.register(correlator.nextId());
+        CompletableFuture<ResponseMessage> open = correlator.register(correlator.nextId());
+
+        cancelled.cancel(false);
+
+        assertEquals(1,correlator.getPendingCount());
+
+        correlator.close();
+
+        assertTrue(open.isCancelled());
+        assertThrows(IllegalStateException.class,() -> correlator.register(correlator.nextId()));
+    }
+
+    @Test
+    public void testManyIds() throws JSONRPCException{
+        try(RequestCorrelator correlator = new RequestCorrelator()){
+            Random random = new Random(1);
+            List<Long> ids = new ArrayList<>();
+            List<CompletableFuture<ResponseMessage>> futures = new ArrayList<>();
+            for(int i=0;i<5000;i++){
+                long id = i%2==0?i*16L:random.nextLong();
+                ids.add(id);
+                futures.add(correlator.register(id,0,TimeUnit.SECONDS));
+            }
+
+            assertEquals(5000,correlator.getPendingCount());
+
+            List<Integer> order = new ArrayList<>();
+            for(int i=0;i<ids.size();i++){
+                order.add(i);
+            }
+            Collections.shuffle(order,random);
+            for(int i : order){
+                assertTrue(correlator.complete(Message.createResponseMessageV2WithLongId(ids.get(i),i)));
+                assertEquals(i,futures.get(i).join().getResult());
+            }
+
+            assertEquals(0,correlator.getPendingCount());
+        }
+    }
+
+    @Test
+    public void testConcurrentCalls() throws InterruptedException,ExecutionException{
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try(RequestCorrelator correlator = new RequestCorrelator()){
+            List<Future<?>> tasks = new ArrayList<>();
+            for(int t=0;t<8;t++){
+                tasks.add(executor.submit(() -> {
+                    for(int i=0;i<10000;i++){
+                        long id = correlator.nextId();
+                        CompletableFuture<ResponseMessage> future = correlator.register(id);
+                        assertTrue(correlator.complete(Message.createResponseMessageV2WithLongId(id,i)));
+                        assertEquals(i,future.join().getResult());
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> task : tasks){
+                task.get();
+            }
+            assertEquals(0,correlator.getPendingCount());
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest{
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Dispatcher.Handler handler = message -> {
+        this.calls.incrementAndGet();
+        if(message.getParams() instanceof JSONArray && ((JSONArray) message.getParams()).optInt(0)<0){
+            throw new JSONRPCException("Negative",JSONRPCException.INVALID_PARAMS);
+        }
+        return new JSONObject().put("info",message.getParams()!=null?message.getParams().toString():"none");
+    };
+
+    private static String encode(ResponseMessage response) throws JSONRPCException{
+        return Message.encodeJSON(response.toObject());
+    }
+
+    @Test
+    public void testHitRewritesId() throws JSONRPCException{
+        Dispatcher dispatcher = new Dispatcher().register("getInfo",new ResponseCache(this.handler,10,1,TimeUnit.HOURS));
+        Dispatcher uncached = new Dispatcher().register("getInfo",this.handler);
+
+        ResponseMessage first = dispatcher.dispatch(Message.createRequestMessageV2(1,"getInfo",new JSONObject().put("a",1).put("b",new JSONArray().put("x"))));
+        ResponseMessage second = dispatcher.dispatch(Message.parseJSON("{\"jsonrpc\":\"2.0\",\"id\":\"two\",\"method\":\"getInfo\",\"params\":{\"b\":[\"x\"],\"a\":1}}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1,this.calls.get());
+        assertEquals(1,first.getId());
+        assertEquals("two",second.getId());
+        assertEquals(encode(uncached.dispatch(Message.createRequestMessageV2("two","getInfo",new JSONObject().put("a",1).put("b",new JSONArray().put("x"))))),encode(second));
+
+        dispatcher.dispatch(Message.createRequestMessageV2(3,"getInfo",new JSONObject().put("a",2).put("b",new JSONArray().put("x"))));
+        dispatcher.dispatch(Message.createRequestMessageV2(4,"getInfo"));
+        dispatcher.dispatch(Message.createRequestMessageV2(5,"getInfo"));
+        dispatcher.dispatch(Message.createRequestMessageV2WithLongId(6,"getInfo",new JSONArray().put(10000000000L)));
+        dispatcher.dispatch(Message.parseJSON("{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"getInfo\",\"params\":[10000000000]}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(5,this.calls.get());
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws JSONRPCException{
+        Dispatcher dispatcher = new Dispatcher().register("getInfo",new ResponseCache(this.handler,10,1,TimeUnit.HOURS));
+
+        assertEquals(JSONRPCException.INVALID_PARAMS,dispatcher.dispatch(Message.createRequestMessageV2(1,"getInfo",new JSONArray().put(-1))).getErrorCode());
+        assertEquals(JSONRPCException.INVALID_PARAMS,dispatcher.dispatch(Message.createRequestMessageV2(2,"getInfo",new JSONArray().put(-1))).getErrorCode());
+        assertEquals(2,this.calls.get());
+    }
+
+    @Test
+    public void testEvictionAndExpiry() throws JSONRPCException,InterruptedException{
+        ResponseCache cache = new ResponseCache(this.handler,2,1,TimeUnit.HOURS);
+        for(int i=0;i<3;i++){
+            cache.handle(Message.createRequestMessageV2(i,"getInfo",new JSONArray().put(i)));
+        }
+        assertEquals(2,cache.size());
+
+        cache.handle(Message.createRequestMessageV2(9,"getInfo",new JSONArray().put(2)));
+
+        assertEquals(3,this.calls.get());
+
+        cache.handle(Message.createRequestMessageV2(9,"getInfo",new JSONArray().put(0)));
+
+        assertEquals(4,this.calls.get());
+
+        cache.invalidateAll();
+
+        assertEquals(0,cache.size());
+
+        ResponseCache expiring = new ResponseCache(this.handler,2,10,TimeUnit.MILLISECONDS);
+        expiring.handle(Message.createRequestMessageV2(1,"getInfo"));
+        Thread.sleep(30);
+        expiring.handle(Message.createRequestMessageV2(1,"getInfo"));
+
+        assertEquals(6,this.calls.get());
+    }
+
+    @Test
+    public void testHandleBytes() throws JSONRPCException{
+        Dispatcher dispatcher = new Dispatcher().register("getInfo",new ResponseCache(this.handler,10,1,TimeUnit.HOURS));
+        Dispatcher uncached = new Dispatcher().register("getInfo",this.handler);
+        byte[] request = "{\"jsonrpc\":\"2.0\",\"id\":\"a\",\"method\":\"getInfo\",\"params\":[1]}".getBytes(StandardCharsets.UTF_8);
+        byte[] batch = "[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"getInfo\",\"params\":[1]},{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"none\"}]".getBytes(StandardCharsets.UTF_8);
+
+        for(int i=0;i<2;i++){
+            assertArrayEquals(uncached.handle(request),dispatcher.handle(request));
+            assertArrayEquals(uncached.handle(batch),dispatcher.handle(batch));
+        }
+        assertEquals(5,this.calls.get());
+    }
+
+    @Test
+    public void testTimeToLiveStartsAfterHandler() throws JSONRPCException{
+        ResponseCache cache = new ResponseCache(message -> {
+            this.calls.incrementAndGet();
+            try{
+                Thread.sleep(300);
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        },10,200,TimeUnit.MILLISECONDS);
+        cache.handle(Message.createRequestMessageV2(1,"slow"));
+        cache.handle(Message.createRequestMessageV2(2,"slow"));
+
+        assertEquals(1,this.calls.get());
+    }
+
+    @Test
+    public void testStripes() throws JSONRPCException{
+        ResponseCache cache = new ResponseCache(this.handler,1000,1,TimeUnit.HOURS);
+        for(int i=0;i<5000;i++){
+            cache.handle(Message.createRequestMessageV2(i,"getInfo",new JSONArray().put(i)));
+        }
+
+        assertEquals(1000,cache.size());
+
+        cache.handle(Message.createRequestMessageV2(1,"getInfo",new JSONArray().put(4999)));
+
+        assertEquals(5000,this.calls.get());
+
+        cache.invalidateAll();
+
+        assertEquals(0,cache.size());
+    }
+
+    @Test
+    public void testKeyIsDetached() throws JSONRPCException{
+        ResponseCache cache = new ResponseCache(this.handler,10,1,TimeUnit.HOURS);
+        JSONArray params = new JSONArray().put(1);
+        cache.handle(Message.createRequestMessageV2(1,"getInfo",params));
+        params.put(0,2);
+        cache.handle(Message.createRequestMessageV2(2,"getInfo",new JSONArray().put(1)));
+
+        assertEquals(1,this.calls.get());
+    }
+
+}
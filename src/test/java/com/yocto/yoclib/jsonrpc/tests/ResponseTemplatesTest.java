@@ -0,0 +1,111 @@
+package com.yocto.yoclib.jsonrpc.tests;
+
+import com.yocto.yoclib.jsonrpc.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseTemplatesTest{
+
+    private static final Object[] IDS = {null,0,7,-1,123456789,Integer.MIN_VALUE,Long.MAX_VALUE,Long.MIN_VALUE,10000000000L,"","abc","a/b","</x","\"q\"\\","caf\u00e9\u2028",new BigDecimal("1.50")};
+
+    private static String expected(Message message) throws JSONRPCException{
+        return Message.encodeJSON(message.toObject());
+    }
+
+    @Test
+    public void testErrorMatchesEncodeJSON() throws JSONRPCException,IOException{
+        int[] codes = {JSONRPCException.PARSE_ERROR,JSONRPCException.INVALID_REQUEST,JSONRPCException.METHOD_NOT_FOUND,JSONRPCException.INVALID_PARAMS,JSONRPCException.INTERNAL_ERROR};
+        for(int code : codes){
+            for(Object id : IDS){
+                String expected = expected(Message.createResponseMessageV2(id,null,new JSONObject().put("code",code).put("message",ResponseTemplates.getErrorMessage(code))));
+
+                assertEquals(expected,new String(ResponseTemplates.encodeError(code,id),StandardCharsets.UTF_8),String.valueOf(id));
+
+                ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                ResponseTemplates.writeError(code,id,stream);
+
+                assertEquals(expected,new String(stream.toByteArray(),StandardCharsets.UTF_8));
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+                buffer.put((byte) ' ');
+                ResponseTemplates.writeError(code,id,buffer);
+                buffer.flip();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+
+                assertEquals(" "+expected,new String(bytes,StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals("Method not found",ResponseTemplates.getErrorMessage(-32601));
+        assertThrows(IllegalArgumentException.class,() -> ResponseTemplates.encodeError(1,1));
+    }
+
+    @Test
+    public void testResultMatchesEncodeJSON() throws JSONRPCException,IOException{
+        Object[] results = {new JSONObject().put("a",new JSONArray().put(1).put("x")),new JSONArray(),"text",42,true,JSONObject.NULL};
+        for(Object result : results){
+            for(Object id : IDS){
+                String expected = expected(Message.createResponseMessageV2(id,result));
+
+                assertEquals(expected,new String(ResponseTemplates.encodeResult(id,result),StandardCharsets.UTF_8));
+
+                ByteBuffer buffer = ByteBuffer.allocate(256);
+                ResponseTemplates.writeResult(id,result,buffer);
+
+                assertEquals(expected,new String(buffer.array(),0,buffer.position(),StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(expected(Message.createResponseMessageV2(1,JSONObject.NULL)),new String(ResponseTemplates.encodeResult(1,null),StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLargeResultToStream() throws JSONRPCException,IOException{
+        for(int size : new int[]{10,5000,200000,10}){
+            StringBuilder builder = new StringBuilder();
+            for(int i=0;i<size;i++){
+                builder.append('x');
+            }
+            JSONArray result = new JSONArray().put(builder.toString());
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            ResponseTemplates.writeResult(size,result,stream);
+
+            assertEquals(expected(Message.createResponseMessageV2(size,result)),new String(stream.toByteArray(),StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testResultRawJSON() throws JSONRPCException{
+        RawJSON raw = new RawJSON("{\"a\": [1, 2]}".getBytes(StandardCharsets.UTF_8));
+        String expected = expected(Message.createResponseMessageV2("x",raw));
+
+        assertEquals(expected,new String(ResponseTemplates.encodeResult("x",raw),StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        ResponseTemplates.writeResult("x",raw,buffer);
+
+        assertEquals(expected,new String(buffer.array(),0,buffer.position(),StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBufferOverflow(){
+        ByteBuffer buffer = ByteBuffer.allocate(40);
+        buffer.put((byte) 1);
+
+        assertThrows(BufferOverflowException.class,() -> ResponseTemplates.writeError(JSONRPCException.INVALID_REQUEST,1,buffer));
+        assertEquals(1,buffer.position());
+        assertThrows(BufferOverflowException.class,() -> ResponseTemplates.writeResult(1,new JSONArray().put("0123456789012345678901234567890123456789"),buffer));
+        assertEquals(1,buffer.position());
+    }
+
+}